@@ -0,0 +1,430 @@
+package tables;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Implements a compressed bitmap of
+ * non-negative integers, in the style of
+ * a Roaring bitmap.
+ * <p>
+ * The integers are partitioned by their high 16 bits
+ * into chunks, kept in a sorted array. A sparse chunk
+ * is a sorted array of the low 16 bits of each integer,
+ * and a dense chunk, with more than {@link #ARRAY_LIMIT}
+ * integers, is a bit set of 1024 words. So a bitmap
+ * takes at most about 2 bytes per integer, and dense
+ * chunks are combined a word at a time.
+ * <p>
+ * The operations that combine bitmaps
+ * return new bitmaps, and never share
+ * any chunk with their operands.
+ */
+final class Bitmap {
+	private static final int ARRAY_LIMIT = 4096;
+	private static final int WORDS = 1 << 10;
+
+	private char[] highs = new char[4];
+	private Object[] chunks = new Object[4];
+	private int size;
+
+	/**
+	 * Implements a sparse chunk, which is a
+	 * sorted array of low bits.
+	 */
+	private static final class Sparse {
+		private char[] values;
+		private int cardinality;
+
+		private Sparse(int capacity) {
+			values = new char[capacity];
+		}
+	}
+
+	/**
+	 * Implements a dense chunk, which is
+	 * a bit set of the low bits.
+	 */
+	private static final class Dense {
+		private final long[] words = new long[WORDS];
+		private int cardinality;
+	}
+
+	/**
+	 * Adds the given integer.
+	 *
+	 * @param x a non-negative integer.
+	 */
+	void add(int x) {
+		char high = (char) (x >>> 16);
+		char low = (char) x;
+
+		int i = find(high);
+		if (i < 0) {
+			i = -i - 1;
+			insert(i, high, new Sparse(4));
+		}
+
+		if (chunks[i] instanceof Sparse sparse) {
+			int j = Arrays.binarySearch(sparse.values, 0, sparse.cardinality, low);
+			if (j >= 0)
+				return;
+			if (sparse.cardinality == ARRAY_LIMIT) {
+				Dense dense = dense(sparse);
+				set(dense, low);
+				chunks[i] = dense;
+				return;
+			}
+
+			j = -j - 1;
+			if (sparse.cardinality == sparse.values.length)
+				sparse.values = Arrays.copyOf(sparse.values, Math.min(sparse.cardinality * 2, ARRAY_LIMIT));
+			System.arraycopy(sparse.values, j, sparse.values, j + 1, sparse.cardinality - j);
+			sparse.values[j] = low;
+			sparse.cardinality++;
+		}
+		else
+			set((Dense) chunks[i], low);
+	}
+
+	/**
+	 * Removes the given integer, if present.
+	 *
+	 * @param x a non-negative integer.
+	 */
+	void remove(int x) {
+		char high = (char) (x >>> 16);
+		char low = (char) x;
+
+		int i = find(high);
+		if (i < 0)
+			return;
+
+		if (chunks[i] instanceof Sparse sparse) {
+			int j = Arrays.binarySearch(sparse.values, 0, sparse.cardinality, low);
+			if (j < 0)
+				return;
+			System.arraycopy(sparse.values, j + 1, sparse.values, j, sparse.cardinality - j - 1);
+			sparse.cardinality--;
+			if (sparse.cardinality == 0)
+				delete(i);
+		}
+		else {
+			Dense dense = (Dense) chunks[i];
+			long bit = 1L << low;
+			if ((dense.words[low >>> 6] & bit) == 0)
+				return;
+			dense.words[low >>> 6] &= ~bit;
+			dense.cardinality--;
+			if (dense.cardinality <= ARRAY_LIMIT)
+				chunks[i] = sparse(dense);
+		}
+	}
+
+	/**
+	 * Returns whether the given integer is present.
+	 *
+	 * @param x a non-negative integer.
+	 * @return whether the integer is present.
+	 */
+	boolean contains(int x) {
+		int i = find((char) (x >>> 16));
+		return i >= 0 && contains(chunks[i], (char) x);
+	}
+
+	/**
+	 * Returns the number of integers.
+	 *
+	 * @return the cardinality.
+	 */
+	int cardinality() {
+		int sum = 0;
+		for (int i = 0; i < size; i++)
+			sum += cardinality(chunks[i]);
+		return sum;
+	}
+
+	/**
+	 * Returns whether there are no integers.
+	 *
+	 * @return whether the bitmap is empty.
+	 */
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all integers.
+	 */
+	void clear() {
+		Arrays.fill(chunks, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Passes each integer to the given
+	 * action, in increasing order.
+	 *
+	 * @param action an action.
+	 */
+	void forEach(IntConsumer action) {
+		for (int i = 0; i < size; i++) {
+			int base = highs[i] << 16;
+			if (chunks[i] instanceof Sparse sparse) {
+				for (int j = 0; j < sparse.cardinality; j++)
+					action.accept(base | sparse.values[j]);
+			}
+			else {
+				long[] words = ((Dense) chunks[i]).words;
+				for (int w = 0; w < WORDS; w++)
+					for (long word = words[w]; word != 0; word &= word - 1)
+						action.accept(base | w << 6 | Long.numberOfTrailingZeros(word));
+			}
+		}
+	}
+
+	/**
+	 * Returns the intersection of this
+	 * bitmap and the given bitmap.
+	 *
+	 * @param other a bitmap.
+	 * @return the intersection.
+	 */
+	Bitmap and(Bitmap other) {
+		Bitmap result = new Bitmap();
+		for (int i = 0, j = 0; i < size && j < other.size; ) {
+			if (highs[i] < other.highs[j])
+				i++;
+			else if (highs[i] > other.highs[j])
+				j++;
+			else {
+				result.append(highs[i], and(chunks[i], other.chunks[j]));
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the union of this bitmap
+	 * and the given bitmap.
+	 *
+	 * @param other a bitmap.
+	 * @return the union.
+	 */
+	Bitmap or(Bitmap other) {
+		Bitmap result = new Bitmap();
+		int i = 0, j = 0;
+		while (i < size || j < other.size) {
+			if (j == other.size || i < size && highs[i] < other.highs[j]) {
+				result.append(highs[i], copy(chunks[i]));
+				i++;
+			}
+			else if (i == size || highs[i] > other.highs[j]) {
+				result.append(other.highs[j], copy(other.chunks[j]));
+				j++;
+			}
+			else {
+				result.append(highs[i], or(chunks[i], other.chunks[j]));
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the difference of this bitmap
+	 * and the given bitmap, which is the
+	 * integers only in this bitmap.
+	 *
+	 * @param other a bitmap.
+	 * @return the difference.
+	 */
+	Bitmap andNot(Bitmap other) {
+		Bitmap result = new Bitmap();
+		for (int i = 0, j = 0; i < size; i++) {
+			while (j < other.size && other.highs[j] < highs[i])
+				j++;
+			if (j < other.size && other.highs[j] == highs[i])
+				result.append(highs[i], andNot(chunks[i], other.chunks[j]));
+			else
+				result.append(highs[i], copy(chunks[i]));
+		}
+		return result;
+	}
+
+	private int find(char high) {
+		return Arrays.binarySearch(highs, 0, size, high);
+	}
+
+	private void insert(int i, char high, Object chunk) {
+		if (size == highs.length) {
+			highs = Arrays.copyOf(highs, size * 2);
+			chunks = Arrays.copyOf(chunks, size * 2);
+		}
+		System.arraycopy(highs, i, highs, i + 1, size - i);
+		System.arraycopy(chunks, i, chunks, i + 1, size - i);
+		highs[i] = high;
+		chunks[i] = chunk;
+		size++;
+	}
+
+	private void delete(int i) {
+		System.arraycopy(highs, i + 1, highs, i, size - i - 1);
+		System.arraycopy(chunks, i + 1, chunks, i, size - i - 1);
+		size--;
+		chunks[size] = null;
+	}
+
+	/**
+	 * Appends the given chunk after every
+	 * other chunk, unless it is empty.
+	 *
+	 * @param high the high bits of the chunk.
+	 * @param chunk a chunk, if any.
+	 */
+	private void append(char high, Object chunk) {
+		if (chunk != null)
+			insert(size, high, chunk);
+	}
+
+	private static void set(Dense dense, char low) {
+		long bit = 1L << low;
+		if ((dense.words[low >>> 6] & bit) == 0) {
+			dense.words[low >>> 6] |= bit;
+			dense.cardinality++;
+		}
+	}
+
+	private static boolean contains(Object chunk, char low) {
+		if (chunk instanceof Sparse sparse)
+			return Arrays.binarySearch(sparse.values, 0, sparse.cardinality, low) >= 0;
+		return (((Dense) chunk).words[low >>> 6] & 1L << low) != 0;
+	}
+
+	private static int cardinality(Object chunk) {
+		return chunk instanceof Sparse sparse ? sparse.cardinality : ((Dense) chunk).cardinality;
+	}
+
+	private static Dense dense(Sparse sparse) {
+		Dense dense = new Dense();
+		for (int j = 0; j < sparse.cardinality; j++)
+			dense.words[sparse.values[j] >>> 6] |= 1L << sparse.values[j];
+		dense.cardinality = sparse.cardinality;
+		return dense;
+	}
+
+	private static Sparse sparse(Dense dense) {
+		Sparse sparse = new Sparse(dense.cardinality);
+		for (int w = 0; w < WORDS; w++)
+			for (long word = dense.words[w]; word != 0; word &= word - 1)
+				sparse.values[sparse.cardinality++] = (char) (w << 6 | Long.numberOfTrailingZeros(word));
+		return sparse;
+	}
+
+	/**
+	 * Returns the given dense chunk with its
+	 * cardinality counted, converted to a sparse
+	 * chunk if small enough, or <code>null</code>
+	 * if it is empty.
+	 *
+	 * @param dense a dense chunk.
+	 * @return the chunk, if any.
+	 */
+	private static Object normalize(Dense dense) {
+		int cardinality = 0;
+		for (long word: dense.words)
+			cardinality += Long.bitCount(word);
+		dense.cardinality = cardinality;
+
+		if (cardinality == 0)
+			return null;
+		return cardinality <= ARRAY_LIMIT ? sparse(dense) : dense;
+	}
+
+	private static Object copy(Object chunk) {
+		if (chunk instanceof Sparse sparse) {
+			Sparse result = new Sparse(sparse.cardinality);
+			System.arraycopy(sparse.values, 0, result.values, 0, sparse.cardinality);
+			result.cardinality = sparse.cardinality;
+			return result;
+		}
+
+		Dense dense = (Dense) chunk;
+		Dense result = new Dense();
+		System.arraycopy(dense.words, 0, result.words, 0, WORDS);
+		result.cardinality = dense.cardinality;
+		return result;
+	}
+
+	private static Object and(Object a, Object b) {
+		if (a instanceof Dense x && b instanceof Dense y) {
+			Dense result = new Dense();
+			for (int w = 0; w < WORDS; w++)
+				result.words[w] = x.words[w] & y.words[w];
+			return normalize(result);
+		}
+
+		Sparse sparse = a instanceof Sparse s ? s : (Sparse) b;
+		Object other = sparse == a ? b : a;
+		Sparse result = new Sparse(sparse.cardinality);
+		for (int j = 0; j < sparse.cardinality; j++)
+			if (contains(other, sparse.values[j]))
+				result.values[result.cardinality++] = sparse.values[j];
+		return result.cardinality > 0 ? result : null;
+	}
+
+	private static Object or(Object a, Object b) {
+		if (a instanceof Sparse x && b instanceof Sparse y && x.cardinality + y.cardinality <= ARRAY_LIMIT) {
+			Sparse result = new Sparse(x.cardinality + y.cardinality);
+			int i = 0, j = 0;
+			while (i < x.cardinality || j < y.cardinality) {
+				if (j == y.cardinality || i < x.cardinality && x.values[i] < y.values[j])
+					result.values[result.cardinality++] = x.values[i++];
+				else if (i == x.cardinality || x.values[i] > y.values[j])
+					result.values[result.cardinality++] = y.values[j++];
+				else {
+					result.values[result.cardinality++] = x.values[i++];
+					j++;
+				}
+			}
+			return result;
+		}
+
+		Dense result = a instanceof Dense x ? (Dense) copy(x) : dense((Sparse) a);
+		if (b instanceof Dense y) {
+			for (int w = 0; w < WORDS; w++)
+				result.words[w] |= y.words[w];
+		}
+		else {
+			Sparse y = (Sparse) b;
+			for (int j = 0; j < y.cardinality; j++)
+				result.words[y.values[j] >>> 6] |= 1L << y.values[j];
+		}
+		return normalize(result);
+	}
+
+	private static Object andNot(Object a, Object b) {
+		if (a instanceof Sparse x) {
+			Sparse result = new Sparse(x.cardinality);
+			for (int j = 0; j < x.cardinality; j++)
+				if (!contains(b, x.values[j]))
+					result.values[result.cardinality++] = x.values[j];
+			return result.cardinality > 0 ? result : null;
+		}
+
+		Dense result = (Dense) copy(a);
+		if (b instanceof Dense y) {
+			for (int w = 0; w < WORDS; w++)
+				result.words[w] &= ~y.words[w];
+		}
+		else {
+			Sparse y = (Sparse) b;
+			for (int j = 0; j < y.cardinality; j++)
+				result.words[y.values[j] >>> 6] &= ~(1L << y.values[j]);
+		}
+		return normalize(result);
+	}
+}
@@ -0,0 +1,230 @@
+package tables;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Implements the bitmap indexes of a table,
+ * which map each value of an indexed column
+ * to a {@link Bitmap} of the rows that have it.
+ * <p>
+ * Each row is numbered with a dense row id, shared by
+ * every indexed column of the table, so that the bitmaps
+ * of different columns can be combined. The ids of removed
+ * rows are reused. Like an {@link Index}, this is a listener
+ * of its table, and it is safe for concurrent mutations.
+ */
+final class BitmapIndex implements TableListener {
+	private final Map<Object, Integer> ids = new HashMap<>();
+	private Object[] keys = new Object[16];
+	private int[] free = new int[16];
+	private int freed;
+	private int allocated;
+
+	private final Bitmap live = new Bitmap();
+	private final Map<Integer, Map<Object, Bitmap>> columns = new HashMap<>();
+
+	/**
+	 * Creates the bitmap index of no column, and
+	 * numbers each of the given rows.
+	 *
+	 * @param rows the rows.
+	 * @param primaryIndex the index of the primary column.
+	 */
+	BitmapIndex(Iterable<List<Object>> rows, int primaryIndex) {
+		for (List<Object> row: rows)
+			id(row.get(primaryIndex));
+	}
+
+	/**
+	 * Returns whether the given column is indexed.
+	 *
+	 * @param column the index of a column.
+	 * @return whether the column is indexed.
+	 */
+	synchronized boolean indexes(int column) {
+		return columns.containsKey(column);
+	}
+
+	/**
+	 * Returns whether any column is indexed.
+	 *
+	 * @return whether any column is indexed.
+	 */
+	synchronized boolean isEmpty() {
+		return columns.isEmpty();
+	}
+
+	/**
+	 * Indexes the given column of the given rows.
+	 *
+	 * @param column the index of a column.
+	 * @param rows the rows.
+	 * @param primaryIndex the index of the primary column.
+	 */
+	synchronized void add(int column, Iterable<List<Object>> rows, int primaryIndex) {
+		Map<Object, Bitmap> bitmaps = new HashMap<>();
+		for (List<Object> row: rows)
+			bitmaps.computeIfAbsent(row.get(column), v -> new Bitmap()).add(id(row.get(primaryIndex)));
+		columns.put(column, bitmaps);
+	}
+
+	/**
+	 * Drops the index of the given column.
+	 *
+	 * @param column the index of a column.
+	 * @return whether the column was indexed.
+	 */
+	synchronized boolean remove(int column) {
+		return columns.remove(column) != null;
+	}
+
+	/**
+	 * Returns whether each column that the
+	 * given filter tests is indexed.
+	 *
+	 * @param filter a filter.
+	 * @param resolver the index of each column name.
+	 * @return whether the filter is covered.
+	 */
+	synchronized boolean covers(Filter filter, ToIntFunction<String> resolver) {
+		return switch (filter) {
+			case Filter.Equals eq -> columns.containsKey(resolver.applyAsInt(eq.columnName()));
+			case Filter.And and -> and.filters().stream().allMatch(f -> covers(f, resolver));
+			case Filter.Or or -> or.filters().stream().allMatch(f -> covers(f, resolver));
+			case Filter.Not not -> covers(not.filter(), resolver);
+		};
+	}
+
+	/**
+	 * Returns the keys of the rows that pass the
+	 * given filter, which this index must cover.
+	 *
+	 * @param filter a filter.
+	 * @param resolver the index of each column name.
+	 * @return the keys.
+	 */
+	synchronized List<Object> keys(Filter filter, ToIntFunction<String> resolver) {
+		Bitmap matches = evaluate(filter, resolver);
+
+		List<Object> result = new ArrayList<>(matches.cardinality());
+		matches.forEach(id -> result.add(keys[id]));
+		return result;
+	}
+
+	@Override
+	public synchronized void onPut(Table table, List<Object> oldRow, List<Object> newRow) {
+		int id = id(newRow.get(table.getPrimaryIndex()));
+		for (Map.Entry<Integer, Map<Object, Bitmap>> entry: columns.entrySet()) {
+			int column = entry.getKey();
+			Map<Object, Bitmap> bitmaps = entry.getValue();
+			if (oldRow != null)
+				clear(bitmaps, oldRow.get(column), id);
+			bitmaps.computeIfAbsent(newRow.get(column), v -> new Bitmap()).add(id);
+		}
+	}
+
+	@Override
+	public synchronized void onRemove(Table table, List<Object> oldRow) {
+		Integer id = ids.remove(oldRow.get(table.getPrimaryIndex()));
+		if (id == null)
+			return;
+
+		for (Map.Entry<Integer, Map<Object, Bitmap>> entry: columns.entrySet())
+			clear(entry.getValue(), oldRow.get(entry.getKey()), id);
+
+		live.remove(id);
+		keys[id] = null;
+		if (freed == free.length)
+			free = Arrays.copyOf(free, freed * 2);
+		free[freed++] = id;
+	}
+
+	@Override
+	public synchronized void onClear(Table table) {
+		ids.clear();
+		Arrays.fill(keys, 0, allocated, null);
+		freed = 0;
+		allocated = 0;
+
+		live.clear();
+		for (Map<Object, Bitmap> bitmaps: columns.values())
+			bitmaps.clear();
+	}
+
+	/**
+	 * Returns the id of the row with the given
+	 * key, numbering the row if it is new.
+	 *
+	 * @param key a key.
+	 * @return the id.
+	 */
+	private int id(Object key) {
+		Integer known = ids.get(key);
+		if (known != null)
+			return known;
+
+		int id;
+		if (freed > 0)
+			id = free[--freed];
+		else {
+			id = allocated++;
+			if (id == keys.length)
+				keys = Arrays.copyOf(keys, id * 2);
+		}
+
+		ids.put(key, id);
+		keys[id] = key;
+		live.add(id);
+		return id;
+	}
+
+	/**
+	 * Returns the bitmap of the rows that pass the given
+	 * filter, which may be a bitmap of this index, so it
+	 * is only read while this index is locked.
+	 *
+	 * @param filter a filter.
+	 * @param resolver the index of each column name.
+	 * @return the bitmap.
+	 */
+	private Bitmap evaluate(Filter filter, ToIntFunction<String> resolver) {
+		return switch (filter) {
+			case Filter.Equals eq -> {
+				Bitmap bitmap = columns.get(resolver.applyAsInt(eq.columnName())).get(eq.value());
+				yield bitmap != null ? bitmap : new Bitmap();
+			}
+			case Filter.And and -> {
+				if (and.filters().isEmpty())
+					yield live;
+
+				Bitmap result = null;
+				for (Filter each: and.filters()) {
+					Bitmap bitmap = evaluate(each, resolver);
+					result = result == null ? bitmap : result.and(bitmap);
+				}
+				yield result;
+			}
+			case Filter.Or or -> {
+				Bitmap result = new Bitmap();
+				for (Filter each: or.filters())
+					result = result.or(evaluate(each, resolver));
+				yield result;
+			}
+			case Filter.Not not -> live.andNot(evaluate(not.filter(), resolver));
+		};
+	}
+
+	private static void clear(Map<Object, Bitmap> bitmaps, Object value, int id) {
+		Bitmap bitmap = bitmaps.get(value);
+		if (bitmap != null) {
+			bitmap.remove(id);
+			if (bitmap.isEmpty())
+				bitmaps.remove(value);
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package grade;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tables.Filter.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import tables.Filter;
+import tables.HashArrayTable;
+import tables.Table;
+
+public class BitmapTest {
+	private static final List<String> NAMES = List.of("k", "a", "b", "c");
+	private static final List<String> TYPES = List.of("integer", "integer", "boolean", "integer");
+
+	/*
+	 * Enough rows that the row ids span three chunks of 65536, where
+	 * each value of a and b is dense and each value of c is sparse.
+	 */
+	private static final int ROWS = 150_000;
+
+	private static final List<Filter> FILTERS = List.of(
+		eq("a", 0),
+		eq("b", true),
+		eq("c", 65),
+		eq("a", 99),
+		and(eq("a", 1), eq("b", true)),
+		and(eq("a", 1), eq("c", 65)),
+		and(eq("c", 65), eq("c", 66)),
+		or(eq("c", 65), eq("c", 130), eq("b", true)),
+		or(eq("a", 0), eq("a", 1)),
+		not(eq("a", 2)),
+		not(eq("c", 65)),
+		not(or(eq("a", 0), eq("b", false))),
+		and(eq("a", 0), not(eq("b", false)), not(eq("c", 131))),
+		and(),
+		or()
+	);
+
+	private static List<Object> row(int k, int a) {
+		return List.of(k, a, k % 7 == 0, k / 1000);
+	}
+
+	private static Table table() {
+		Table table = new HashArrayTable("t", NAMES, TYPES, 0);
+		for (int k = 0; k < ROWS; k++)
+			table.put(row(k, k % 3));
+		return table;
+	}
+
+	private static boolean passes(Filter filter, List<Object> row) {
+		return switch (filter) {
+			case Filter.Equals eq -> Objects.equals(row.get(NAMES.indexOf(eq.columnName())), eq.value());
+			case Filter.And and -> and.filters().stream().allMatch(f -> passes(f, row));
+			case Filter.Or or -> or.filters().stream().anyMatch(f -> passes(f, row));
+			case Filter.Not not -> !passes(not.filter(), row);
+		};
+	}
+
+	private static void assertAnswers(Table table) {
+		for (Filter filter: FILTERS) {
+			Set<Object> expected = new HashSet<>();
+			for (List<Object> row: table)
+				if (passes(filter, row))
+					expected.add(row.get(0));
+
+			List<Object> actual = table.where(filter).map(row -> row.get(0)).toList();
+			assertEquals(expected.size(), actual.size(), filter.toString());
+			assertEquals(expected, new HashSet<>(actual), filter.toString());
+		}
+	}
+
+	private static void indexAll(Table table) {
+		table.createBitmapIndex("a");
+		table.createBitmapIndex("b");
+		table.createBitmapIndex("c");
+	}
+
+	@Test
+	public void whereMatchesBruteForce() {
+		Table table = table();
+		assertAnswers(table);
+
+		indexAll(table);
+		assertAnswers(table);
+	}
+
+	@Test
+	public void indexFollowsRemoveAndReplace() {
+		Table table = table();
+		indexAll(table);
+
+		for (int k = 0; k < ROWS; k += 5)
+			table.remove(k);
+		for (int k = 1; k < ROWS; k += 11)
+			table.put(row(k, (k + 1) % 3));
+		assertAnswers(table);
+
+		for (int k = ROWS; k < ROWS + 20_000; k++)
+			table.put(row(k, k % 3));
+		assertAnswers(table);
+
+		table.remove(-1);
+		table.put(row(3, 2));
+		table.put(row(3, 2));
+		assertAnswers(table);
+	}
+
+	@Test
+	public void removedIdsAreReused() {
+		Table table = new HashArrayTable("t", NAMES, TYPES, 0);
+		for (int k = 0; k < 10; k++)
+			table.put(row(k, 0));
+		table.createBitmapIndex("a");
+
+		table.remove(3);
+		table.remove(6);
+		table.put(row(100, 1));
+		table.put(row(101, 1));
+		table.put(row(102, 1));
+
+		List<Object> keys = table.where(not(eq("a", 2))).map(row -> row.get(0)).toList();
+		assertEquals(List.of(0, 1, 2, 101, 4, 5, 100, 7, 8, 9, 102), keys, "Rows come in id order, with freed ids reused");
+		assertEquals(List.of(0, 1, 2, 4, 5, 7, 8, 9), table.where(eq("a", 0)).map(row -> row.get(0)).toList(),
+			"A reused id must not keep the bits of its removed row");
+	}
+
+	@Test
+	public void droppedIndexFallsBackToFilter() {
+		Table table = table();
+		indexAll(table);
+
+		assertTrue(table.dropIndex("c"));
+		assertFalse(table.dropIndex("c"));
+		table.remove(65_500);
+		table.put(row(65_501, 2));
+		assertAnswers(table);
+
+		assertTrue(table.dropIndex("a"));
+		assertTrue(table.dropIndex("b"));
+		table.remove(65_502);
+		assertAnswers(table);
+
+		table.createBitmapIndex("c");
+		assertAnswers(table);
+	}
+
+	@Test
+	public void clearEmptiesEveryBitmap() {
+		Table table = table();
+		indexAll(table);
+
+		table.clear();
+		for (Filter filter: FILTERS)
+			assertEquals(0, table.where(filter).count(), filter.toString());
+
+		List<List<Object>> rows = new ArrayList<>();
+		for (int k = 70_000; k < 70_010; k++)
+			rows.add(row(k, k % 3));
+		rows.forEach(table::put);
+		assertAnswers(table);
+	}
+
+	@Test
+	public void onlyBooleanOrIntegerColumnsAreIndexed() {
+		Table table = new HashArrayTable("t", List.of("k", "s", "i"), List.of("integer", "string", "integer"), 0);
+		assertThrows(IllegalArgumentException.class, () -> table.createBitmapIndex("k"));
+		assertThrows(IllegalArgumentException.class, () -> table.createBitmapIndex("s"));
+		assertThrows(IllegalArgumentException.class, () -> table.createBitmapIndex("nope"));
+
+		table.createBitmapIndex("i");
+		assertThrows(IllegalArgumentException.class, () -> table.createBitmapIndex("i"));
+	}
+}
@@ -0,0 +1,98 @@
+package tables;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Implements a builder for loading
+ * many rows into a table at once.
+ * <p>
+ * Given an estimate of the number of rows, the table
+ * is presized once before the first row, so it does
+ * not resize while it loads. If the keys of the rows
+ * are known to be unique and new to the table, each
+ * row is created without looking up its key first.
+ * <p>
+ * For example:
+ * <pre>
+ * BulkLoad.into(table)
+ *     .expectedRows(10_000_000)
+ *     .uniqueKeys(true)
+ *     .load(rows);
+ * </pre>
+ */
+public final class BulkLoad {
+	private final Table table;
+	private int expectedRows;
+	private boolean uniqueKeys;
+
+	private BulkLoad(Table table) {
+		this.table = table;
+	}
+
+	/**
+	 * Returns a builder for loading rows
+	 * into the given table.
+	 *
+	 * @param table a table.
+	 * @return the builder.
+	 */
+	public static BulkLoad into(Table table) {
+		return new BulkLoad(table);
+	}
+
+	/**
+	 * Sets the estimated number of rows to load.
+	 * If the rows are a {@link Collection}, their
+	 * size is used when it is larger.
+	 *
+	 * @param rows the estimated number of rows.
+	 * @return this builder.
+	 */
+	public BulkLoad expectedRows(int rows) {
+		if (rows < 0)
+			throw new IllegalArgumentException("Expected rows must not be negative");
+
+		expectedRows = rows;
+		return this;
+	}
+
+	/**
+	 * Sets whether the keys of the rows to load
+	 * are distinct from each other and from every
+	 * key in the table, which the caller guarantees.
+	 * <p>
+	 * If they are not, the state of the table
+	 * is undefined after the load.
+	 *
+	 * @param unique whether the keys are unique.
+	 * @return this builder.
+	 */
+	public BulkLoad uniqueKeys(boolean unique) {
+		uniqueKeys = unique;
+		return this;
+	}
+
+	/**
+	 * Loads the given rows into the table, in order.
+	 *
+	 * @param rows the rows.
+	 * @return the table.
+	 */
+	public Table load(Iterable<List<Object>> rows) {
+		int expected = expectedRows;
+		if (rows instanceof Collection<?> c)
+			expected = Math.max(expected, c.size());
+		if (expected > 0)
+			table.ensureCapacity(table.size() + expected);
+
+		if (uniqueKeys)
+			for (List<Object> row: rows)
+				table.putUnique(row);
+		else
+			for (List<Object> row: rows)
+				table.put(row);
+
+		return table;
+	}
+}
@@ -0,0 +1,131 @@
+package grade;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import tables.BulkLoad;
+import tables.HashArrayTable;
+import tables.Table;
+
+public class BulkLoadTest {
+	private static final List<String> NAMES = List.of("k", "v");
+	private static final List<String> TYPES = List.of("integer", "string");
+	private static final int ROWS = 100_000;
+
+	private static HashArrayTable table() {
+		HashArrayTable table = new HashArrayTable("t", NAMES, TYPES, 0);
+		table.enableMetrics();
+		return table;
+	}
+
+	/*
+	 * Not a collection, so the load cannot
+	 * presize the table from its size.
+	 */
+	private static Iterable<List<Object>> generate(int rows) {
+		return () -> IntStream.range(0, rows).<List<Object>>mapToObj(k -> List.of(k, "v" + k)).iterator();
+	}
+
+	@Test
+	public void expectedRowsPresizeOnce() {
+		HashArrayTable table = table();
+		BulkLoad.into(table).expectedRows(ROWS).load(generate(ROWS));
+		assertEquals(ROWS, table.size());
+		assertEquals(1, table.stats().resizes(), "The table must be presized before the first row");
+
+		HashArrayTable unsized = table();
+		BulkLoad.into(unsized).load(generate(ROWS));
+		assertEquals(table.capacity(), unsized.capacity());
+		assertTrue(unsized.stats().resizes() > 1);
+
+		HashArrayTable unique = table();
+		BulkLoad.into(unique).expectedRows(ROWS).uniqueKeys(true).load(generate(ROWS));
+		assertEquals(1, unique.stats().resizes());
+		assertEquals(table, unique);
+	}
+
+	@Test
+	public void collectionsPresizeOnce() {
+		List<List<Object>> rows = new ArrayList<>();
+		generate(ROWS).forEach(rows::add);
+
+		HashArrayTable table = table();
+		BulkLoad.into(table).expectedRows(10).load(rows);
+		assertEquals(1, table.stats().resizes(), "A larger collection must override the estimate");
+
+		HashArrayTable putAll = table();
+		putAll.putAll(rows);
+		assertEquals(1, putAll.stats().resizes());
+		assertEquals(table, putAll);
+
+		HashArrayTable iterated = table();
+		iterated.putAll(generate(ROWS));
+		assertTrue(iterated.stats().resizes() > 1);
+		assertEquals(table, iterated);
+	}
+
+	@Test
+	public void laterDuplicatesReplaceEarlierRows() {
+		List<List<Object>> rows = new ArrayList<>();
+		for (int k = 0; k < 1000; k++)
+			rows.add(List.of(k % 100, "v" + k));
+
+		Table existing = table();
+		existing.put(List.of(5, "old"));
+		for (Table table: List.<Table>of(table(), existing)) {
+			BulkLoad.into(table).load(rows);
+			assertEquals(100, table.size());
+			for (int k = 0; k < 100; k++)
+				assertEquals(List.of(k, "v" + (900 + k)), table.get(k), "The last row of each key must win");
+		}
+
+		Table table = table();
+		table.putAll(rows);
+		assertEquals(100, table.size());
+		assertEquals(List.of(42, "v942"), table.get(42));
+	}
+
+	@Test
+	public void failedRowKeepsEarlierRows() {
+		List<List<Object>> rows = new ArrayList<>();
+		for (int k = 0; k < 10; k++)
+			rows.add(List.of(k, "v" + k));
+		rows.add(null);
+		rows.add(List.of(10, "v10"));
+
+		for (boolean unique: new boolean[] { false, true }) {
+			Table table = table();
+			assertThrows(NullPointerException.class, () -> BulkLoad.into(table).uniqueKeys(unique).load(rows));
+			assertEquals(10, table.size(), "The rows before the failure must stay loaded");
+			assertEquals(List.of(9, "v9"), table.get(9));
+			assertNull(table.get(10), "The rows after the failure must not be loaded");
+		}
+
+		Table table = table();
+		List<List<Object>> nullKey = List.of(List.of(0, "v0"), Arrays.asList(null, "v1"), List.of(2, "v2"));
+		assertThrows(NullPointerException.class, () -> table.putAll(nullKey));
+		assertEquals(1, table.size());
+		assertEquals(List.of(0, "v0"), table.get(0));
+		assertNull(table.get(2));
+	}
+
+	@Test
+	public void negativeExpectedRowsAreRejected() {
+		HashArrayTable table = table();
+		BulkLoad load = BulkLoad.into(table);
+		assertThrows(IllegalArgumentException.class, () -> load.expectedRows(-1));
+		load.expectedRows(0).load(generate(10));
+		assertEquals(10, table.size());
+
+		Iterator<List<Object>> empty = List.<List<Object>>of().iterator();
+		assertSame(table, BulkLoad.into(table).expectedRows(0).load(() -> empty));
+		assertEquals(10, table.size());
+	}
+}
@@ -0,0 +1,31 @@
+package grade;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+
+import tables.ColumnarTable;
+import tables.Table;
+
+public class ColumnarModule extends EngineModule {
+	@BeforeAll
+	public static void setup() {
+		module_tag = "MC";
+		calls_per_table = 2500;
+	}
+
+	@Override
+	protected String prefix() {
+		return "mc";
+	}
+
+	@Override
+	protected Class<? extends Table> engine() {
+		return ColumnarTable.class;
+	}
+
+	@Override
+	protected Table create(String tableName, List<String> columnNames, List<String> columnTypes, Integer primaryIndex) {
+		return new ColumnarTable(tableName, columnNames, columnTypes, primaryIndex);
+	}
+}
@@ -0,0 +1,717 @@
+package tables;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+
+/**
+ * Implements a hash-based table
+ * using a columnar data structure.
+ * <p>
+ * Rows are stored densely by ordinal, one array per column:
+ * an integer column is an <code>int[]</code>, a boolean column
+ * is a bit set, and a string column is an <code>int[]</code> of
+ * codes into a dictionary shared by the table, so each distinct
+ * string is stored once. A column that has ever held a null
+ * also has a bit set marking its null fields.
+ * <p>
+ * The primary key is indexed by an open-addressing array of
+ * ordinals. A removed row is replaced by the last row, so the
+ * ordinals stay dense and no tombstones are needed. The
+ * dictionary is looked up by a similar array of codes.
+ * <p>
+ * Rows are returned as lightweight views that read the columns
+ * in place. A view is valid until the table is next modified,
+ * after which reading it throws a
+ * {@link ConcurrentModificationException}; copy the row
+ * to keep it beyond that point.
+ */
+public class ColumnarTable extends Table {
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+	private static final double MAX_LOAD_FACTOR = 0.75;
+
+	private static final byte INTEGER = 0;
+	private static final byte BOOLEAN = 1;
+	private static final byte STRING = 2;
+
+	private final byte[] kinds;
+
+	private int[][] ints;
+	private long[][] bits;
+	private long[][] nulls;
+	private int[] rowHashes;
+	private int size;
+	private int stateHash;
+
+	private int[] slots;
+
+	private String[] strings;
+	private int stringCount;
+	private int[] dictionary;
+
+	private int modCount;
+
+	/**
+	 * Creates a table and initializes
+	 * the data structure.
+	 *
+	 * @param tableName the table name
+	 * @param columnNames the column names
+	 * @param columnTypes the column types
+	 * @param primaryIndex the primary index
+	 */
+	public ColumnarTable(String tableName, List<String> columnNames, List<String> columnTypes, Integer primaryIndex) {
+		this.tableName = tableName;
+		this.columnNames = List.copyOf(columnNames);
+		this.columnTypes = List.copyOf(columnTypes);
+		this.primaryIndex = primaryIndex;
+
+		kinds = new byte[columnTypes.size()];
+		for (int c = 0; c < kinds.length; c++) {
+			kinds[c] = switch (columnTypes.get(c)) {
+				case "integer" -> INTEGER;
+				case "boolean" -> BOOLEAN;
+				case "string" -> STRING;
+				default -> throw new IllegalArgumentException(
+					"Column type <%s> is unsupported".formatted(columnTypes.get(c))
+				);
+			};
+		}
+
+		allocate(INITIAL_CAPACITY);
+	}
+
+	@Override
+	public void clear() {
+		allocate(INITIAL_CAPACITY);
+		modCount++;
+
+		fireClear();
+	}
+
+	@Override
+	public boolean put(List<Object> row) {
+		Object[] values = row.toArray();
+		validate(values);
+
+		Object key = values[primaryIndex];
+		int hash = hash(key);
+
+		modCount++;
+
+		int slot = find(hash, key);
+		if (slot >= 0) {
+			int ordinal = slots[slot] - 1;
+			List<Object> replaced = observed() ? copy(ordinal) : null;
+			stateHash -= rowHash(ordinal);
+			write(ordinal, values);
+			stateHash += rowHash(values);
+
+			if (replaced != null)
+				firePut(replaced, new Row(ordinal));
+			return true;
+		}
+
+		append(hash, values);
+		return false;
+	}
+
+	/**
+	 * Grows the columns and the index, if needed, so
+	 * that the given number of rows fits without growing.
+	 *
+	 * @param rows the total number of rows.
+	 */
+	@Override
+	protected void ensureCapacity(int rows) {
+		while (rowHashes.length < rows && rowHashes.length < MAXIMUM_CAPACITY)
+			growRows();
+
+		int capacity = slots.length;
+		while (rows > threshold(capacity) && capacity < MAXIMUM_CAPACITY)
+			capacity *= 2;
+		if (capacity != slots.length) {
+			slots = new int[capacity];
+			for (int ordinal = 0; ordinal < size; ordinal++)
+				link(ordinal);
+		}
+	}
+
+	/**
+	 * Appends the given row without looking up its key.
+	 *
+	 * @param row a row with a new key.
+	 */
+	@Override
+	protected void putUnique(List<Object> row) {
+		Object[] values = row.toArray();
+		validate(values);
+
+		modCount++;
+		append(hash(values[primaryIndex]), values);
+	}
+
+	@Override
+	public boolean remove(Object key) {
+		int slot = find(hash(key), key);
+		if (slot < 0)
+			return false;
+
+		int ordinal = slots[slot] - 1;
+		List<Object> removed = observed() ? copy(ordinal) : null;
+		stateHash -= rowHash(ordinal);
+		unlink(slot);
+
+		int last = --size;
+		if (ordinal != last) {
+			move(last, ordinal);
+			slots[slotOf(last)] = ordinal + 1;
+		}
+		erase(last);
+
+		modCount++;
+
+		if (removed != null)
+			fireRemove(removed);
+		return true;
+	}
+
+	@Override
+	public List<Object> get(Object key) {
+		int slot = find(hash(key), key);
+		if (slot < 0)
+			return null;
+
+		return new Row(slots[slot] - 1);
+	}
+
+	@Override
+	protected int stateHash() {
+		return stateHash;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int capacity() {
+		return slots.length;
+	}
+
+	@Override
+	public Iterator<List<Object>> iterator() {
+		return new Iterator<>() {
+			private final int expectedModCount = modCount;
+			private int ordinal = 0;
+
+			@Override
+			public boolean hasNext() {
+				if (modCount != expectedModCount)
+					throw new ConcurrentModificationException();
+
+				return ordinal < size;
+			}
+
+			@Override
+			public List<Object> next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+
+				return new Row(ordinal++);
+			}
+		};
+	}
+
+	/**
+	 * Returns a spliterator over the ordinals, which are
+	 * dense, so it and each of its splits are sized.
+	 *
+	 * @return a spliterator of rows.
+	 */
+	@Override
+	public Spliterator<List<Object>> spliterator() {
+		return new SlotSpliterator(new SlotSpliterator.Source() {
+			@Override
+			public boolean occupied(int ordinal) {
+				return true;
+			}
+
+			@Override
+			public List<Object> row(int ordinal) {
+				return new Row(ordinal);
+			}
+
+			@Override
+			public int modCount() {
+				return modCount;
+			}
+		}, 0, size, size, true);
+	}
+
+	/**
+	 * Returns the number of distinct strings
+	 * in the dictionary shared by the string columns.
+	 * <p>
+	 * The dictionary is only emptied by {@link #clear()},
+	 * so it may include strings no longer in any row.
+	 *
+	 * @return the size of the dictionary.
+	 */
+	public int dictionarySize() {
+		return stringCount;
+	}
+
+	/**
+	 * Replaces the columns, the index, and the dictionary
+	 * with empty ones of the given capacity.
+	 *
+	 * @param capacity a power of two.
+	 */
+	private void allocate(int capacity) {
+		ints = new int[kinds.length][];
+		bits = new long[kinds.length][];
+		nulls = new long[kinds.length][];
+		for (int c = 0; c < kinds.length; c++) {
+			if (kinds[c] == BOOLEAN)
+				bits[c] = new long[words(capacity)];
+			else
+				ints[c] = new int[capacity];
+		}
+		rowHashes = new int[capacity];
+		size = 0;
+		stateHash = 0;
+
+		slots = new int[capacity];
+
+		strings = new String[INITIAL_CAPACITY];
+		stringCount = 0;
+		dictionary = new int[INITIAL_CAPACITY * 2];
+	}
+
+	/**
+	 * Throws an exception unless the given fields
+	 * match the column types of the schema.
+	 *
+	 * @param values the fields of a row.
+	 */
+	private void validate(Object[] values) {
+		if (values.length != kinds.length)
+			throw new IllegalArgumentException(
+				"Row has %d fields but the schema has %d columns".formatted(values.length, kinds.length)
+			);
+
+		for (int c = 0; c < kinds.length; c++) {
+			Object v = values[c];
+			if (v == null) {
+				if (c == primaryIndex)
+					throw new IllegalArgumentException("Primary key must not be null");
+				continue;
+			}
+
+			boolean valid = switch (kinds[c]) {
+				case INTEGER -> v instanceof Integer;
+				case BOOLEAN -> v instanceof Boolean;
+				default -> v instanceof String;
+			};
+			if (!valid)
+				throw new IllegalArgumentException(
+					"Field <%s> does not match column type <%s>".formatted(v, columnTypes.get(c))
+				);
+		}
+	}
+
+	/**
+	 * Appends the given row at the next ordinal
+	 * and links it into the index.
+	 *
+	 * @param hash the hash of the key.
+	 * @param values the fields, already validated.
+	 */
+	private void append(int hash, Object[] values) {
+		if (size == rowHashes.length)
+			growRows();
+
+		int ordinal = size++;
+		write(ordinal, values);
+		rowHashes[ordinal] = hash;
+		stateHash += rowHash(values);
+
+		if (size > threshold(slots.length))
+			growSlots();
+		else
+			link(ordinal);
+
+		if (observed())
+			firePut(null, new Row(ordinal));
+	}
+
+	/**
+	 * Doubles the length of each column.
+	 */
+	private void growRows() {
+		int capacity = rowHashes.length * 2;
+		for (int c = 0; c < kinds.length; c++) {
+			if (kinds[c] == BOOLEAN)
+				bits[c] = Arrays.copyOf(bits[c], words(capacity));
+			else
+				ints[c] = Arrays.copyOf(ints[c], capacity);
+
+			if (nulls[c] != null)
+				nulls[c] = Arrays.copyOf(nulls[c], words(capacity));
+		}
+		rowHashes = Arrays.copyOf(rowHashes, capacity);
+	}
+
+	/**
+	 * Doubles the length of the index and relinks every
+	 * row from its cached hash, without reading any key.
+	 */
+	private void growSlots() {
+		slots = new int[slots.length * 2];
+		for (int ordinal = 0; ordinal < size; ordinal++)
+			link(ordinal);
+	}
+
+	/**
+	 * Writes the given fields into the columns at the given
+	 * ordinal, overwriting any fields already there.
+	 *
+	 * @param ordinal an ordinal.
+	 * @param values the fields, already validated.
+	 */
+	private void write(int ordinal, Object[] values) {
+		for (int c = 0; c < kinds.length; c++) {
+			Object v = values[c];
+			if (v == null) {
+				if (nulls[c] == null)
+					nulls[c] = new long[words(rowHashes.length)];
+				set(nulls[c], ordinal, true);
+				continue;
+			}
+
+			if (nulls[c] != null)
+				set(nulls[c], ordinal, false);
+
+			switch (kinds[c]) {
+				case INTEGER -> ints[c][ordinal] = (Integer) v;
+				case BOOLEAN -> set(bits[c], ordinal, (Boolean) v);
+				default -> ints[c][ordinal] = encode((String) v);
+			}
+		}
+	}
+
+	/**
+	 * Copies every field of one ordinal to another.
+	 *
+	 * @param from the source ordinal.
+	 * @param to the target ordinal.
+	 */
+	private void move(int from, int to) {
+		for (int c = 0; c < kinds.length; c++) {
+			if (kinds[c] == BOOLEAN)
+				set(bits[c], to, bit(bits[c], from));
+			else
+				ints[c][to] = ints[c][from];
+
+			if (nulls[c] != null)
+				set(nulls[c], to, bit(nulls[c], from));
+		}
+		rowHashes[to] = rowHashes[from];
+	}
+
+	/**
+	 * Clears the bits of the given ordinal,
+	 * which is no longer in use.
+	 *
+	 * @param ordinal an ordinal.
+	 */
+	private void erase(int ordinal) {
+		for (int c = 0; c < kinds.length; c++) {
+			if (kinds[c] == BOOLEAN)
+				set(bits[c], ordinal, false);
+
+			if (nulls[c] != null)
+				set(nulls[c], ordinal, false);
+		}
+	}
+
+	/**
+	 * Returns the field at the given ordinal and column.
+	 *
+	 * @param ordinal an ordinal.
+	 * @param column a column index.
+	 * @return the field.
+	 */
+	private Object field(int ordinal, int column) {
+		if (nulls[column] != null && bit(nulls[column], ordinal))
+			return null;
+
+		return switch (kinds[column]) {
+			case INTEGER -> ints[column][ordinal];
+			case BOOLEAN -> bit(bits[column], ordinal);
+			default -> strings[ints[column][ordinal]];
+		};
+	}
+
+	/**
+	 * Returns the sum of the hash codes of the fields at
+	 * the given ordinal, read from the columns without
+	 * boxing; see {@link Table#rowHash(Object[])}.
+	 *
+	 * @param ordinal an ordinal.
+	 * @return the sum of the hash codes.
+	 */
+	private int rowHash(int ordinal) {
+		int sum = 0;
+		for (int c = 0; c < kinds.length; c++) {
+			if (nulls[c] != null && bit(nulls[c], ordinal))
+				continue;
+
+			sum += switch (kinds[c]) {
+				case INTEGER -> ints[c][ordinal];
+				case BOOLEAN -> Boolean.hashCode(bit(bits[c], ordinal));
+				default -> strings[ints[c][ordinal]].hashCode();
+			};
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns a copy of the row at the given ordinal,
+	 * which stays valid after the table is modified.
+	 *
+	 * @param ordinal an ordinal.
+	 * @return the copy of the row.
+	 */
+	private List<Object> copy(int ordinal) {
+		Object[] values = new Object[kinds.length];
+		for (int c = 0; c < kinds.length; c++)
+			values[c] = field(ordinal, c);
+		return Collections.unmodifiableList(Arrays.asList(values));
+	}
+
+	/**
+	 * Returns the dictionary code of the given string,
+	 * adding the string to the dictionary if it is absent.
+	 *
+	 * @param s a string.
+	 * @return the code.
+	 */
+	private int encode(String s) {
+		int code = codeOf(s);
+		if (code >= 0)
+			return code;
+
+		if (stringCount == strings.length)
+			growDictionary();
+
+		code = stringCount++;
+		strings[code] = s;
+		linkString(code);
+		return code;
+	}
+
+	/**
+	 * Returns the dictionary code of the given string,
+	 * or <code>-1</code> if it is absent.
+	 *
+	 * @param s a string.
+	 * @return the code, if any.
+	 */
+	private int codeOf(String s) {
+		int mask = dictionary.length - 1;
+		for (int i = hash(s) & mask; dictionary[i] != 0; i = (i + 1) & mask) {
+			int code = dictionary[i] - 1;
+			if (strings[code].equals(s))
+				return code;
+		}
+		return -1;
+	}
+
+	/**
+	 * Doubles the dictionary and relinks every string,
+	 * so the lookup array stays at most half full.
+	 */
+	private void growDictionary() {
+		strings = Arrays.copyOf(strings, strings.length * 2);
+		dictionary = new int[strings.length * 2];
+		for (int code = 0; code < stringCount; code++)
+			linkString(code);
+	}
+
+	/**
+	 * Adds the given code to the dictionary lookup
+	 * at the first empty slot from its home slot.
+	 *
+	 * @param code a code of the dictionary.
+	 */
+	private void linkString(int code) {
+		int mask = dictionary.length - 1;
+		int i = hash(strings[code]) & mask;
+		while (dictionary[i] != 0)
+			i = (i + 1) & mask;
+		dictionary[i] = code + 1;
+	}
+
+	/**
+	 * Returns the slot of the given key in the index,
+	 * or <code>-1</code> if it is absent.
+	 * <p>
+	 * The key is first reduced to the <code>int</code> stored
+	 * in the primary column, so each probe compares primitives.
+	 * A string absent from the dictionary misses immediately.
+	 *
+	 * @param hash the hash of the key.
+	 * @param key the key.
+	 * @return the slot of the key, if any.
+	 */
+	private int find(int hash, Object key) {
+		int pk = primaryIndex;
+		int probe;
+		switch (kinds[pk]) {
+			case INTEGER -> {
+				if (!(key instanceof Integer i))
+					return -1;
+				probe = i;
+			}
+			case BOOLEAN -> {
+				if (!(key instanceof Boolean b))
+					return -1;
+				probe = b ? 1 : 0;
+			}
+			default -> {
+				if (!(key instanceof String s))
+					return -1;
+				probe = codeOf(s);
+				if (probe < 0)
+					return -1;
+			}
+		}
+
+		int mask = slots.length - 1;
+		for (int i = hash & mask; slots[i] != 0; i = (i + 1) & mask) {
+			int ordinal = slots[i] - 1;
+			if (rowHashes[ordinal] != hash)
+				continue;
+
+			int stored = kinds[pk] == BOOLEAN
+				? (bit(bits[pk], ordinal) ? 1 : 0)
+				: ints[pk][ordinal];
+			if (stored == probe)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the slot of the index
+	 * that holds the given ordinal.
+	 *
+	 * @param ordinal an ordinal in the index.
+	 * @return the slot of the ordinal.
+	 */
+	private int slotOf(int ordinal) {
+		int mask = slots.length - 1;
+		int i = rowHashes[ordinal] & mask;
+		while (slots[i] != ordinal + 1)
+			i = (i + 1) & mask;
+		return i;
+	}
+
+	/**
+	 * Adds the given ordinal to the index
+	 * at the first empty slot from its home slot.
+	 *
+	 * @param ordinal an ordinal.
+	 */
+	private void link(int ordinal) {
+		int mask = slots.length - 1;
+		int i = rowHashes[ordinal] & mask;
+		while (slots[i] != 0)
+			i = (i + 1) & mask;
+		slots[i] = ordinal + 1;
+	}
+
+	/**
+	 * Empties the given slot of the index, then moves
+	 * back each following ordinal whose home slot does
+	 * not lie between the emptied slot and its own slot.
+	 *
+	 * @param slot a slot of the index.
+	 */
+	private void unlink(int slot) {
+		int mask = slots.length - 1;
+		int i = slot;
+		slots[i] = 0;
+		for (int j = (i + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+			int home = rowHashes[slots[j] - 1] & mask;
+			boolean stays = i <= j
+				? i < home && home <= j
+				: i < home || home <= j;
+			if (!stays) {
+				slots[i] = slots[j];
+				slots[j] = 0;
+				i = j;
+			}
+		}
+	}
+
+	private static int threshold(int capacity) {
+		return (int) (capacity * MAX_LOAD_FACTOR);
+	}
+
+	private static int hash(Object key) {
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private static int words(int bits) {
+		return (bits + 63) >>> 6;
+	}
+
+	private static boolean bit(long[] words, int i) {
+		return (words[i >>> 6] & (1L << i)) != 0;
+	}
+
+	private static void set(long[] words, int i, boolean value) {
+		if (value)
+			words[i >>> 6] |= 1L << i;
+		else
+			words[i >>> 6] &= ~(1L << i);
+	}
+
+	/**
+	 * Implements a view of the row at an ordinal,
+	 * valid until the table is next modified.
+	 */
+	private final class Row extends AbstractList<Object> implements RandomAccess {
+		private final int ordinal;
+		private final int expectedModCount = modCount;
+
+		private Row(int ordinal) {
+			this.ordinal = ordinal;
+		}
+
+		@Override
+		public Object get(int index) {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+
+			return field(ordinal, index);
+		}
+
+		@Override
+		public int size() {
+			return kinds.length;
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package grade;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import tables.ColumnarTable;
+
+public class ColumnarTableTest {
+	private static ColumnarTable table() {
+		return new ColumnarTable("t", List.of("k", "v", "n"), List.of("string", "string", "integer"), 0);
+	}
+
+	@Test
+	public void dictionaryGrowsPastInitialCapacity() {
+		ColumnarTable table = table();
+		for (int i = 0; i < 1000; i++)
+			table.put(List.of("k" + i, "v" + (i % 10), i));
+
+		assertEquals(1010, table.dictionarySize());
+		for (int i = 0; i < 1000; i++)
+			assertEquals(List.of("k" + i, "v" + (i % 10), i), table.get("k" + i));
+		assertNull(table.get("k1000"));
+		assertNull(table.get("v0"), "A string in the dictionary but not a key must miss");
+	}
+
+	@Test
+	public void dictionarySharesRepeatedStrings() {
+		ColumnarTable table = table();
+		table.put(List.of("a", "a", 1));
+		table.put(List.of("b", "a", 2));
+		table.put(List.of("a", "b", 3));
+
+		assertEquals(2, table.dictionarySize());
+		assertEquals(List.of("a", "b", 3), table.get("a"));
+		assertEquals(List.of("b", "a", 2), table.get("b"));
+	}
+
+	@Test
+	public void dictionaryKeepsRemovedStringsUntilClear() {
+		ColumnarTable table = table();
+		for (int i = 0; i < 100; i++)
+			table.put(List.of("k" + i, "v", i));
+		for (int i = 0; i < 100; i++)
+			assertTrue(table.remove("k" + i));
+
+		assertEquals(0, table.size());
+		assertEquals(101, table.dictionarySize());
+
+		table.put(List.of("k0", "v", 0));
+		assertEquals(101, table.dictionarySize());
+
+		table.clear();
+		assertEquals(0, table.dictionarySize());
+		assertNull(table.get("k0"));
+
+		table.put(List.of("k0", "w", 0));
+		assertEquals(2, table.dictionarySize());
+		assertEquals(List.of("k0", "w", 0), table.get("k0"));
+	}
+}
@@ -0,0 +1,677 @@
+package tables;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Implements a hash-based table that
+ * is safe for use by concurrent threads.
+ * <p>
+ * The state is striped across segments by the hash of each
+ * key. Each segment is a small open-addressing hash array,
+ * like a {@link HashArrayTable} with linear probing, guarded
+ * by its own {@link StampedLock}. Mutations of keys in
+ * different segments never contend.
+ * <p>
+ * Reads take no lock. A read probes a segment optimistically,
+ * then validates that no mutation of the segment overlapped
+ * it, and only retries under the read lock if one did.
+ * The size is counted in a {@link LongAdder}, so mutations
+ * never contend on it either.
+ * <p>
+ * Listeners are notified while the segment is still locked,
+ * so the mutations of each key are observed in the order
+ * they were applied.
+ * <p>
+ * Iteration is weakly consistent: it never throws a
+ * {@link java.util.ConcurrentModificationException}, and
+ * reads the slots of each segment in turn, in place.
+ */
+public class ConcurrentTable extends Table {
+	private static final int DEFAULT_CONCURRENCY = 16;
+	private static final int INITIAL_CAPACITY = 16;
+	private static final double MAX_LOAD_FACTOR = 0.75;
+	private static final Object TOMBSTONE = new Object();
+
+	private final Segment[] segments;
+	private final int shift;
+	private final LongAdder size = new LongAdder();
+
+	/**
+	 * Implements a segment of the state.
+	 * Its fields are guarded by its lock.
+	 */
+	private static final class Segment {
+		private final StampedLock lock = new StampedLock();
+
+		private int[] hashes;
+		private Object[] keys;
+		private Object[][] fields;
+		private int size;
+		private int used;
+		private int stateHash;
+
+		private Segment() {
+			allocate(INITIAL_CAPACITY);
+		}
+
+		private void allocate(int capacity) {
+			hashes = new int[capacity];
+			keys = new Object[capacity];
+			fields = new Object[capacity][];
+			size = 0;
+			used = 0;
+			stateHash = 0;
+		}
+
+		/**
+		 * Returns the fields of the row with the given key,
+		 * or <code>null</code> if it is absent.
+		 * <p>
+		 * This method may run concurrently with a mutation in
+		 * an optimistic read, so it reads each array once and
+		 * never trusts the state beyond the bounds it checks.
+		 * Its result is only used once the read is validated.
+		 *
+		 * @param hash the hash of the key.
+		 * @param key the key.
+		 * @return the fields, if any.
+		 */
+		private Object[] find(int hash, Object key) {
+			int[] hs = hashes;
+			Object[] ks = keys;
+			Object[][] fs = fields;
+			if (hs.length != ks.length || ks.length != fs.length)
+				return null;
+
+			int mask = ks.length - 1;
+			for (int n = 0, i = hash & mask; n < ks.length; n++, i = (i + 1) & mask) {
+				Object k = ks[i];
+				if (k == null)
+					return null;
+				if (k != TOMBSTONE && hs[i] == hash && k.equals(key))
+					return fs[i];
+			}
+			return null;
+		}
+
+		/**
+		 * Returns the slot of the given key,
+		 * or <code>-1</code> if it is absent.
+		 * The caller holds the read or write lock.
+		 *
+		 * @param hash the hash of the key.
+		 * @param key the key.
+		 * @return the slot of the key, if any.
+		 */
+		private int slotOf(int hash, Object key) {
+			int mask = keys.length - 1;
+			for (int i = hash & mask; keys[i] != null; i = (i + 1) & mask)
+				if (keys[i] != TOMBSTONE && hashes[i] == hash && keys[i].equals(key))
+					return i;
+			return -1;
+		}
+
+		/**
+		 * Returns the number of slots a lookup examines
+		 * to find the key with the given hash at the given
+		 * slot. The caller holds the read or write lock.
+		 *
+		 * @param hash the hash of the key.
+		 * @param slot the slot of the key.
+		 * @return the probe length.
+		 */
+		private int probeLength(int hash, int slot) {
+			int mask = keys.length - 1;
+			return ((slot - (hash & mask)) & mask) + 1;
+		}
+
+		/**
+		 * Adds the given row to the first slot from its home
+		 * slot that is empty. The caller holds the write lock.
+		 *
+		 * @param hash the hash of the key.
+		 * @param key the key.
+		 * @param values the fields.
+		 */
+		private void insert(int hash, Object key, Object[] values) {
+			int mask = keys.length - 1;
+			int i = hash & mask;
+			while (keys[i] != null)
+				i = (i + 1) & mask;
+
+			hashes[i] = hash;
+			keys[i] = key;
+			fields[i] = values;
+			used++;
+		}
+
+		/**
+		 * Rehashes the live rows into new arrays, dropping the
+		 * tombstones, doubled while the rows would fill more
+		 * than half of the threshold. The caller holds the
+		 * write lock.
+		 */
+		private void rehash() {
+			int capacity = keys.length;
+			while (size > threshold(capacity) / 2)
+				capacity *= 2;
+
+			int[] oldHashes = hashes;
+			Object[] oldKeys = keys;
+			Object[][] oldFields = fields;
+			int live = size;
+			int sum = stateHash;
+
+			allocate(capacity);
+			for (int i = 0; i < oldKeys.length; i++)
+				if (oldKeys[i] != null && oldKeys[i] != TOMBSTONE)
+					insert(oldHashes[i], oldKeys[i], oldFields[i]);
+
+			size = live;
+			stateHash = sum;
+		}
+
+		/**
+		 * Returns the number of rows, read without the lock,
+		 * which is only an estimate while a mutation runs.
+		 *
+		 * @return the estimated number of rows.
+		 */
+		private int estimateSize() {
+			return size;
+		}
+	}
+
+	/**
+	 * Creates a table and initializes
+	 * the data structure.
+	 *
+	 * @param tableName the table name
+	 * @param columnNames the column names
+	 * @param columnTypes the column types
+	 * @param primaryIndex the primary index
+	 */
+	public ConcurrentTable(String tableName, List<String> columnNames, List<String> columnTypes, Integer primaryIndex) {
+		this(tableName, columnNames, columnTypes, primaryIndex, DEFAULT_CONCURRENCY);
+	}
+
+	/**
+	 * Creates a table and initializes the data structure
+	 * with at least the given number of segments, which
+	 * is the number of mutations that can run at once.
+	 *
+	 * @param tableName the table name
+	 * @param columnNames the column names
+	 * @param columnTypes the column types
+	 * @param primaryIndex the primary index
+	 * @param concurrency the minimum number of segments, positive
+	 */
+	public ConcurrentTable(String tableName, List<String> columnNames, List<String> columnTypes, Integer primaryIndex, int concurrency) {
+		if (concurrency < 1 || concurrency > 1 << 16)
+			throw new IllegalArgumentException("Concurrency must be between 1 and 65536");
+
+		this.tableName = tableName;
+		this.columnNames = List.copyOf(columnNames);
+		this.columnTypes = List.copyOf(columnTypes);
+		this.primaryIndex = primaryIndex;
+
+		int count = Integer.highestOneBit(concurrency * 2 - 1);
+		segments = new Segment[count];
+		for (int s = 0; s < count; s++)
+			segments[s] = new Segment();
+		shift = 32 - Integer.numberOfTrailingZeros(count);
+	}
+
+	/**
+	 * Removes all rows from the state, locking
+	 * every segment so that the clear is atomic.
+	 */
+	@Override
+	public void clear() {
+		long[] stamps = new long[segments.length];
+		for (int s = 0; s < segments.length; s++)
+			stamps[s] = segments[s].lock.writeLock();
+		try {
+			for (Segment segment: segments)
+				segment.allocate(INITIAL_CAPACITY);
+			size.reset();
+
+			fireClear();
+		}
+		finally {
+			for (int s = segments.length - 1; s >= 0; s--)
+				segments[s].lock.unlockWrite(stamps[s]);
+		}
+	}
+
+	@Override
+	public boolean put(List<Object> row) {
+		Object[] values = row.toArray();
+		Object key = values[primaryIndex];
+		int hash = hash(key);
+
+		Segment segment = segmentFor(hash);
+		long stamp = segment.lock.writeLock();
+		try {
+			TableMetrics m = metrics();
+
+			int i = segment.slotOf(hash, key);
+			if (i >= 0) {
+				Object[] replaced = segment.fields[i];
+				segment.fields[i] = values;
+				segment.stateHash += rowHash(values) - rowHash(replaced);
+
+				if (m != null) {
+					m.put(true);
+					m.probe(segment.probeLength(hash, i));
+				}
+
+				if (observed())
+					firePut(view(replaced), view(values));
+				return true;
+			}
+
+			if (m != null)
+				m.put(false);
+
+			if (segment.used + 1 > threshold(segment.keys.length)) {
+				long start = System.nanoTime();
+				segment.rehash();
+				if (m != null)
+					m.resize(System.nanoTime() - start);
+			}
+
+			segment.insert(hash, key, values);
+			segment.size++;
+			segment.stateHash += rowHash(values);
+			size.increment();
+
+			if (observed())
+				firePut(null, view(values));
+			return false;
+		}
+		finally {
+			segment.lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public boolean remove(Object key) {
+		int hash = hash(key);
+
+		Segment segment = segmentFor(hash);
+		long stamp = segment.lock.writeLock();
+		try {
+			TableMetrics m = metrics();
+
+			int i = segment.slotOf(hash, key);
+			if (i < 0) {
+				if (m != null)
+					m.remove(false);
+				return false;
+			}
+
+			if (m != null) {
+				m.remove(true);
+				m.probe(segment.probeLength(hash, i));
+			}
+
+			Object[] removed = segment.fields[i];
+			segment.keys[i] = TOMBSTONE;
+			segment.fields[i] = null;
+			segment.size--;
+			segment.stateHash -= rowHash(removed);
+			size.decrement();
+
+			if (observed())
+				fireRemove(view(removed));
+			return true;
+		}
+		finally {
+			segment.lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public List<Object> get(Object key) {
+		int hash = hash(key);
+
+		Segment segment = segmentFor(hash);
+
+		TableMetrics m = metrics();
+		if (m != null)
+			return recordedGet(segment, hash, key, m);
+
+		long stamp = segment.lock.tryOptimisticRead();
+		Object[] values = segment.find(hash, key);
+		if (!segment.lock.validate(stamp)) {
+			stamp = segment.lock.readLock();
+			try {
+				values = segment.find(hash, key);
+			}
+			finally {
+				segment.lock.unlockRead(stamp);
+			}
+		}
+
+		return values != null ? view(values) : null;
+	}
+
+	/**
+	 * Looks up the given key under the read lock of
+	 * its segment, and records the get, along with the
+	 * probe length of a hit, which an optimistic read
+	 * cannot report.
+	 *
+	 * @param segment the segment of the key.
+	 * @param hash the hash of the key.
+	 * @param key the key.
+	 * @param m the counters.
+	 * @return the row, if any.
+	 */
+	private List<Object> recordedGet(Segment segment, int hash, Object key, TableMetrics m) {
+		long stamp = segment.lock.readLock();
+		try {
+			int i = segment.slotOf(hash, key);
+			m.get(i >= 0);
+			if (i < 0)
+				return null;
+
+			m.probe(segment.probeLength(hash, i));
+			return view(segment.fields[i]);
+		}
+		finally {
+			segment.lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public int size() {
+		return size.intValue();
+	}
+
+	@Override
+	public int capacity() {
+		int capacity = 0;
+		for (Segment segment: segments) {
+			long stamp = segment.lock.readLock();
+			try {
+				capacity += segment.keys.length;
+			}
+			finally {
+				segment.lock.unlockRead(stamp);
+			}
+		}
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of tombstones in
+	 * every segment, reading each in turn.
+	 *
+	 * @return the number of tombstones.
+	 */
+	@Override
+	protected int tombstones() {
+		int tombstones = 0;
+		for (Segment segment: segments) {
+			long stamp = segment.lock.readLock();
+			try {
+				tombstones += segment.used - segment.size;
+			}
+			finally {
+				segment.lock.unlockRead(stamp);
+			}
+		}
+		return tombstones;
+	}
+
+	/**
+	 * Returns the number of segments,
+	 * which is a power of two.
+	 *
+	 * @return the number of segments.
+	 */
+	public int concurrency() {
+		return segments.length;
+	}
+
+	@Override
+	protected int stateHash() {
+		int sum = 0;
+		for (Segment segment: segments) {
+			long stamp = segment.lock.tryOptimisticRead();
+			int hash = segment.stateHash;
+			if (!segment.lock.validate(stamp)) {
+				stamp = segment.lock.readLock();
+				try {
+					hash = segment.stateHash;
+				}
+				finally {
+					segment.lock.unlockRead(stamp);
+				}
+			}
+			sum += hash;
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns a snapshot that copies the state while
+	 * holding the read lock of every segment, so it is
+	 * consistent, but mutations wait until it is copied.
+	 *
+	 * @return the snapshot.
+	 */
+	@Override
+	public Table snapshot() {
+		long[] stamps = new long[segments.length];
+		for (int s = 0; s < segments.length; s++)
+			stamps[s] = segments[s].lock.readLock();
+		try {
+			List<List<Object>> rows = new ArrayList<>(size());
+			for (Segment segment: segments)
+				for (int i = 0; i < segment.keys.length; i++)
+					if (segment.keys[i] != null && segment.keys[i] != TOMBSTONE)
+						rows.add(view(segment.fields[i]));
+			return new FrozenTable(this, rows);
+		}
+		finally {
+			for (int s = segments.length - 1; s >= 0; s--)
+				segments[s].lock.unlockRead(stamps[s]);
+		}
+	}
+
+	@Override
+	public Iterator<List<Object>> iterator() {
+		return Spliterators.iterator(spliterator());
+	}
+
+	/**
+	 * Returns a weakly consistent spliterator, which
+	 * splits by ranges of segments and reads the slots
+	 * of each segment in place; see {@link SegmentSpliterator}.
+	 *
+	 * @return a spliterator of rows.
+	 */
+	@Override
+	public Spliterator<List<Object>> spliterator() {
+		return new SegmentSpliterator(0, segments.length);
+	}
+
+	/**
+	 * Implements a spliterator over the rows of
+	 * a range of segments, which reads each slot
+	 * with an optimistic read of its segment, and
+	 * retries under the read lock only if a mutation
+	 * of the segment overlapped the read.
+	 * <p>
+	 * A row never moves within the arrays of a segment,
+	 * and a rehash leaves the old arrays untouched, so
+	 * each row present for the whole traversal is read
+	 * exactly once, without copying the segment.
+	 * <p>
+	 * Since the table may be mutated during traversal,
+	 * the spliterator is concurrent rather than sized:
+	 * it estimates the rows from the sizes of its segments,
+	 * which is exact when no mutation runs. A sized stream
+	 * would fail if a concurrent mutation changed the count.
+	 */
+	private final class SegmentSpliterator implements Spliterator<List<Object>> {
+		private static final int CHARACTERISTICS = DISTINCT | NONNULL | CONCURRENT;
+
+		private int index;
+		private final int fence;
+
+		private Segment segment;
+		private Object[] keys;
+		private Object[][] fields;
+		private int slot;
+
+		private SegmentSpliterator(int origin, int fence) {
+			this.index = origin;
+			this.fence = fence;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super List<Object>> action) {
+			while (segment != null || enter()) {
+				while (slot < keys.length) {
+					Object[] values = read(slot++);
+					if (values != null) {
+						action.accept(view(values));
+						return true;
+					}
+				}
+				segment = null;
+			}
+			return false;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super List<Object>> action) {
+			while (segment != null || enter()) {
+				while (slot < keys.length) {
+					Object[] values = read(slot++);
+					if (values != null)
+						action.accept(view(values));
+				}
+				segment = null;
+			}
+		}
+
+		/**
+		 * Splits off the first half of the segments
+		 * not yet entered.
+		 */
+		@Override
+		public Spliterator<List<Object>> trySplit() {
+			int mid = (index + fence) >>> 1;
+			if (mid <= index)
+				return null;
+
+			Spliterator<List<Object>> prefix = new SegmentSpliterator(index, mid);
+			index = mid;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			long estimate = 0;
+			if (segment != null)
+				for (int i = slot; i < keys.length; i++)
+					if (keys[i] != null && keys[i] != TOMBSTONE)
+						estimate++;
+			for (int s = index; s < fence; s++)
+				estimate += segments[s].estimateSize();
+			return estimate;
+		}
+
+		@Override
+		public int characteristics() {
+			return CHARACTERISTICS;
+		}
+
+		/**
+		 * Enters the next segment, if any, reading its
+		 * arrays with an optimistic read.
+		 *
+		 * @return whether a segment was entered.
+		 */
+		private boolean enter() {
+			if (index >= fence)
+				return false;
+
+			Segment next = segments[index++];
+			long stamp = next.lock.tryOptimisticRead();
+			Object[] ks = next.keys;
+			Object[][] fs = next.fields;
+			if (!next.lock.validate(stamp)) {
+				stamp = next.lock.readLock();
+				try {
+					ks = next.keys;
+					fs = next.fields;
+				}
+				finally {
+					next.lock.unlockRead(stamp);
+				}
+			}
+
+			segment = next;
+			keys = ks;
+			fields = fs;
+			slot = 0;
+			return true;
+		}
+
+		/**
+		 * Returns the fields of the row in the given slot,
+		 * or <code>null</code> if it holds no row.
+		 *
+		 * @param i a slot of the arrays entered.
+		 * @return the fields, if any.
+		 */
+		private Object[] read(int i) {
+			long stamp = segment.lock.tryOptimisticRead();
+			Object key = keys[i];
+			Object[] values = fields[i];
+			if (!segment.lock.validate(stamp)) {
+				stamp = segment.lock.readLock();
+				try {
+					key = keys[i];
+					values = fields[i];
+				}
+				finally {
+					segment.lock.unlockRead(stamp);
+				}
+			}
+			return key != null && key != TOMBSTONE ? values : null;
+		}
+	}
+
+	private Segment segmentFor(int hash) {
+		return segments[(hash * 0x9E3779B9) >>> shift & (segments.length - 1)];
+	}
+
+	private static int threshold(int capacity) {
+		return (int) (capacity * MAX_LOAD_FACTOR);
+	}
+
+	private static int hash(Object key) {
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private static List<Object> view(Object[] values) {
+		return Collections.unmodifiableList(Arrays.asList(values));
+	}
+}
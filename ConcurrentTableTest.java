@@ -0,0 +1,184 @@
+package grade;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import tables.ConcurrentTable;
+
+public class ConcurrentTableTest {
+	private static final List<String> NAMES = List.of("k", "v");
+	private static final List<String> TYPES = List.of("integer", "integer");
+	private static final int STABLE = 1000;
+	private static final int WRITERS = 8;
+	private static final int KEYS = 5000;
+
+	private static ConcurrentTable table(int stable) {
+		ConcurrentTable table = new ConcurrentTable("t", NAMES, TYPES, 0, 16);
+		for (int k = 0; k < stable; k++)
+			table.put(List.of(k, -k));
+		return table;
+	}
+
+	/*
+	 * Counts the keys below STABLE in the given rows, none of
+	 * which any writer touches, so each must appear exactly once.
+	 */
+	private static void assertStableOnce(Iterable<List<Object>> rows) {
+		Map<Object, Integer> seen = new HashMap<>();
+		for (List<Object> row: rows)
+			if ((Integer) row.get(0) < STABLE)
+				seen.merge(row.get(0), 1, Integer::sum);
+		assertEquals(STABLE, seen.size(), "Every untouched row must be read");
+		assertTrue(seen.values().stream().allMatch(n -> n == 1), "No untouched row may be read twice");
+	}
+
+	/*
+	 * Each writer owns a range of keys, so it can check its own
+	 * puts, removes and gets while the others mutate theirs.
+	 */
+	private static void write(ConcurrentTable table, int writer, int rounds) {
+		int base = STABLE + writer * KEYS;
+		for (int round = 0; round < rounds; round++) {
+			for (int k = base; k < base + KEYS; k++)
+				assertEquals(round > 0 && k % 2 == 0, table.put(List.of(k, round)));
+			for (int k = base + 1; k < base + KEYS; k += 2)
+				assertTrue(table.remove(k));
+			for (int k = base; k < base + KEYS; k++)
+				assertEquals(k % 2 == 0 ? List.of(k, round) : null, table.get(k));
+			assertFalse(table.remove(base + 1));
+		}
+	}
+
+	@Test
+	public void concurrentMutationsKeepEveryRow() throws Exception {
+		ConcurrentTable table = table(STABLE);
+		int rounds = 20;
+
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		AtomicBoolean writing = new AtomicBoolean(true);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> writers = new ArrayList<>(), readers = new ArrayList<>();
+
+		for (int w = 0; w < WRITERS; w++) {
+			int writer = w;
+			writers.add(new Thread(() -> {
+				try {
+					start.await();
+					write(table, writer, rounds);
+				}
+				catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			}));
+		}
+		readers.add(new Thread(() -> {
+			try {
+				start.await();
+				while (writing.get() && failure.get() == null)
+					assertStableOnce(table);
+			}
+			catch (Throwable e) {
+				failure.compareAndSet(null, e);
+			}
+		}));
+		readers.add(new Thread(() -> {
+			try {
+				start.await();
+				while (writing.get() && failure.get() == null)
+					assertStableOnce(table.parallelStream().toList());
+			}
+			catch (Throwable e) {
+				failure.compareAndSet(null, e);
+			}
+		}));
+
+		writers.forEach(Thread::start);
+		readers.forEach(Thread::start);
+		start.countDown();
+		for (Thread thread: writers)
+			thread.join();
+		writing.set(false);
+		for (Thread thread: readers)
+			thread.join();
+		if (failure.get() != null)
+			throw new AssertionError(failure.get());
+
+		assertEquals(STABLE + WRITERS * KEYS / 2, table.size());
+		assertEquals(table.size(), table.stream().count());
+		for (int k = 0; k < STABLE + WRITERS * KEYS; k++)
+			assertEquals(k < STABLE ? List.of(k, -k) : k % 2 == 0 ? List.of(k, rounds - 1) : null, table.get(k));
+	}
+
+	@Test
+	public void splitsCoverEveryRowOnce() {
+		ConcurrentTable table = table(10_000);
+		for (int k = 0; k < 10_000; k += 3)
+			table.remove(k);
+
+		Spliterator<List<Object>> root = table.spliterator();
+		assertEquals(table.size(), root.estimateSize());
+		assertTrue(root.hasCharacteristics(Spliterator.CONCURRENT | Spliterator.DISTINCT | Spliterator.NONNULL));
+
+		List<Spliterator<List<Object>>> leaves = new ArrayList<>();
+		List<Spliterator<List<Object>>> pending = new ArrayList<>(List.of(root));
+		while (!pending.isEmpty()) {
+			Spliterator<List<Object>> each = pending.remove(pending.size() - 1);
+			Spliterator<List<Object>> prefix = each.trySplit();
+			if (prefix == null)
+				leaves.add(each);
+			else {
+				pending.add(prefix);
+				pending.add(each);
+			}
+		}
+		assertEquals(table.concurrency(), leaves.size(), "Splits must reach each segment");
+		assertEquals(table.size(), leaves.stream().mapToLong(Spliterator::estimateSize).sum());
+
+		Set<Object> keys = new HashSet<>();
+		for (Spliterator<List<Object>> leaf: leaves) {
+			long estimate = leaf.estimateSize();
+			long[] count = { 0 };
+			Consumer<List<Object>> collect = row -> {
+				assertTrue(keys.add(row.get(0)), "Row read by two splits");
+				count[0]++;
+			};
+			if (leaf.tryAdvance(collect))
+				assertEquals(estimate - 1, leaf.estimateSize());
+			leaf.forEachRemaining(collect);
+			assertEquals(estimate, count[0]);
+			assertEquals(0, leaf.estimateSize());
+		}
+		assertEquals(table.size(), keys.size());
+
+		assertEquals(table.stream().map(row -> row.get(0)).collect(Collectors.toSet()),
+			table.parallelStream().map(row -> row.get(0)).collect(Collectors.toSet()));
+	}
+
+	@Test
+	public void iterationSurvivesRehash() {
+		ConcurrentTable table = table(STABLE);
+		List<List<Object>> rows = new ArrayList<>();
+		Iterator<List<Object>> iterator = table.iterator();
+		for (int k = STABLE; iterator.hasNext(); k++) {
+			rows.add(iterator.next());
+			if (k < STABLE + 50_000)
+				table.put(List.of(k, k));
+		}
+		assertStableOnce(rows);
+	}
+}
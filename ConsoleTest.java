@@ -0,0 +1,55 @@
+package grade;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import apps.Console;
+import apps.Database;
+import drivers.Response;
+import drivers.Status;
+import tables.ColumnarTable;
+import tables.Table;
+
+public class ConsoleTest {
+	@Test
+	public void splitsAtSemicolons() {
+		assertEquals(List.of("ECHO \"a\"", "ECHO \"b\""), Console.split(" ECHO \"a\" ;; ECHO \"b\"; "));
+		assertEquals(List.of(), Console.split(" ; "));
+	}
+
+	@Test
+	public void keepsQuotedSemicolons() throws IOException {
+		List<String> queries = Console.split("ECHO \"a; b\"; ECHO \"c;\"");
+		assertEquals(List.of("ECHO \"a; b\"", "ECHO \"c;\""), queries);
+
+		try (Database db = new Database(false)) {
+			List<Response> responses = db.interpret(queries);
+			assertEquals(Status.SUCCESSFUL, responses.get(0).status());
+			assertEquals("a; b", responses.get(0).message());
+			assertEquals("c;", responses.get(1).message());
+		}
+	}
+
+	@Test
+	public void printsEveryRowAcrossBatches() {
+		Table table = new ColumnarTable("t", List.of("k", "v"), List.of("integer", "string"), 0);
+		for (int k = 0; k < 200; k++)
+			table.put(List.of(k, "v" + k));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		Console.print(table, new PrintStream(bytes, true, UTF_8));
+		List<String> lines = bytes.toString(UTF_8).lines().toList();
+
+		assertEquals("Table:   t [k, v] [integer, string] primary 0", lines.get(0));
+		assertEquals(201, lines.size());
+		for (int k = 0; k < 200; k++)
+			assertEquals("         [%d, v%d]".formatted(k, k), lines.get(k + 1));
+	}
+}
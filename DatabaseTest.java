@@ -0,0 +1,324 @@
+package grade;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import apps.Database;
+import tables.HashArrayTable;
+import tables.MappedTable;
+import tables.OffHeapTable;
+import tables.SearchTable;
+import tables.Table;
+
+public class DatabaseTest {
+	@TempDir
+	Path directory;
+
+	@Test
+	public void persistentCreateRejectsOtherEngines() throws IOException {
+		OffHeapTable offHeap = new OffHeapTable("t", List.of("k", "v"), List.of("string", "integer"), 0);
+		offHeap.put(List.of("a", 1));
+
+		try (
+			Database db = new Database(true, directory, Duration.ZERO, Duration.ofHours(1));
+			MappedTable elsewhere = new MappedTable(directory.resolve("other.table"), "u", List.of("k"), List.of("integer"), 0)
+		) {
+			assertThrows(IllegalArgumentException.class, () -> db.create(offHeap));
+			assertThrows(IllegalArgumentException.class, () -> db.create(new SearchTable("t", List.of("k"), List.of("integer"), 0)));
+			assertThrows(IllegalArgumentException.class, () -> db.create(elsewhere));
+			assertFalse(db.exists("t"));
+			assertFalse(db.exists("u"));
+
+			assertTrue(offHeap.offHeapBytes() > 0, "A rejected table must be left as is");
+			assertEquals(List.of("a", 1), offHeap.get("a"));
+		}
+		finally {
+			offHeap.close();
+		}
+	}
+
+	@Test
+	public void persistentCreateStoresTheGivenTable() throws IOException {
+		try (Database db = new Database(true, directory, Duration.ZERO, Duration.ofHours(1))) {
+			MappedTable table = new MappedTable(directory.resolve("t.table"), "t", List.of("k", "v"), List.of("string", "integer"), 0);
+			table.put(List.of("a", 1));
+
+			assertTrue(db.create(table));
+			assertSame(table, db.find("t"));
+			table.put(List.of("b", 2));
+
+			assertTrue(db.create("u", List.of("k"), List.of("integer"), 0));
+			assertInstanceOf(MappedTable.class, db.find("u"));
+			db.find("u").put(List.of(1));
+			assertFalse(db.create("u", List.of("k"), List.of("integer"), 0));
+			assertEquals(1, db.find("u").size(), "A create of an existing name must not replace its file");
+		}
+
+		try (Database db = new Database(true, directory, Duration.ZERO, Duration.ofHours(1))) {
+			assertEquals(List.of("a", 1), db.find("t").get("a"));
+			assertEquals(List.of("b", 2), db.find("t").get("b"));
+			assertEquals(List.of(1), db.find("u").get(1));
+		}
+	}
+
+	@Test
+	public void volatileCreateUsesHashArrayTable() throws IOException {
+		try (Database db = new Database(false)) {
+			assertTrue(db.create("t", List.of("k"), List.of("integer"), 0));
+			assertInstanceOf(HashArrayTable.class, db.find("t"));
+		}
+	}
+
+	@Test
+	public void checkpointKeepsMutations() throws IOException {
+		try (Database db = new Database(true, directory, Duration.ZERO, Duration.ofHours(1))) {
+			db.create("t", List.of("k", "v"), List.of("string", "integer"), 0);
+			for (int i = 0; i < 100; i++)
+				db.find("t").put(List.of("k" + i, i));
+			db.checkpoint();
+			for (int i = 100; i < 200; i++)
+				db.find("t").put(List.of("k" + i, i));
+			db.find("t").remove("k0");
+		}
+
+		try (Database db = new Database(true, directory, Duration.ZERO, Duration.ofHours(1))) {
+			Table table = db.find("t");
+			assertEquals(199, table.size());
+			assertNull(table.get("k0"));
+			assertEquals(List.of("k199", 199), table.get("k199"));
+		}
+	}
+
+	@Test
+	public void checkpointSkipsDroppedTables() throws Exception {
+		try (Database db = new Database(true, directory, Duration.ZERO, Duration.ofHours(1))) {
+			Thread dropper = Thread.ofPlatform().start(() -> {
+				for (int round = 0; round < 50; round++) {
+					db.create("d", List.of("k"), List.of("integer"), 0);
+					for (int i = 0; i < 20; i++)
+						db.find("d").put(List.of(i));
+					db.drop("d");
+				}
+			});
+			while (dropper.isAlive())
+				db.checkpoint();
+			dropper.join();
+
+			assertFalse(db.exists("d"));
+		}
+	}
+
+	@Test
+	public void catalogKeepsCreationOrder() throws IOException {
+		try (Database db = new Database(false)) {
+			List<Table> created = List.of(table("a"), table("b"), table("c"));
+			for (Table table: created)
+				assertTrue(db.create(table));
+			assertFalse(db.create(table("b")));
+			assertEquals(created, db.tables());
+			assertSame(created.get(1), db.find("b"));
+
+			assertTrue(db.drop("b"));
+			assertFalse(db.drop("b"));
+			assertFalse(db.exists("b"));
+			assertNull(db.find("b"));
+			assertNull(db.find(null));
+			assertEquals(List.of(created.get(0), created.get(2)), db.tables());
+			assertThrows(UnsupportedOperationException.class, () -> db.tables().clear());
+
+			Table recreated = table("b");
+			assertTrue(db.create(recreated));
+			assertEquals(List.of(created.get(0), created.get(2), recreated), db.tables());
+		}
+	}
+
+	@Test
+	public void concurrentCreatesOfOneNameCreateOnce() throws Exception {
+		try (Database db = new Database(false)) {
+			List<Table> candidates = new ArrayList<>();
+			for (int i = 0; i < 8; i++)
+				candidates.add(table("t"));
+
+			CountDownLatch start = new CountDownLatch(1);
+			List<Thread> threads = new ArrayList<>();
+			AtomicInteger created = new AtomicInteger();
+			for (Table candidate: candidates) {
+				threads.add(Thread.ofPlatform().start(() -> {
+					try {
+						start.await();
+					}
+					catch (InterruptedException e) {
+						return;
+					}
+					if (db.create(candidate))
+						created.incrementAndGet();
+				}));
+			}
+			start.countDown();
+			for (Thread thread: threads)
+				thread.join();
+
+			assertEquals(1, created.get());
+			assertEquals(1, db.tables().size());
+			assertTrue(candidates.contains(db.find("t")));
+		}
+	}
+
+	private static Table table(String tableName) {
+		return new HashArrayTable(tableName, List.of("k"), List.of("integer"), 0);
+	}
+
+	@Test
+	public void replayRecoversMutationsMissingFromTableFile() throws IOException {
+		Path crashed = directory.resolve("crashed");
+		Files.createDirectories(crashed);
+
+		try (Database db = new Database(true, directory, Duration.ZERO, Duration.ofHours(1))) {
+			db.create("t", List.of("k", "v"), List.of("string", "integer"), 0);
+
+			// The table file as forced on create, before any later put reaches it.
+			Files.copy(directory.resolve("t.table"), crashed.resolve("t.table"));
+
+			Table table = db.find("t");
+			for (int i = 0; i < 100; i++)
+				table.put(List.of("k" + i, i));
+			table.put(List.of("k1", -1));
+			table.remove("k2");
+
+			// The log as it stands once every put has returned.
+			Files.copy(directory.resolve("wal.log"), crashed.resolve("wal.log"));
+		}
+
+		try (Database db = new Database(true, crashed, Duration.ZERO, Duration.ofHours(1))) {
+			Table table = db.find("t");
+			assertEquals(99, table.size());
+			assertEquals(List.of("k1", -1), table.get("k1"));
+			assertNull(table.get("k2"));
+			assertEquals(List.of("k99", 99), table.get("k99"));
+		}
+	}
+
+	@Test
+	public void droppedTableStaysDroppedAfterReplay() throws IOException {
+		Path beforeDelete = directory.resolve("before"), afterDrop = directory.resolve("after"), recreated = directory.resolve("recreated");
+		for (Path path: List.of(beforeDelete, afterDrop, recreated))
+			Files.createDirectories(path);
+
+		try (Database db = new Database(true, directory, Duration.ZERO, Duration.ofHours(1))) {
+			db.create("t", List.of("k", "v"), List.of("string", "integer"), 0);
+			Table table = db.find("t");
+			for (int i = 0; i < 10; i++)
+				table.put(List.of("k" + i, i));
+			((MappedTable) table).force();
+			Files.copy(directory.resolve("t.table"), beforeDelete.resolve("t.table"));
+
+			assertTrue(db.drop("t"));
+			assertFalse(Files.exists(directory.resolve("t.table")));
+
+			// A crash just before the file is deleted, or just after.
+			Files.copy(directory.resolve("wal.log"), beforeDelete.resolve("wal.log"));
+			Files.copy(directory.resolve("wal.log"), afterDrop.resolve("wal.log"));
+
+			db.create("t", List.of("k", "v"), List.of("string", "integer"), 0);
+			db.find("t").put(List.of("new", 1));
+			Files.copy(directory.resolve("t.table"), recreated.resolve("t.table"));
+			Files.copy(directory.resolve("wal.log"), recreated.resolve("wal.log"));
+		}
+
+		try (Database db = new Database(true, beforeDelete, Duration.ZERO, Duration.ofHours(1))) {
+			assertEquals(10, db.find("t").size(), "A drop that never deleted the file must leave the table as it was");
+		}
+		try (Database db = new Database(true, afterDrop, Duration.ZERO, Duration.ofHours(1))) {
+			assertFalse(db.exists("t"));
+		}
+		try (Database db = new Database(true, recreated, Duration.ZERO, Duration.ofHours(1))) {
+			Table table = db.find("t");
+			assertEquals(1, table.size());
+			assertEquals(List.of("new", 1), table.get("new"));
+		}
+	}
+
+	/*
+	 * A table whose compaction fails while asked to.
+	 */
+	private static class FailingTable extends MappedTable {
+		private final AtomicBoolean failing = new AtomicBoolean(true);
+
+		private FailingTable(Path path) throws IOException {
+			super(path, "t", List.of("k"), List.of("integer"), 0);
+		}
+
+		@Override
+		public synchronized void compact() {
+			if (failing.get())
+				throw new IllegalStateException("Disk full");
+			super.compact();
+		}
+	}
+
+	private static void awaitFailure(Database db, boolean failed) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+		while ((db.lastCheckpointFailure() != null) != failed) {
+			assertTrue(System.nanoTime() < deadline, "The background checkpoint must run");
+			Thread.sleep(5);
+		}
+	}
+
+	@Test
+	public void checkpointFailuresAreKeptUntilOneSucceeds() throws Exception {
+		try (Database db = new Database(true, directory, Duration.ZERO, Duration.ofMillis(10))) {
+			FailingTable table = new FailingTable(directory.resolve("t.table"));
+			assertTrue(db.create(table));
+			assertNull(db.lastCheckpointFailure());
+
+			table.put(List.of(1));
+			awaitFailure(db, true);
+			assertEquals("Disk full", db.lastCheckpointFailure().getMessage());
+
+			table.failing.set(false);
+			awaitFailure(db, false);
+
+			table.failing.set(true);
+			table.put(List.of(2));
+			assertThrows(IllegalStateException.class, db::checkpoint);
+			assertInstanceOf(IllegalStateException.class, db.lastCheckpointFailure(), "An explicit checkpoint must be kept too");
+
+			table.failing.set(false);
+			db.checkpoint();
+			assertNull(db.lastCheckpointFailure());
+		}
+
+		try (Database db = new Database(false)) {
+			db.checkpoint();
+			assertNull(db.lastCheckpointFailure());
+		}
+	}
+
+	@Test
+	public void closeThrowsFailedCheckpointAfterClosing() throws IOException {
+		Database db = new Database(true, directory, Duration.ZERO, Duration.ofHours(1));
+		FailingTable table = new FailingTable(directory.resolve("t.table"));
+		assertTrue(db.create(table));
+		table.put(List.of(1));
+		table.put(List.of(2));
+
+		assertThrows(IllegalStateException.class, db::close);
+		assertFalse(table.isOpen(), "A failed checkpoint must not leave the tables open");
+
+		try (Database reopened = new Database(true, directory, Duration.ZERO, Duration.ofHours(1))) {
+			assertEquals(2, reopened.find("t").size(), "The log must keep what the checkpoint missed");
+		}
+	}
+}
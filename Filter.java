@@ -0,0 +1,93 @@
+package tables;
+
+import java.util.List;
+
+/**
+ * Defines the protocols for a filter, which
+ * is a predicate over the rows of a table,
+ * combining equality tests of columns.
+ * <p>
+ * A filter is answered by {@link Table#where(Filter)},
+ * with word-wide operations over bitmaps if each
+ * column it tests has a bitmap index.
+ */
+public sealed interface Filter {
+	/**
+	 * Implements a filter of the rows whose field in
+	 * the column with the given name equals the given
+	 * value, which may be <code>null</code>.
+	 *
+	 * @param columnName a column name.
+	 * @param value a value.
+	 */
+	record Equals(String columnName, Object value) implements Filter {}
+
+	/**
+	 * Implements a filter of the rows
+	 * that pass every given filter.
+	 *
+	 * @param filters the filters.
+	 */
+	record And(List<Filter> filters) implements Filter {}
+
+	/**
+	 * Implements a filter of the rows
+	 * that pass any given filter.
+	 *
+	 * @param filters the filters.
+	 */
+	record Or(List<Filter> filters) implements Filter {}
+
+	/**
+	 * Implements a filter of the rows
+	 * that fail the given filter.
+	 *
+	 * @param filter a filter.
+	 */
+	record Not(Filter filter) implements Filter {}
+
+	/**
+	 * Returns a filter of the rows whose field
+	 * in the given column equals the given value.
+	 *
+	 * @param columnName a column name.
+	 * @param value a value.
+	 * @return the filter.
+	 */
+	static Filter eq(String columnName, Object value) {
+		return new Equals(columnName, value);
+	}
+
+	/**
+	 * Returns a filter of the rows
+	 * that pass every given filter.
+	 *
+	 * @param filters the filters.
+	 * @return the filter.
+	 */
+	static Filter and(Filter... filters) {
+		return new And(List.of(filters));
+	}
+
+	/**
+	 * Returns a filter of the rows
+	 * that pass any given filter.
+	 *
+	 * @param filters the filters.
+	 * @return the filter.
+	 */
+	static Filter or(Filter... filters) {
+		return new Or(List.of(filters));
+	}
+
+	/**
+	 * Returns a filter of the rows
+	 * that fail the given filter.
+	 *
+	 * @param filter a filter.
+	 * @return the filter.
+	 */
+	static Filter not(Filter filter) {
+		return new Not(filter);
+	}
+}
@@ -0,0 +1,85 @@
+package tables;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+
+/**
+ * Implements a read-only table holding
+ * a copy of the state of another table.
+ * <p>
+ * This is the snapshot returned by the default
+ * {@link Table#snapshot()}. Each mutation throws an
+ * {@link UnsupportedOperationException}.
+ */
+final class FrozenTable extends Table {
+	private final HashArrayTable state;
+
+	/**
+	 * Creates a table with the schema of the given
+	 * table and a copy of the given rows.
+	 *
+	 * @param table the table.
+	 * @param rows the rows.
+	 */
+	FrozenTable(Table table, Iterable<List<Object>> rows) {
+		setTableName(table.getTableName());
+		setColumnNames(table.getColumnNames());
+		setColumnTypes(table.getColumnTypes());
+		setPrimaryIndex(table.getPrimaryIndex());
+
+		state = new HashArrayTable(tableName, columnNames, columnTypes, primaryIndex);
+		for (List<Object> row: rows)
+			state.put(row);
+	}
+
+	@Override
+	public void clear() {
+		throw new UnsupportedOperationException("Table <%s> is a snapshot".formatted(tableName));
+	}
+
+	@Override
+	public boolean put(List<Object> row) {
+		throw new UnsupportedOperationException("Table <%s> is a snapshot".formatted(tableName));
+	}
+
+	@Override
+	public boolean remove(Object key) {
+		throw new UnsupportedOperationException("Table <%s> is a snapshot".formatted(tableName));
+	}
+
+	@Override
+	public List<Object> get(Object key) {
+		return state.get(key);
+	}
+
+	@Override
+	public int size() {
+		return state.size();
+	}
+
+	@Override
+	public int capacity() {
+		return state.capacity();
+	}
+
+	@Override
+	protected int stateHash() {
+		return state.stateHash();
+	}
+
+	@Override
+	public Iterator<List<Object>> iterator() {
+		return state.iterator();
+	}
+
+	@Override
+	public Spliterator<List<Object>> spliterator() {
+		return state.spliterator();
+	}
+
+	@Override
+	public Table snapshot() {
+		return this;
+	}
+}
@@ -1,18 +1,76 @@
 package tables;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
 
 /**
  * Implements a hash-based table
  * using an array data structure.
+ * <p>
+ * The state is kept in parallel arrays indexed by slot:
+ * the cached hash of each key, the key itself, and the
+ * fields of its row. Collisions are resolved by one of
+ * the {@link Probing} strategies: plain linear probing by
+ * default, or Robin Hood probing for tables meant to run
+ * at a high load factor.
+ * <p>
+ * Resizing is incremental. When the arrays fill up, larger
+ * arrays are allocated and the old ones are retired; each
+ * later mutation then migrates a few slots from the retired
+ * arrays, so no single call rehashes the whole table.
  */
 public class HashArrayTable extends Table {
-	/*
-	 * TODO: For Module 1, implement the stubs.
-	 *
-	 * Until then, this class is unused.
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+	private static final double DEFAULT_LOAD_FACTOR = 0.75;
+	private static final int MIGRATION_STEP = 16;
+	private static final Object TOMBSTONE = new Object();
+
+	/**
+	 * Defines the strategies for resolving collisions.
 	 */
+	public enum Probing {
+		/**
+		 * Scans forward from the home slot of a key.
+		 * A removed slot is marked with a tombstone
+		 * until the next resize reclaims it.
+		 */
+		LINEAR,
+
+		/**
+		 * Scans forward like linear probing, but an inserted
+		 * row takes the slot of any row that is closer to its
+		 * own home slot, which keeps probe lengths short and
+		 * uniform even at a high load factor. Lookups stop as
+		 * soon as they pass a row closer to home than the key
+		 * would be, and removals shift the following rows back
+		 * instead of leaving tombstones.
+		 */
+		ROBIN_HOOD
+	}
+
+	private final Probing probing;
+	private final double maxLoadFactor;
+
+	private int[] hashes;
+	private Object[] keys;
+	private Object[][] fields;
+	private int size;
+	private int used;
+	private int tombstones;
+	private int stateHash;
+
+	private int[] oldHashes;
+	private Object[] oldKeys;
+	private Object[][] oldFields;
+	private int migrated;
+
+	private int modCount;
 
 	/**
 	 * Creates a table and initializes
@@ -24,41 +82,673 @@ public class HashArrayTable extends Table {
 	 * @param primaryIndex the primary index
 	 */
 	public HashArrayTable(String tableName, List<String> columnNames, List<String> columnTypes, Integer primaryIndex) {
-		throw new UnsupportedOperationException("Hash array table creation is unimplemented");
+		this(tableName, columnNames, columnTypes, primaryIndex, Probing.LINEAR, DEFAULT_LOAD_FACTOR);
+	}
+
+	/**
+	 * Creates a table and initializes the data structure
+	 * with the given probing strategy and the given maximum
+	 * load factor, which is the fraction of the slots that
+	 * can be used before the arrays are resized.
+	 *
+	 * @param tableName the table name
+	 * @param columnNames the column names
+	 * @param columnTypes the column types
+	 * @param primaryIndex the primary index
+	 * @param probing the probing strategy
+	 * @param maxLoadFactor the maximum load factor, between 0 and 1
+	 */
+	public HashArrayTable(String tableName, List<String> columnNames, List<String> columnTypes, Integer primaryIndex, Probing probing, double maxLoadFactor) {
+		if (!(maxLoadFactor > 0 && maxLoadFactor < 1))
+			throw new IllegalArgumentException("Maximum load factor must be between 0 and 1");
+
+		this.probing = probing;
+		this.maxLoadFactor = maxLoadFactor;
+
+		this.tableName = tableName;
+		this.columnNames = List.copyOf(columnNames);
+		this.columnTypes = List.copyOf(columnTypes);
+		this.primaryIndex = primaryIndex;
+
+		allocate(INITIAL_CAPACITY);
 	}
 
 	@Override
 	public void clear() {
+		allocate(INITIAL_CAPACITY);
+		size = 0;
+		stateHash = 0;
+		modCount++;
 
+		fireClear();
 	}
 
 	@Override
 	public boolean put(List<Object> row) {
+		Object[] values = row.toArray();
+		Object key = values[primaryIndex];
+		int hash = hash(key);
+
+		migrate();
+		modCount++;
+
+		TableMetrics m = metrics();
+
+		int i = find(hashes, keys, hash, key);
+		if (i >= 0) {
+			Object[] replaced = fields[i];
+			fields[i] = values;
+			stateHash += rowHash(values) - rowHash(replaced);
+
+			if (m != null) {
+				m.put(true);
+				m.probe(distance(hashes, i) + 1);
+			}
+
+			if (observed())
+				firePut(view(replaced), view(values));
+			return true;
+		}
+
+		if (oldKeys != null) {
+			int j = find(oldHashes, oldKeys, hash, key);
+			if (j >= 0) {
+				if (m != null) {
+					m.put(true);
+					m.probe(distance(oldHashes, j) + 1);
+				}
+
+				Object[] replaced = oldFields[j];
+				retire(j);
+				insert(hash, key, values);
+				stateHash += rowHash(values) - rowHash(replaced);
+
+				if (observed())
+					firePut(view(replaced), view(values));
+				return true;
+			}
+		}
+
+		if (m != null)
+			m.put(false);
+
+		if (used + 1 > threshold(hashes.length))
+			grow();
+
+		insert(hash, key, values);
+		size++;
+		stateHash += rowHash(values);
+
+		if (observed())
+			firePut(null, view(values));
 		return false;
 	}
 
+	/**
+	 * Rehashes every row into arrays large enough that
+	 * the given number of rows stays within the maximum
+	 * load factor, finishing any migration, unless the
+	 * current arrays are already large enough.
+	 *
+	 * @param rows the total number of rows.
+	 */
+	@Override
+	protected void ensureCapacity(int rows) {
+		int capacity = hashes.length;
+		while (rows > threshold(capacity) && capacity < MAXIMUM_CAPACITY)
+			capacity *= 2;
+		if (capacity == hashes.length)
+			return;
+
+		long start = System.nanoTime();
+		int[] currentHashes = hashes;
+		Object[] currentKeys = keys;
+		Object[][] currentFields = fields;
+		int[] retiredHashes = oldHashes;
+		Object[] retiredKeys = oldKeys;
+		Object[][] retiredFields = oldFields;
+		int from = migrated;
+
+		allocate(capacity);
+		if (retiredKeys != null)
+			for (int i = from; i < retiredKeys.length; i++)
+				if (retiredKeys[i] != null && retiredKeys[i] != TOMBSTONE)
+					insert(retiredHashes[i], retiredKeys[i], retiredFields[i]);
+		for (int i = 0; i < currentKeys.length; i++)
+			if (currentKeys[i] != null && currentKeys[i] != TOMBSTONE)
+				insert(currentHashes[i], currentKeys[i], currentFields[i]);
+		modCount++;
+
+		TableMetrics m = metrics();
+		if (m != null)
+			m.resize(System.nanoTime() - start);
+	}
+
+	/**
+	 * Creates the given row without looking up its key,
+	 * in either the current or the retired arrays.
+	 *
+	 * @param row a row with a new key.
+	 */
+	@Override
+	protected void putUnique(List<Object> row) {
+		Object[] values = row.toArray();
+		Object key = values[primaryIndex];
+		int hash = hash(key);
+
+		migrate();
+		modCount++;
+
+		TableMetrics m = metrics();
+		if (m != null)
+			m.put(false);
+
+		if (used + 1 > threshold(hashes.length))
+			grow();
+
+		insert(hash, key, values);
+		size++;
+		stateHash += rowHash(values);
+
+		if (observed())
+			firePut(null, view(values));
+	}
+
 	@Override
 	public boolean remove(Object key) {
+		int hash = hash(key);
+
+		migrate();
+
+		TableMetrics m = metrics();
+
+		int i = find(hashes, keys, hash, key);
+		if (i >= 0) {
+			if (m != null) {
+				m.remove(true);
+				m.probe(distance(hashes, i) + 1);
+			}
+
+			Object[] removed = fields[i];
+			if (probing == Probing.ROBIN_HOOD)
+				shiftBack(i);
+			else {
+				keys[i] = TOMBSTONE;
+				fields[i] = null;
+				tombstones++;
+			}
+			size--;
+			stateHash -= rowHash(removed);
+			modCount++;
+
+			if (observed())
+				fireRemove(view(removed));
+			return true;
+		}
+
+		if (oldKeys != null) {
+			int j = find(oldHashes, oldKeys, hash, key);
+			if (j >= 0) {
+				if (m != null) {
+					m.remove(true);
+					m.probe(distance(oldHashes, j) + 1);
+				}
+
+				Object[] removed = oldFields[j];
+				retire(j);
+				size--;
+				stateHash -= rowHash(removed);
+				modCount++;
+
+				if (observed())
+					fireRemove(view(removed));
+				return true;
+			}
+		}
+
+		if (m != null)
+			m.remove(false);
 		return false;
 	}
 
 	@Override
 	public List<Object> get(Object key) {
+		int hash = hash(key);
+
+		TableMetrics m = metrics();
+
+		int i = find(hashes, keys, hash, key);
+		if (i >= 0) {
+			if (m != null) {
+				m.get(true);
+				m.probe(distance(hashes, i) + 1);
+			}
+			return view(fields[i]);
+		}
+
+		if (oldKeys != null) {
+			int j = find(oldHashes, oldKeys, hash, key);
+			if (j >= 0) {
+				if (m != null) {
+					m.get(true);
+					m.probe(distance(oldHashes, j) + 1);
+				}
+				return view(oldFields[j]);
+			}
+		}
+
+		if (m != null)
+			m.get(false);
 		return null;
 	}
 
+	@Override
+	protected int stateHash() {
+		return stateHash;
+	}
+
 	@Override
 	public int size() {
-		return 0;
+		return size;
 	}
 
 	@Override
 	public int capacity() {
-		return 0;
+		return hashes.length;
+	}
+
+	@Override
+	protected int tombstones() {
+		return tombstones;
+	}
+
+	/**
+	 * Returns the maximum probe length of the rows in
+	 * the state, which is the number of slots a lookup
+	 * examines to find the row farthest from its home slot.
+	 * <p>
+	 * This statistic scans every slot.
+	 *
+	 * @return the maximum probe length.
+	 */
+	public int maxProbeLength() {
+		int max = 0;
+		if (oldKeys != null)
+			for (int i = migrated; i < oldKeys.length; i++)
+				if (oldKeys[i] != null && oldKeys[i] != TOMBSTONE)
+					max = Math.max(max, distance(oldHashes, i) + 1);
+		for (int i = 0; i < keys.length; i++)
+			if (keys[i] != null && keys[i] != TOMBSTONE)
+				max = Math.max(max, distance(hashes, i) + 1);
+		return max;
+	}
+
+	/**
+	 * Returns the mean probe length of the rows in
+	 * the state, which is the average number of slots
+	 * a lookup examines to find a row that is present.
+	 * <p>
+	 * This statistic scans every slot.
+	 *
+	 * @return the mean probe length.
+	 */
+	public double meanProbeLength() {
+		if (size == 0)
+			return 0;
+
+		long sum = 0;
+		if (oldKeys != null)
+			for (int i = migrated; i < oldKeys.length; i++)
+				if (oldKeys[i] != null && oldKeys[i] != TOMBSTONE)
+					sum += distance(oldHashes, i) + 1;
+		for (int i = 0; i < keys.length; i++)
+			if (keys[i] != null && keys[i] != TOMBSTONE)
+				sum += distance(hashes, i) + 1;
+		return (double) sum / size;
+	}
+
+	/**
+	 * Returns the probing strategy of this table.
+	 *
+	 * @return the probing strategy.
+	 */
+	public Probing probing() {
+		return probing;
 	}
 
 	@Override
 	public Iterator<List<Object>> iterator() {
-		return null;
+		return new Iterator<>() {
+			private final int expectedModCount = modCount;
+			private Object[] currentKeys = oldKeys != null ? oldKeys : keys;
+			private Object[][] currentFields = oldKeys != null ? oldFields : fields;
+			private int index = oldKeys != null ? migrated : 0;
+
+			@Override
+			public boolean hasNext() {
+				if (modCount != expectedModCount)
+					throw new ConcurrentModificationException();
+
+				while (true) {
+					while (index < currentKeys.length) {
+						Object key = currentKeys[index];
+						if (key != null && key != TOMBSTONE)
+							return true;
+						index++;
+					}
+
+					if (currentKeys == keys)
+						return false;
+
+					currentKeys = keys;
+					currentFields = fields;
+					index = 0;
+				}
+			}
+
+			@Override
+			public List<Object> next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+
+				return view(currentFields[index++]);
+			}
+		};
+	}
+
+	/**
+	 * Returns a spliterator over the slots of the retired
+	 * arrays, if any, followed by those of the current ones.
+	 * <p>
+	 * It is sized until split, after which each split
+	 * estimates its size; see {@link SlotSpliterator}.
+	 *
+	 * @return a spliterator of rows.
+	 */
+	@Override
+	public Spliterator<List<Object>> spliterator() {
+		Object[] retiredKeys = oldKeys != null ? oldKeys : new Object[0];
+		Object[][] retiredFields = oldFields;
+		Object[] currentKeys = keys;
+		Object[][] currentFields = fields;
+		int retired = retiredKeys.length;
+
+		return new SlotSpliterator(new SlotSpliterator.Source() {
+			@Override
+			public boolean occupied(int slot) {
+				Object key = slot < retired ? retiredKeys[slot] : currentKeys[slot - retired];
+				return key != null && key != TOMBSTONE;
+			}
+
+			@Override
+			public List<Object> row(int slot) {
+				return view(slot < retired ? retiredFields[slot] : currentFields[slot - retired]);
+			}
+
+			@Override
+			public int modCount() {
+				return modCount;
+			}
+		}, oldKeys != null ? migrated : 0, retired + currentKeys.length, size, false);
+	}
+
+	/**
+	 * Replaces the arrays with empty arrays of the given
+	 * capacity, discarding any arrays being retired.
+	 *
+	 * @param capacity a power of two.
+	 */
+	private void allocate(int capacity) {
+		hashes = new int[capacity];
+		keys = new Object[capacity];
+		fields = new Object[capacity][];
+		used = 0;
+		tombstones = 0;
+
+		oldHashes = null;
+		oldKeys = null;
+		oldFields = null;
+		migrated = 0;
+	}
+
+	/**
+	 * Retires the current arrays and allocates new ones,
+	 * doubled until the live rows fill at most half of
+	 * the threshold, so the migration always finishes
+	 * long before the new arrays fill up in turn, but
+	 * never past the maximum capacity.
+	 * <p>
+	 * If a previous migration is somehow unfinished,
+	 * it is completed first.
+	 *
+	 * @throws IllegalStateException if another row would
+	 * 		exceed the threshold of the maximum capacity.
+	 */
+	private void grow() {
+		long start = System.nanoTime();
+		while (oldKeys != null)
+			migrate();
+
+		int live = used - tombstones;
+		int capacity = hashes.length;
+		while (live > threshold(capacity) / 2 && capacity < MAXIMUM_CAPACITY)
+			capacity *= 2;
+		if (live + 1 > threshold(capacity))
+			throw new IllegalStateException("Table <%s> exceeds the maximum capacity of %d rows".formatted(tableName, threshold(capacity)));
+
+		oldHashes = hashes;
+		oldKeys = keys;
+		oldFields = fields;
+
+		hashes = new int[capacity];
+		keys = new Object[capacity];
+		fields = new Object[capacity][];
+		used = 0;
+		tombstones = 0;
+		migrated = 0;
+
+		TableMetrics m = metrics();
+		if (m != null)
+			m.resize(System.nanoTime() - start);
+	}
+
+	/**
+	 * Moves the next few live slots from the retired
+	 * arrays into the current arrays, then discards
+	 * the retired arrays once all slots are moved.
+	 * <p>
+	 * Moved slots become tombstones in the retired
+	 * arrays, so the probe sequences of the slots
+	 * not yet moved remain unbroken.
+	 */
+	private void migrate() {
+		if (oldKeys == null)
+			return;
+
+		int end = Math.min(migrated + MIGRATION_STEP, oldKeys.length);
+		for (; migrated < end; migrated++) {
+			Object key = oldKeys[migrated];
+			if (key != null && key != TOMBSTONE) {
+				insert(oldHashes[migrated], key, oldFields[migrated]);
+				retire(migrated);
+			}
+		}
+
+		if (migrated == oldKeys.length) {
+			oldHashes = null;
+			oldKeys = null;
+			oldFields = null;
+			migrated = 0;
+		}
+	}
+
+	/**
+	 * Marks the given slot of the retired arrays
+	 * with a tombstone.
+	 * <p>
+	 * The cached hash is kept, so Robin Hood lookups
+	 * still measure the correct distance at the slot.
+	 *
+	 * @param slot a slot of the retired arrays.
+	 */
+	private void retire(int slot) {
+		oldKeys[slot] = TOMBSTONE;
+		oldFields[slot] = null;
+	}
+
+	/**
+	 * Places a row known to be absent into the current
+	 * arrays according to the probing strategy.
+	 *
+	 * @param hash the cached hash of the key.
+	 * @param key the key.
+	 * @param values the fields of the row.
+	 */
+	private void insert(int hash, Object key, Object[] values) {
+		if (probing == Probing.ROBIN_HOOD)
+			insertRobinHood(hash, key, values);
+		else
+			insertLinear(hash, key, values);
+	}
+
+	/**
+	 * Places a row known to be absent into the current
+	 * arrays, reusing the first tombstone on its probe
+	 * sequence if there is one.
+	 *
+	 * @param hash the cached hash of the key.
+	 * @param key the key.
+	 * @param values the fields of the row.
+	 */
+	private void insertLinear(int hash, Object key, Object[] values) {
+		int mask = keys.length - 1;
+		int i = hash & mask;
+		while (keys[i] != null && keys[i] != TOMBSTONE)
+			i = (i + 1) & mask;
+
+		if (keys[i] == TOMBSTONE)
+			tombstones--;
+		else
+			used++;
+
+		hashes[i] = hash;
+		keys[i] = key;
+		fields[i] = values;
+	}
+
+	/**
+	 * Places a row known to be absent into the current
+	 * arrays, displacing each row on its probe sequence
+	 * that is closer to its home slot than the carried row,
+	 * and carrying the displaced row onward in its place.
+	 *
+	 * @param hash the cached hash of the key.
+	 * @param key the key.
+	 * @param values the fields of the row.
+	 */
+	private void insertRobinHood(int hash, Object key, Object[] values) {
+		int mask = keys.length - 1;
+		for (int i = hash & mask, d = 0; ; i = (i + 1) & mask, d++) {
+			if (keys[i] == null) {
+				hashes[i] = hash;
+				keys[i] = key;
+				fields[i] = values;
+				used++;
+				return;
+			}
+
+			int di = distance(hashes, i);
+			if (di < d) {
+				int h = hashes[i];
+				Object k = keys[i];
+				Object[] v = fields[i];
+
+				hashes[i] = hash;
+				keys[i] = key;
+				fields[i] = values;
+
+				hash = h;
+				key = k;
+				values = v;
+				d = di;
+			}
+		}
+	}
+
+	/**
+	 * Empties the given slot of the current arrays by
+	 * shifting each following row back by one slot, until
+	 * reaching an empty slot or a row at its home slot.
+	 *
+	 * @param slot a slot of the current arrays.
+	 */
+	private void shiftBack(int slot) {
+		int mask = keys.length - 1;
+		int i = slot;
+		for (int j = (i + 1) & mask; keys[j] != null && distance(hashes, j) > 0; i = j, j = (j + 1) & mask) {
+			hashes[i] = hashes[j];
+			keys[i] = keys[j];
+			fields[i] = fields[j];
+		}
+
+		hashes[i] = 0;
+		keys[i] = null;
+		fields[i] = null;
+		used--;
+	}
+
+	/**
+	 * Returns the slot of the given key in the given
+	 * arrays, or <code>-1</code> if it is absent.
+	 * <p>
+	 * With Robin Hood probing, the search stops early
+	 * at the first slot closer to its home slot than
+	 * the key would be at that slot.
+	 *
+	 * @param hashes the cached hashes.
+	 * @param keys the keys.
+	 * @param hash the cached hash of the key.
+	 * @param key the key.
+	 * @return the slot of the key, if any.
+	 */
+	private int find(int[] hashes, Object[] keys, int hash, Object key) {
+		boolean robinHood = probing == Probing.ROBIN_HOOD;
+		int mask = keys.length - 1;
+		for (int i = hash & mask, d = 0; d < keys.length; i = (i + 1) & mask, d++) {
+			Object k = keys[i];
+			if (k == null)
+				return -1;
+			if (robinHood && distance(hashes, i) < d)
+				return -1;
+			if (k != TOMBSTONE && hashes[i] == hash && k.equals(key))
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the distance of the given slot
+	 * from the home slot of its cached hash.
+	 *
+	 * @param hashes the cached hashes.
+	 * @param slot a slot.
+	 * @return the distance.
+	 */
+	private static int distance(int[] hashes, int slot) {
+		int mask = hashes.length - 1;
+		return (slot - (hashes[slot] & mask)) & mask;
+	}
+
+	private int threshold(int capacity) {
+		return (int) (capacity * maxLoadFactor);
+	}
+
+	private static int hash(Object key) {
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private static List<Object> view(Object[] values) {
+		return Collections.unmodifiableList(Arrays.asList(values));
 	}
 }
@@ -0,0 +1,130 @@
+package tables;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Implements a secondary index, which maps
+ * each value of a column to the keys of the
+ * rows that have it.
+ * <p>
+ * A hash index answers equality lookups, and a
+ * sorted index also answers range lookups, with
+ * values ordered by {@link Table#compareKeys} and
+ * <code>null</code> first. The index is a listener
+ * of its table, so it stays in sync with every
+ * mutation, and it is safe for concurrent mutations.
+ */
+final class Index implements TableListener {
+	private final int column;
+	private final boolean sorted;
+	private final Map<Object, Set<Object>> postings;
+
+	/**
+	 * Creates an empty index of the given column.
+	 *
+	 * @param column the index of the column.
+	 * @param sorted whether the index is sorted.
+	 */
+	Index(int column, boolean sorted) {
+		this.column = column;
+		this.sorted = sorted;
+		this.postings = sorted
+			? new TreeMap<>(Comparator.nullsFirst(Table::compareKeys))
+			: new HashMap<>();
+	}
+
+	/**
+	 * Returns the index of the column.
+	 *
+	 * @return the index of the column.
+	 */
+	int column() {
+		return column;
+	}
+
+	/**
+	 * Returns whether the index is sorted.
+	 *
+	 * @return whether the index is sorted.
+	 */
+	boolean sorted() {
+		return sorted;
+	}
+
+	/**
+	 * Returns a copy of the keys of the
+	 * rows with the given value.
+	 *
+	 * @param value a value.
+	 * @return the keys.
+	 */
+	synchronized List<Object> keys(Object value) {
+		Set<Object> keys = postings.get(value);
+		return keys != null ? new ArrayList<>(keys) : List.of();
+	}
+
+	/**
+	 * Returns a copy of the keys of the rows with a
+	 * value at least the given lower bound and less
+	 * than the given upper bound, in value order.
+	 * The index must be sorted.
+	 *
+	 * @param lo the lower bound, inclusive.
+	 * @param hi the upper bound, exclusive.
+	 * @return the keys.
+	 */
+	synchronized List<Object> keys(Object lo, Object hi) {
+		List<Object> keys = new ArrayList<>();
+		if (Table.compareKeys(lo, hi) < 0)
+			for (Set<Object> each: ((NavigableMap<Object, Set<Object>>) postings).subMap(lo, true, hi, false).values())
+				keys.addAll(each);
+		return keys;
+	}
+
+	/**
+	 * Adds the key of each of the given rows.
+	 *
+	 * @param rows the rows.
+	 * @param primaryIndex the index of the primary column.
+	 */
+	synchronized void build(Iterable<List<Object>> rows, int primaryIndex) {
+		for (List<Object> row: rows)
+			add(row.get(column), row.get(primaryIndex));
+	}
+
+	@Override
+	public synchronized void onPut(Table table, List<Object> oldRow, List<Object> newRow) {
+		Object key = newRow.get(table.getPrimaryIndex());
+		if (oldRow != null)
+			delete(oldRow.get(column), key);
+		add(newRow.get(column), key);
+	}
+
+	@Override
+	public synchronized void onRemove(Table table, List<Object> oldRow) {
+		delete(oldRow.get(column), oldRow.get(table.getPrimaryIndex()));
+	}
+
+	@Override
+	public synchronized void onClear(Table table) {
+		postings.clear();
+	}
+
+	private void add(Object value, Object key) {
+		postings.computeIfAbsent(value, v -> new HashSet<>()).add(key);
+	}
+
+	private void delete(Object value, Object key) {
+		Set<Object> keys = postings.get(value);
+		if (keys != null && keys.remove(key) && keys.isEmpty())
+			postings.remove(value);
+	}
+}
@@ -0,0 +1,172 @@
+package grade;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import tables.HashArrayTable;
+import tables.Table;
+
+public class IndexTest {
+	private static final List<String> NAMES = List.of("k", "v", "s");
+	private static final List<String> TYPES = List.of("integer", "integer", "string");
+
+	private static List<Object> row(Object... fields) {
+		return Arrays.asList(fields);
+	}
+
+	private static Set<Object> keys(Iterable<List<Object>> rows) {
+		Set<Object> keys = new HashSet<>();
+		for (List<Object> row: rows)
+			assertTrue(keys.add(row.get(0)), "Duplicate row " + row);
+		return keys;
+	}
+
+	private static Set<Object> scan(Table table, int column, Object value) {
+		Set<Object> keys = new HashSet<>();
+		for (List<Object> row: table)
+			if (Objects.equals(row.get(column), value))
+				keys.add(row.get(0));
+		return keys;
+	}
+
+	private static void assertConsistent(Table table) {
+		for (int v = -1; v < 12; v++) {
+			Object value = v < 0 ? null : v;
+			assertEquals(scan(table, 1, value), keys(table.lookup("v", value).toList()), "v = " + value);
+		}
+		for (String s: List.of("a", "b", "c", "z"))
+			assertEquals(scan(table, 2, s), keys(table.lookup("s", s).toList()), "s = " + s);
+	}
+
+	/*
+	 * Mutates the table at random, with few distinct values
+	 * so that most puts replace a row or move it between values.
+	 */
+	private static void mutate(Table table, Random random, int steps) {
+		for (int i = 0; i < steps; i++) {
+			int k = random.nextInt(300);
+			switch (random.nextInt(4)) {
+				case 0, 1 -> table.put(row(k, random.nextInt(12) == 0 ? null : random.nextInt(10), "abc".substring(k % 3, k % 3 + 1)));
+				case 2 -> table.remove(k);
+				default -> table.put(row(k, random.nextInt(10), "z"));
+			}
+		}
+	}
+
+	@Test
+	public void indexesFollowEveryMutation() {
+		Random random = new Random(18);
+		Table table = new HashArrayTable("t", NAMES, TYPES, 0);
+		mutate(table, random, 500);
+
+		table.createIndex("v", true);
+		table.createIndex("s", false);
+		assertConsistent(table);
+
+		for (int round = 0; round < 20; round++) {
+			mutate(table, random, 200);
+			assertConsistent(table);
+		}
+
+		table.clear();
+		assertConsistent(table);
+		assertEquals(0, table.lookup("v", 1).count());
+
+		mutate(table, random, 500);
+		assertConsistent(table);
+	}
+
+	@Test
+	public void replacedRowLeavesItsOldValue() {
+		Table table = new HashArrayTable("t", NAMES, TYPES, 0);
+		table.createIndex("v", false);
+		table.put(row(1, 5, "a"));
+		table.put(row(1, 6, "a"));
+		assertEquals(List.of(), table.lookup("v", 5).toList());
+		assertEquals(List.of(row(1, 6, "a")), table.lookup("v", 6).toList());
+
+		table.remove(1);
+		table.put(row(1, 7, "a"));
+		assertEquals(List.of(), table.lookup("v", 6).toList(), "A removed row must leave the index");
+		assertEquals(List.of(row(1, 7, "a")), table.lookup("v", 7).toList());
+	}
+
+	@Test
+	public void lookupRangeHasHalfOpenBounds() {
+		Table table = new HashArrayTable("t", NAMES, TYPES, 0);
+		for (int k = 0; k < 100; k++)
+			table.put(row(k, k % 20 == 0 ? null : 99 - k, "a"));
+
+		for (boolean indexed: List.of(false, true)) {
+			if (indexed)
+				table.createIndex("v", true);
+
+			List<Object> values = table.lookupRange("v", 20, 30).map(row -> row.get(1)).toList();
+			assertEquals(Set.of(20, 21, 22, 23, 24, 25, 26, 27, 28, 29), new HashSet<>(values), "indexed = " + indexed);
+			assertEquals(10, values.size());
+
+			assertEquals(0, table.lookupRange("v", 25, 25).count());
+			assertEquals(0, table.lookupRange("v", 30, 25).count());
+			assertEquals(0, table.lookupRange("v", 100, 200).count());
+			assertEquals(95, table.lookupRange("v", Integer.MIN_VALUE, Integer.MAX_VALUE).count(), "Nulls are outside any range");
+			assertEquals(List.of(row(98, 1, "a")), table.lookupRange("v", 1, 2).toList());
+		}
+
+		List<Object> values = table.lookupRange("v", 0, 100).map(row -> row.get(1)).toList();
+		List<Object> sorted = new ArrayList<>(values);
+		sorted.sort(null);
+		assertEquals(sorted, values, "A sorted index reads rows in value order");
+
+		assertEquals(List.of(row(3, 96, "a")), table.lookupRange("k", 3, 4).toList());
+		assertThrows(NullPointerException.class, () -> table.lookupRange("v", null, 3));
+		assertThrows(NullPointerException.class, () -> table.lookupRange("v", 3, null));
+	}
+
+	@Test
+	public void lookupsAfterDropIndexScan() {
+		Random random = new Random(180);
+		Table table = new HashArrayTable("t", NAMES, TYPES, 0);
+		mutate(table, random, 500);
+		table.createIndex("v", true);
+		table.createIndex("s", false);
+
+		assertTrue(table.dropIndex("v"));
+		assertFalse(table.dropIndex("v"));
+		mutate(table, random, 500);
+		assertConsistent(table);
+		assertEquals(scan(table, 1, 3), keys(table.lookupRange("v", 3, 4).toList()));
+
+		assertTrue(table.dropIndex("s"));
+		mutate(table, random, 500);
+		assertConsistent(table);
+
+		table.createIndex("v", false);
+		assertConsistent(table);
+		assertEquals(scan(table, 1, 3), keys(table.lookupRange("v", 3, 4).toList()), "A hash index must not answer ranges");
+	}
+
+	@Test
+	public void createIndexRejectsInvalidColumns() {
+		Table table = new HashArrayTable("t", NAMES, TYPES, 0);
+		assertThrows(IllegalArgumentException.class, () -> table.createIndex("k", false));
+		assertThrows(IllegalArgumentException.class, () -> table.createIndex("nope", true));
+
+		table.createIndex("v", true);
+		assertThrows(IllegalArgumentException.class, () -> table.createIndex("v", false));
+		assertFalse(table.dropIndex("s"));
+		assertThrows(IllegalArgumentException.class, () -> table.dropIndex("nope"));
+
+		table.put(row(1, 2, "a"));
+		assertEquals(List.of(row(1, 2, "a")), table.lookup("k", 1).toList());
+		assertEquals(0, table.lookup("k", null).count());
+	}
+}
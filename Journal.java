@@ -0,0 +1,53 @@
+package tables;
+
+import java.util.List;
+
+/**
+ * Defines the protocols for recording the mutations
+ * of a table before they are applied.
+ * <p>
+ * A table records each mutation while it holds its own
+ * lock, once the mutation is validated and before it is
+ * applied, so the records follow the order of the mutations.
+ * Then, once it no longer holds the lock, the table waits
+ * until the record is durable before it returns, so that
+ * concurrent writers can share the wait.
+ * <p>
+ * A failure to record a mutation is thrown unchecked,
+ * before the mutation is applied.
+ */
+public interface Journal {
+	/**
+	 * Records a put of the given row into the given table.
+	 *
+	 * @param table the table.
+	 * @param row the row.
+	 * @return the position to await.
+	 */
+	long recordPut(Table table, List<Object> row);
+
+	/**
+	 * Records a remove of the given key from the given table.
+	 *
+	 * @param table the table.
+	 * @param key the key.
+	 * @return the position to await.
+	 */
+	long recordRemove(Table table, Object key);
+
+	/**
+	 * Records a clear of the given table.
+	 *
+	 * @param table the table.
+	 * @return the position to await.
+	 */
+	long recordClear(Table table);
+
+	/**
+	 * Waits until every record before
+	 * the given position is durable.
+	 *
+	 * @param position a position returned by this journal.
+	 */
+	void await(long position);
+}
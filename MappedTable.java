@@ -0,0 +1,760 @@
+package tables;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+
+/**
+ * Implements a hash-based table
+ * using a memory-mapped file.
+ * <p>
+ * The file starts with a fixed header holding the schema
+ * and the counters of the state, followed by a region of
+ * {@link Slots}, followed by an append-only row heap of
+ * records encoded by a {@link RowCodec}. The whole file is
+ * mapped into memory, so opening an existing table only
+ * reads its header and its slots, and the operating system
+ * pages in the rows as they are used.
+ * <p>
+ * Replaced and removed records are left in the row heap as
+ * garbage. When the heap fills up it is extended in place,
+ * unless most of it is garbage or the slots must grow, in which
+ * case the live records are rebuilt into a new file that then
+ * atomically replaces the old one.
+ * <p>
+ * Changes reach the file through the mapping, and are durable
+ * once {@link #force()}, {@link #compact()}, or {@link #close()}
+ * returns. Each mutation writes the counters before it changes
+ * a slot, so a process that dies in between leaves at worst an
+ * unreachable record in the heap and a size that is off by one,
+ * which is recounted from the slots when the file is reopened.
+ * The methods of this table synchronize on it, so it can be
+ * forced or compacted from a background thread.
+ */
+public class MappedTable extends Table implements Closeable {
+	private static final int MAGIC = 0x54424C31;
+	private static final int VERSION = 1;
+
+	private static final int MAGIC_AT = 0;
+	private static final int VERSION_AT = 4;
+	private static final int HEADER_LENGTH_AT = 8;
+	private static final int CAPACITY_AT = 12;
+	private static final int SIZE_AT = 16;
+	private static final int HEAP_END_AT = 20;
+	private static final int GARBAGE_AT = 24;
+	private static final int SCHEMA_AT = 28;
+
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int INITIAL_HEAP = 4096;
+	private static final double MAX_LOAD_FACTOR = 0.75;
+
+	private final Path path;
+	private final RowCodec codec;
+	private final int headerLength;
+
+	private FileChannel channel;
+	private MappedByteBuffer map;
+
+	private Slots slots;
+	private int size;
+	private int stateHash;
+	private boolean hashed;
+
+	private ByteBuffer heap;
+	private int heapEnd;
+	private int garbage;
+
+	private int modCount;
+	private int compactedAt = -1;
+
+	private Journal journal;
+
+	/**
+	 * Creates a table in a new file at the given path,
+	 * replacing any file already there, and initializes
+	 * the data structure.
+	 *
+	 * @param path the path of the file
+	 * @param tableName the table name
+	 * @param columnNames the column names
+	 * @param columnTypes the column types
+	 * @param primaryIndex the primary index
+	 * @throws IOException if the file cannot be written.
+	 */
+	public MappedTable(Path path, String tableName, List<String> columnNames, List<String> columnTypes, Integer primaryIndex) throws IOException {
+		this.path = path;
+
+		this.tableName = tableName;
+		this.columnNames = List.copyOf(columnNames);
+		this.columnTypes = List.copyOf(columnTypes);
+		this.primaryIndex = primaryIndex;
+
+		codec = new RowCodec(this.columnTypes, primaryIndex);
+		headerLength = align(SCHEMA_AT + schema().length);
+
+		rebuild(INITIAL_CAPACITY, INITIAL_HEAP, false);
+		hashed = true;
+	}
+
+	private MappedTable(Path path, FileChannel channel, MappedByteBuffer map) throws IOException {
+		this.path = path;
+		this.channel = channel;
+		this.map = map;
+
+		if (map.getInt(MAGIC_AT) != MAGIC || map.getInt(VERSION_AT) != VERSION)
+			throw new IOException("File <%s> is not a table file of version %d".formatted(path, VERSION));
+
+		headerLength = map.getInt(HEADER_LENGTH_AT);
+
+		byte[] schema = new byte[headerLength - SCHEMA_AT];
+		map.get(SCHEMA_AT, schema);
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(schema))) {
+			setTableName(in.readUTF());
+
+			int columns = in.readInt();
+			List<String> names = new ArrayList<>(columns);
+			for (int c = 0; c < columns; c++)
+				names.add(in.readUTF());
+			List<String> types = new ArrayList<>(columns);
+			for (int c = 0; c < columns; c++)
+				types.add(in.readUTF());
+
+			setColumnNames(names);
+			setColumnTypes(types);
+			setPrimaryIndex(in.readInt());
+		}
+
+		codec = new RowCodec(this.columnTypes, primaryIndex);
+
+		size = map.getInt(SIZE_AT);
+		heapEnd = map.getInt(HEAP_END_AT);
+		garbage = map.getInt(GARBAGE_AT);
+		slice(map.getInt(CAPACITY_AT));
+		recover();
+	}
+
+	/**
+	 * Opens the table in the existing file at the given path,
+	 * mapping the file without reading any of its rows.
+	 *
+	 * @param path the path of the file.
+	 * @return the table.
+	 * @throws IOException if the file cannot be read
+	 * 		or is not a table file.
+	 */
+	public static MappedTable open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, READ, WRITE);
+		try {
+			return new MappedTable(path, channel, channel.map(MapMode.READ_WRITE, 0, channel.size()));
+		}
+		catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public void clear() {
+		Journal j;
+		long position = 0;
+		synchronized (this) {
+			ensureOpen();
+
+			j = journal;
+			if (j != null)
+				position = j.recordClear(this);
+
+			slots = null;
+			heap = null;
+			size = 0;
+			stateHash = 0;
+			hashed = true;
+			rebuild(INITIAL_CAPACITY, INITIAL_HEAP, false);
+			modCount++;
+
+			fireClear();
+		}
+
+		if (j != null)
+			j.await(position);
+	}
+
+	@Override
+	public boolean put(List<Object> row) {
+		Journal j;
+		long position = 0;
+		boolean replaced;
+		synchronized (this) {
+			ensureOpen();
+
+			Object[] values = row.toArray();
+			codec.validate(values);
+
+			j = journal;
+			if (j != null)
+				position = j.recordPut(this, view(values));
+
+			replaced = apply(values);
+		}
+
+		if (j != null)
+			j.await(position);
+		return replaced;
+	}
+
+	/**
+	 * Puts the given validated row.
+	 * The caller holds the lock.
+	 *
+	 * @param values the fields of the row.
+	 * @return whether a row was replaced.
+	 */
+	private boolean apply(Object[] values) {
+		Object key = values[primaryIndex];
+		int hash = Slots.hash(key);
+
+		int length = codec.encode(values);
+		reserve(length);
+
+		int slot = slots.find(hash, codec.probe(key), codec, heap);
+		int offset = heapEnd;
+		codec.copyTo(heap, offset);
+		heapEnd += length;
+
+		modCount++;
+
+		if (slot >= 0) {
+			List<Object> replaced = observed() ? view(codec.decode(heap, slots.offset(slot))) : null;
+			garbage += codec.length(heap, slots.offset(slot));
+			if (hashed)
+				stateHash += rowHash(values) - codec.hash(heap, slots.offset(slot));
+			writeCounters();
+			slots.offset(slot, offset);
+
+			if (replaced != null)
+				firePut(replaced, view(values));
+			return true;
+		}
+
+		size++;
+		writeCounters();
+		slots.link(hash, offset);
+		if (hashed)
+			stateHash += rowHash(values);
+
+		if (size > threshold(slots.capacity()))
+			rebuild(slots.capacity() * 2, heapLength(0), false);
+
+		if (observed())
+			firePut(null, view(values));
+		return false;
+	}
+
+	@Override
+	public boolean remove(Object key) {
+		Journal j;
+		long position = 0;
+		synchronized (this) {
+			ensureOpen();
+
+			Object probe = codec.probe(key);
+			if (probe == null)
+				return false;
+
+			int slot = slots.find(Slots.hash(key), probe, codec, heap);
+			if (slot < 0)
+				return false;
+
+			j = journal;
+			if (j != null)
+				position = j.recordRemove(this, key);
+
+			List<Object> removed = observed() ? view(codec.decode(heap, slots.offset(slot))) : null;
+			garbage += codec.length(heap, slots.offset(slot));
+			if (hashed)
+				stateHash -= codec.hash(heap, slots.offset(slot));
+			size--;
+			writeCounters();
+			slots.unlink(slot);
+
+			modCount++;
+
+			if (removed != null)
+				fireRemove(removed);
+		}
+
+		if (j != null)
+			j.await(position);
+		return true;
+	}
+
+	@Override
+	public synchronized List<Object> get(Object key) {
+		ensureOpen();
+
+		Object probe = codec.probe(key);
+		if (probe == null)
+			return null;
+
+		int slot = slots.find(Slots.hash(key), probe, codec, heap);
+		if (slot < 0)
+			return null;
+
+		return view(codec.decode(heap, slots.offset(slot)));
+	}
+
+	/**
+	 * Returns the sum of the hash codes in the state,
+	 * which a reopened table computes on first use,
+	 * then keeps up to date on each mutation.
+	 *
+	 * @return the sum of the hash codes in the state.
+	 */
+	@Override
+	protected synchronized int stateHash() {
+		if (!hashed) {
+			ensureOpen();
+
+			stateHash = 0;
+			for (int slot = 0; slot < slots.capacity(); slot++)
+				if (!slots.empty(slot))
+					stateHash += codec.hash(heap, slots.offset(slot));
+			hashed = true;
+		}
+		return stateHash;
+	}
+
+	@Override
+	public synchronized int size() {
+		return size;
+	}
+
+	@Override
+	public synchronized int capacity() {
+		return slots != null ? slots.capacity() : 0;
+	}
+
+	@Override
+	public synchronized Iterator<List<Object>> iterator() {
+		ensureOpen();
+
+		return new Iterator<>() {
+			private final int expectedModCount = modCount;
+			private int slot = 0;
+
+			@Override
+			public boolean hasNext() {
+				synchronized (MappedTable.this) {
+					if (modCount != expectedModCount)
+						throw new ConcurrentModificationException();
+
+					while (slot < slots.capacity()) {
+						if (!slots.empty(slot))
+							return true;
+						slot++;
+					}
+					return false;
+				}
+			}
+
+			@Override
+			public List<Object> next() {
+				synchronized (MappedTable.this) {
+					if (!hasNext())
+						throw new NoSuchElementException();
+
+					return view(codec.decode(heap, slots.offset(slot++)));
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns a spliterator over the slots.
+	 * <p>
+	 * It is sized until split, after which each split
+	 * estimates its size; see {@link SlotSpliterator}.
+	 *
+	 * @return a spliterator of rows.
+	 */
+	@Override
+	public synchronized Spliterator<List<Object>> spliterator() {
+		ensureOpen();
+
+		Slots currentSlots = slots;
+		ByteBuffer currentHeap = heap;
+		return new SlotSpliterator(new SlotSpliterator.Source() {
+			@Override
+			public boolean occupied(int slot) {
+				return !currentSlots.empty(slot);
+			}
+
+			@Override
+			public List<Object> row(int slot) {
+				return view(codec.decode(currentHeap, currentSlots.offset(slot)));
+			}
+
+			@Override
+			public int modCount() {
+				return modCount;
+			}
+		}, 0, currentSlots.capacity(), size, false);
+	}
+
+	/**
+	 * Sets the journal that records each mutation of
+	 * this table before it is applied, or removes it.
+	 * <p>
+	 * Each mutation records itself while it holds the
+	 * lock of this table, and waits for its record to
+	 * be durable once it no longer does.
+	 *
+	 * @param journal the journal, or <code>null</code>.
+	 */
+	public synchronized void setJournal(Journal journal) {
+		this.journal = journal;
+	}
+
+	/**
+	 * Returns the path of the file of this table.
+	 *
+	 * @return the path.
+	 */
+	public Path path() {
+		return path;
+	}
+
+	/**
+	 * Writes any changes through the mapping
+	 * to the storage device.
+	 */
+	public synchronized void force() {
+		ensureOpen();
+
+		map.force();
+	}
+
+	/**
+	 * Rebuilds the file into a compact sorted run, with no
+	 * garbage and the records in key order, and forces it to
+	 * the storage device. A table left unchanged since its last
+	 * compaction is only forced.
+	 */
+	public synchronized void compact() {
+		ensureOpen();
+
+		if (compactedAt == modCount) {
+			map.force();
+			return;
+		}
+
+		long live = (long) heapEnd - garbage;
+		int length = INITIAL_HEAP;
+		while (length < live * 2 && length < heap.capacity())
+			length *= 2;
+
+		rebuild(slots.capacity(), length, true);
+		compactedAt = modCount;
+	}
+
+	/**
+	 * Writes any changes to the storage device,
+	 * then closes the file, after which this table
+	 * can no longer be used.
+	 *
+	 * @throws IOException if the file cannot be closed.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (map == null)
+			return;
+
+		map.force();
+		channel.close();
+
+		channel = null;
+		map = null;
+		slots = null;
+		heap = null;
+		modCount++;
+	}
+
+	/**
+	 * Returns whether this table is open,
+	 * which is until it is closed.
+	 *
+	 * @return whether this table is open.
+	 */
+	public synchronized boolean isOpen() {
+		return map != null;
+	}
+
+	private void ensureOpen() {
+		if (map == null)
+			throw new IllegalStateException("Table <%s> is closed".formatted(tableName));
+	}
+
+	/**
+	 * Makes room at the end of the row heap for a record
+	 * of the given length, if it does not fit already.
+	 * <p>
+	 * Room is made by extending the file in place, unless
+	 * at least half of the heap is garbage, in which case
+	 * the file is rebuilt without the garbage.
+	 *
+	 * @param length the length of the record.
+	 */
+	private void reserve(int length) {
+		if (length <= heap.capacity() - heapEnd)
+			return;
+
+		if (garbage * 2L >= heapEnd)
+			rebuild(slots.capacity(), heapLength(length), false);
+		else
+			extend(heapLength(length));
+	}
+
+	/**
+	 * Returns the length of a row heap that would be doubled
+	 * until the live records and the pending record fill at
+	 * most half of it, so that growth stays amortized.
+	 *
+	 * @param pending the length of a record about to be appended.
+	 * @return the length of the heap.
+	 */
+	private int heapLength(int pending) {
+		long required = (long) heapEnd - garbage + pending;
+		long length = Math.max(heap.capacity(), INITIAL_HEAP);
+		while (length < required * 2)
+			length *= 2;
+
+		long limit = Integer.MAX_VALUE - headerLength - (long) slots.capacity() * 2 * Slots.BYTES;
+		if (required > limit)
+			throw new IllegalStateException("Table <%s> exceeds the maximum file size".formatted(tableName));
+
+		return (int) Math.min(length, limit);
+	}
+
+	/**
+	 * Remaps the file with a longer row heap,
+	 * which extends the file without copying.
+	 *
+	 * @param heapLength the length of the heap.
+	 */
+	private void extend(int heapLength) {
+		try {
+			map = channel.map(MapMode.READ_WRITE, 0, (long) headerLength + (long) slots.capacity() * Slots.BYTES + heapLength);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		slice(slots.capacity());
+	}
+
+	/**
+	 * Writes the header and the live records into a new file
+	 * with the given number of slots and length of row heap,
+	 * forces it to the storage device, then atomically moves
+	 * it over the file of this table and maps it in its place.
+	 * <p>
+	 * Records keep their slots if the number of slots does
+	 * not change, so a rebuild never reorders an iteration.
+	 *
+	 * @param capacity the number of slots, a power of two.
+	 * @param heapLength the length of the row heap.
+	 * @param sorted whether to write the records in key order.
+	 */
+	private void rebuild(int capacity, int heapLength, boolean sorted) {
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		long length = (long) headerLength + (long) capacity * Slots.BYTES + heapLength;
+
+		try {
+			MappedByteBuffer rebuilt;
+			try (FileChannel out = FileChannel.open(temporary, CREATE, TRUNCATE_EXISTING, READ, WRITE)) {
+				rebuilt = out.map(MapMode.READ_WRITE, 0, length);
+			}
+
+			byte[] schema = schema();
+			rebuilt.putInt(MAGIC_AT, MAGIC);
+			rebuilt.putInt(VERSION_AT, VERSION);
+			rebuilt.putInt(HEADER_LENGTH_AT, headerLength);
+			rebuilt.putInt(CAPACITY_AT, capacity);
+			rebuilt.put(SCHEMA_AT, schema);
+
+			Slots rebuiltSlots = new Slots(rebuilt.slice(headerLength, capacity * Slots.BYTES));
+			ByteBuffer rebuiltHeap = rebuilt.slice(headerLength + capacity * Slots.BYTES, heapLength);
+
+			int end = 0;
+			if (slots != null) {
+				for (int slot: occupied(sorted)) {
+					int offset = slots.offset(slot);
+					int recordLength = codec.length(heap, offset);
+					rebuiltHeap.put(end, heap, offset, recordLength);
+					if (capacity == slots.capacity())
+						rebuiltSlots.set(slot, slots.hash(slot), end);
+					else
+						rebuiltSlots.link(slots.hash(slot), end);
+					end += recordLength;
+				}
+			}
+
+			rebuilt.putInt(SIZE_AT, size);
+			rebuilt.putInt(HEAP_END_AT, end);
+			rebuilt.putInt(GARBAGE_AT, 0);
+			rebuilt.force();
+
+			if (channel != null)
+				channel.close();
+			Files.move(temporary, path, REPLACE_EXISTING, ATOMIC_MOVE);
+			channel = FileChannel.open(path, READ, WRITE);
+
+			map = rebuilt;
+			heapEnd = end;
+			garbage = 0;
+			slice(capacity);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Returns the occupied slots, either in slot
+	 * order or in the order of their keys.
+	 *
+	 * @param sorted whether to sort by key.
+	 * @return the occupied slots.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private int[] occupied(boolean sorted) {
+		int[] occupied = new int[size];
+		int count = 0;
+		for (int slot = 0; slot < slots.capacity(); slot++)
+			if (!slots.empty(slot))
+				occupied[count++] = slot;
+
+		if (!sorted)
+			return occupied;
+
+		Comparable[] keys = new Comparable[slots.capacity()];
+		for (int slot: occupied)
+			keys[slot] = (Comparable) codec.decode(heap, slots.offset(slot))[primaryIndex];
+
+		Comparator<Integer> byKey = (a, b) -> keys[a].compareTo(keys[b]);
+		return Arrays.stream(occupied)
+			.boxed()
+			.sorted(byKey)
+			.mapToInt(Integer::intValue)
+			.toArray();
+	}
+
+	/**
+	 * Slices the slots and the row heap out of the mapping.
+	 *
+	 * @param capacity the number of slots.
+	 */
+	private void slice(int capacity) {
+		int heapAt = headerLength + capacity * Slots.BYTES;
+		slots = new Slots(map.slice(headerLength, capacity * Slots.BYTES));
+		heap = map.slice(heapAt, map.capacity() - heapAt);
+	}
+
+	/**
+	 * Checks the counters read from the header against
+	 * the slots, and repairs them if a mutation was torn.
+	 * <p>
+	 * The size is recounted from the occupied slots. A slot
+	 * that refers to a record at or past the heap end moves
+	 * the heap end past that record, so the next record
+	 * appended cannot overwrite it.
+	 */
+	private void recover() {
+		int count = 0;
+		int end = heapEnd;
+		for (int slot = 0; slot < slots.capacity(); slot++) {
+			if (slots.empty(slot))
+				continue;
+
+			count++;
+			int offset = slots.offset(slot);
+			if (offset >= heapEnd)
+				end = Math.max(end, offset + codec.length(heap, offset));
+		}
+
+		if (count != size || end != heapEnd) {
+			size = count;
+			heapEnd = end;
+			writeCounters();
+		}
+	}
+
+	/**
+	 * Writes the counters to the header, which
+	 * precedes any change of a slot they account for.
+	 */
+	private void writeCounters() {
+		map.putInt(SIZE_AT, size);
+		map.putInt(HEAP_END_AT, heapEnd);
+		map.putInt(GARBAGE_AT, garbage);
+	}
+
+	/**
+	 * Encodes the schema for the header.
+	 *
+	 * @return the encoded schema.
+	 */
+	private byte[] schema() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeUTF(tableName);
+			out.writeInt(columnNames.size());
+			for (String name: columnNames)
+				out.writeUTF(name);
+			for (String type: columnTypes)
+				out.writeUTF(type);
+			out.writeInt(primaryIndex);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static int align(int length) {
+		return (length + 7) & ~7;
+	}
+
+	private static int threshold(int capacity) {
+		return (int) (capacity * MAX_LOAD_FACTOR);
+	}
+
+	private static List<Object> view(Object[] values) {
+		return Collections.unmodifiableList(Arrays.asList(values));
+	}
+}
@@ -0,0 +1,78 @@
+package grade;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import tables.MappedTable;
+
+public class MappedTableTest {
+	private static final int SIZE_AT = 16;
+	private static final int HEAP_END_AT = 20;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void reopenKeepsRows() throws IOException {
+		Path file = directory.resolve("t.table");
+		try (MappedTable table = new MappedTable(file, "t", List.of("k", "v"), List.of("string", "integer"), 0)) {
+			for (int i = 0; i < 1000; i++)
+				table.put(List.of("k" + i, i));
+			table.remove("k0");
+		}
+
+		try (MappedTable table = MappedTable.open(file)) {
+			assertEquals(999, table.size());
+			assertNull(table.get("k0"));
+			assertEquals(List.of("k999", 999), table.get("k999"));
+		}
+	}
+
+	@Test
+	public void reopenRepairsTornPut() throws IOException {
+		Path file = directory.resolve("t.table");
+		int heapEnd;
+		try (MappedTable table = new MappedTable(file, "t", List.of("k", "v"), List.of("string", "integer"), 0)) {
+			table.put(List.of("a", 1));
+			heapEnd = readInt(file, HEAP_END_AT);
+			table.put(List.of("b", 2));
+		}
+
+		// A process that died after linking the slot of "b"
+		// but before storing the counters of its put.
+		writeInt(file, HEAP_END_AT, heapEnd);
+		writeInt(file, SIZE_AT, 1);
+
+		try (MappedTable table = MappedTable.open(file)) {
+			assertEquals(2, table.size());
+
+			table.put(List.of("c", 3));
+			assertEquals(List.of("b", 2), table.get("b"));
+			assertEquals(List.of("c", 3), table.get("c"));
+			assertEquals(3, table.size());
+		}
+	}
+
+	private static int readInt(Path file, int position) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(4);
+			channel.read(buffer, position);
+			return buffer.flip().getInt();
+		}
+	}
+
+	private static void writeInt(Path file, int position, int value) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.allocate(4).putInt(0, value), position);
+		}
+	}
+}
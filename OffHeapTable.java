@@ -0,0 +1,367 @@
+package tables;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+
+/**
+ * Implements a hash-based table
+ * using off-heap data structures.
+ * <p>
+ * Both the hash slots and the rows live in direct buffers,
+ * outside the garbage-collected heap, so the collector never
+ * scans the state no matter how large it grows. The hash slots
+ * are {@link Slots}, each holding the hash of a key and the
+ * offset of its record.
+ * <p>
+ * Rows are encoded by a {@link RowCodec} and appended to a row
+ * heap. Replaced and removed records are left in place as
+ * garbage until the heap fills up, at which point the live
+ * records are copied into a new heap, grown if needed.
+ * <p>
+ * The row heap is a single direct buffer addressed by
+ * <code>int</code> offsets, as are the {@link Slots}, so the
+ * live records are limited to <code>Integer.MAX_VALUE</code>
+ * bytes, about 2 GB; at 40 bytes per record, that is some
+ * 50 million rows.
+ * A put past the limit throws an {@link IllegalStateException}.
+ * While the heap is relocated, both the old and the new heap
+ * are allocated.
+ * <p>
+ * Each returned row is decoded into a new unmodifiable list.
+ * <p>
+ * The buffers are released on {@link #clear()} and on
+ * {@link #close()}, after which the table can no longer
+ * be used. Their memory is returned to the system when
+ * the released buffers are collected.
+ */
+public class OffHeapTable extends Table implements Closeable {
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int INITIAL_HEAP = 4096;
+	private static final double MAX_LOAD_FACTOR = 0.75;
+
+	private final RowCodec codec;
+
+	private Slots slots;
+	private int size;
+	private int stateHash;
+
+	private ByteBuffer heap;
+	private int heapEnd;
+	private int garbage;
+
+	private int modCount;
+
+	/**
+	 * Creates a table and initializes
+	 * the data structure.
+	 *
+	 * @param tableName the table name
+	 * @param columnNames the column names
+	 * @param columnTypes the column types
+	 * @param primaryIndex the primary index
+	 */
+	public OffHeapTable(String tableName, List<String> columnNames, List<String> columnTypes, Integer primaryIndex) {
+		this.tableName = tableName;
+		this.columnNames = List.copyOf(columnNames);
+		this.columnTypes = List.copyOf(columnTypes);
+		this.primaryIndex = primaryIndex;
+
+		codec = new RowCodec(this.columnTypes, primaryIndex);
+
+		allocate();
+	}
+
+	@Override
+	public void clear() {
+		ensureOpen();
+
+		allocate();
+		modCount++;
+
+		fireClear();
+	}
+
+	@Override
+	public boolean put(List<Object> row) {
+		ensureOpen();
+
+		Object[] values = row.toArray();
+		codec.validate(values);
+
+		Object key = values[primaryIndex];
+		int hash = Slots.hash(key);
+
+		int slot = slots.find(hash, codec.probe(key), codec, heap);
+		int length = codec.encode(values);
+		int offset = append(length);
+
+		modCount++;
+
+		if (slot >= 0) {
+			List<Object> replaced = observed() ? view(codec.decode(heap, slots.offset(slot))) : null;
+			garbage += codec.length(heap, slots.offset(slot));
+			stateHash += rowHash(values) - codec.hash(heap, slots.offset(slot));
+			slots.offset(slot, offset);
+
+			if (replaced != null)
+				firePut(replaced, view(values));
+			return true;
+		}
+
+		if (size + 1 > threshold(slots.capacity()))
+			growSlots();
+
+		slots.link(hash, offset);
+		size++;
+		stateHash += rowHash(values);
+
+		if (observed())
+			firePut(null, view(values));
+		return false;
+	}
+
+	@Override
+	public boolean remove(Object key) {
+		ensureOpen();
+
+		Object probe = codec.probe(key);
+		if (probe == null)
+			return false;
+
+		int slot = slots.find(Slots.hash(key), probe, codec, heap);
+		if (slot < 0)
+			return false;
+
+		List<Object> removed = observed() ? view(codec.decode(heap, slots.offset(slot))) : null;
+		garbage += codec.length(heap, slots.offset(slot));
+		stateHash -= codec.hash(heap, slots.offset(slot));
+		slots.unlink(slot);
+		size--;
+
+		modCount++;
+
+		if (removed != null)
+			fireRemove(removed);
+		return true;
+	}
+
+	@Override
+	public List<Object> get(Object key) {
+		ensureOpen();
+
+		Object probe = codec.probe(key);
+		if (probe == null)
+			return null;
+
+		int slot = slots.find(Slots.hash(key), probe, codec, heap);
+		if (slot < 0)
+			return null;
+
+		return view(codec.decode(heap, slots.offset(slot)));
+	}
+
+	@Override
+	protected int stateHash() {
+		return stateHash;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int capacity() {
+		return slots != null ? slots.capacity() : 0;
+	}
+
+	@Override
+	public Iterator<List<Object>> iterator() {
+		ensureOpen();
+
+		return new Iterator<>() {
+			private final int expectedModCount = modCount;
+			private int slot = 0;
+
+			@Override
+			public boolean hasNext() {
+				if (modCount != expectedModCount)
+					throw new ConcurrentModificationException();
+
+				while (slot < slots.capacity()) {
+					if (!slots.empty(slot))
+						return true;
+					slot++;
+				}
+				return false;
+			}
+
+			@Override
+			public List<Object> next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+
+				return view(codec.decode(heap, slots.offset(slot++)));
+			}
+		};
+	}
+
+	/**
+	 * Returns a spliterator over the slots.
+	 * <p>
+	 * It is sized until split, after which each split
+	 * estimates its size; see {@link SlotSpliterator}.
+	 *
+	 * @return a spliterator of rows.
+	 */
+	@Override
+	public Spliterator<List<Object>> spliterator() {
+		ensureOpen();
+
+		Slots currentSlots = slots;
+		ByteBuffer currentHeap = heap;
+		return new SlotSpliterator(new SlotSpliterator.Source() {
+			@Override
+			public boolean occupied(int slot) {
+				return !currentSlots.empty(slot);
+			}
+
+			@Override
+			public List<Object> row(int slot) {
+				return view(codec.decode(currentHeap, currentSlots.offset(slot)));
+			}
+
+			@Override
+			public int modCount() {
+				return modCount;
+			}
+		}, 0, currentSlots.capacity(), size, false);
+	}
+
+	/**
+	 * Returns the number of bytes reserved off-heap
+	 * for the slots and the row heap.
+	 *
+	 * @return the number of bytes.
+	 */
+	public long offHeapBytes() {
+		if (heap == null)
+			return 0;
+
+		return (long) slots.capacity() * Slots.BYTES + heap.capacity();
+	}
+
+	/**
+	 * Releases the buffers of this table,
+	 * which can no longer be used.
+	 */
+	@Override
+	public void close() {
+		slots = null;
+		heap = null;
+		size = 0;
+		stateHash = 0;
+		heapEnd = 0;
+		garbage = 0;
+		modCount++;
+	}
+
+	/**
+	 * Replaces the buffers with empty ones.
+	 */
+	private void allocate() {
+		slots = new Slots(ByteBuffer.allocateDirect(INITIAL_CAPACITY * Slots.BYTES));
+		size = 0;
+		stateHash = 0;
+
+		heap = ByteBuffer.allocateDirect(INITIAL_HEAP);
+		heapEnd = 0;
+		garbage = 0;
+	}
+
+	private void ensureOpen() {
+		if (heap == null)
+			throw new IllegalStateException("Table <%s> is closed".formatted(tableName));
+	}
+
+	/**
+	 * Copies the record last encoded by the codec to the
+	 * end of the row heap, relocating the heap first if
+	 * the record does not fit, and returns its offset.
+	 *
+	 * @param length the length of the record.
+	 * @return the offset of the record.
+	 */
+	private int append(int length) {
+		if (length > heap.capacity() - heapEnd)
+			relocate(length);
+
+		int offset = heapEnd;
+		codec.copyTo(heap, offset);
+		heapEnd += length;
+		return offset;
+	}
+
+	/**
+	 * Copies the live records into a new row heap, leaving
+	 * the garbage behind. The new heap is doubled until the
+	 * live records and the pending record fill at most half
+	 * of it, so relocations stay amortized.
+	 *
+	 * @param pending the length of a record about to be appended.
+	 */
+	private void relocate(int pending) {
+		long required = (long) heapEnd - garbage + pending;
+		long length = heap.capacity();
+		while (length < required * 2)
+			length *= 2;
+
+		if (length > Integer.MAX_VALUE) {
+			if (required > Integer.MAX_VALUE)
+				throw new IllegalStateException("Table <%s> exceeds the maximum heap size of %d bytes".formatted(tableName, Integer.MAX_VALUE));
+			length = Integer.MAX_VALUE;
+		}
+
+		ByteBuffer moved = ByteBuffer.allocateDirect((int) length);
+		int end = 0;
+		for (int slot = 0; slot < slots.capacity(); slot++) {
+			if (slots.empty(slot))
+				continue;
+
+			int offset = slots.offset(slot);
+			int recordLength = codec.length(heap, offset);
+			moved.put(end, heap, offset, recordLength);
+			slots.offset(slot, end);
+			end += recordLength;
+		}
+
+		heap = moved;
+		heapEnd = end;
+		garbage = 0;
+	}
+
+	/**
+	 * Doubles the number of slots and relinks
+	 * every record from its cached hash.
+	 */
+	private void growSlots() {
+		Slots grown = new Slots(ByteBuffer.allocateDirect(slots.capacity() * 2 * Slots.BYTES));
+		slots.transferTo(grown);
+		slots = grown;
+	}
+
+	private static int threshold(int capacity) {
+		return (int) (capacity * MAX_LOAD_FACTOR);
+	}
+
+	private static List<Object> view(Object[] values) {
+		return Collections.unmodifiableList(Arrays.asList(values));
+	}
+}
@@ -0,0 +1,286 @@
+package grade;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import apps.Database;
+import apps.Timings;
+import drivers.Driver;
+import drivers.Response;
+import drivers.Status;
+import tables.HashArrayTable;
+import tables.TableStats;
+
+public class PipelineTest {
+	/*
+	 * A table whose statistics take a while, and which
+	 * notes whether two queries ever read it at once.
+	 */
+	private static class SlowTable extends HashArrayTable {
+		private final AtomicInteger readers = new AtomicInteger();
+		private final AtomicBoolean overlapped = new AtomicBoolean();
+
+		private SlowTable(String tableName) {
+			super(tableName, List.of("k"), List.of("integer"), 0);
+		}
+
+		@Override
+		public TableStats stats() {
+			if (readers.incrementAndGet() > 1)
+				overlapped.set(true);
+			try {
+				Thread.sleep(2);
+				return super.stats();
+			}
+			catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			finally {
+				readers.decrementAndGet();
+			}
+		}
+	}
+
+	private static class FailingTable extends HashArrayTable {
+		private final RuntimeException failure;
+
+		private FailingTable(String tableName, RuntimeException failure) {
+			super(tableName, List.of("k"), List.of("integer"), 0);
+			this.failure = failure;
+		}
+
+		@Override
+		public TableStats stats() {
+			throw failure;
+		}
+	}
+
+	/*
+	 * Counts the queries of its drivers in flight, and notes
+	 * whether a writing query ever overlapped another query.
+	 */
+	private static class Flight {
+		private final AtomicInteger inFlight = new AtomicInteger();
+		private final AtomicInteger maxReaders = new AtomicInteger();
+		private final AtomicBoolean overlapped = new AtomicBoolean();
+
+		private Response run(String query, boolean writes, Supplier<String> body) {
+			int now = inFlight.incrementAndGet();
+			if (writes && now > 1)
+				overlapped.set(true);
+			if (!writes)
+				maxReaders.accumulateAndGet(now, Math::max);
+			try {
+				Thread.sleep(writes ? 1 : 3);
+				String message = body.get();
+				if (writes && inFlight.get() > 1)
+					overlapped.set(true);
+				return new Response(query, Status.SUCCESSFUL, message, null);
+			}
+			catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			finally {
+				inFlight.decrementAndGet();
+			}
+		}
+
+		private Driver driver(String keyword, boolean writes, BiFunction<String, Database, String> body) {
+			return new Driver() {
+				@Override
+				public Response execute(String query, Database db) {
+					return run(query, writes, () -> body.apply(query, db));
+				}
+
+				@Override
+				public String keyword() {
+					return keyword;
+				}
+
+				@Override
+				public boolean recognizes(String query) {
+					return query.startsWith(keyword);
+				}
+
+				@Override
+				public boolean isReadOnly() {
+					return !writes;
+				}
+			};
+		}
+	}
+
+	@Test
+	public void writesAreBarriers() throws IOException {
+		Flight flight = new Flight();
+		List<Driver> extensions = List.of(
+			flight.driver("PEEK", false, (query, db) -> "" + db.find("t").size()),
+			flight.driver("PUT", true, (query, db) -> {
+				db.find("t").put(List.of(Integer.parseInt(query.substring(4))));
+				return null;
+			})
+		);
+
+		try (Database db = new Database(false, Path.of("data"), Duration.ZERO, Duration.ofHours(1), extensions)) {
+			db.create(new HashArrayTable("t", List.of("k"), List.of("integer"), 0));
+
+			List<String> queries = new ArrayList<>();
+			List<Integer> expected = new ArrayList<>();
+			for (int round = 0; round < 10; round++) {
+				for (int i = 0; i < 8; i++) {
+					queries.add("PEEK");
+					expected.add(round);
+				}
+				queries.add("PUT " + round);
+				expected.add(null);
+			}
+
+			List<Timings> timings = new ArrayList<>();
+			List<Response> responses = db.interpret(queries, timings);
+			assertEquals(queries.size(), timings.size());
+
+			for (int i = 0; i < queries.size(); i++) {
+				assertEquals(Status.SUCCESSFUL, responses.get(i).status());
+				if (expected.get(i) != null)
+					assertEquals("" + expected.get(i), responses.get(i).message(), "Reads must not pass a write, either way");
+			}
+			assertFalse(flight.overlapped.get(), "A write must run alone");
+			assertTrue(flight.maxReaders.get() > 1, "Reads between writes must run concurrently");
+			assertEquals(10, db.find("t").size());
+		}
+	}
+
+	@Test
+	public void synchronousInterpretReportsTimings() throws IOException {
+		try (Database db = new Database(false)) {
+			List<String> queries = List.of("ECHO \"a\"", "RANGE 1000", "NOPE");
+			List<Timings> timings = new ArrayList<>(List.of(new Timings(Duration.ZERO, Duration.ZERO, Duration.ZERO, Duration.ZERO)));
+			List<Response> responses = db.interpret(queries, timings);
+
+			assertEquals(3, responses.size());
+			assertEquals(4, timings.size(), "Timings are added after any already in the list");
+			for (Timings each: timings.subList(1, 4)) {
+				for (Duration stage: List.of(each.parse(), each.plan(), each.queue(), each.execute()))
+					assertFalse(stage.isNegative(), each.toString());
+				assertEquals(each.parse().plus(each.plan()).plus(each.queue()).plus(each.execute()), each.total());
+			}
+			assertEquals(Duration.ZERO, timings.get(3).execute(), "An unrecognized query never executes");
+			assertTrue(timings.get(2).execute().isPositive());
+		}
+	}
+
+	@Test
+	public void responsesKeepQueryOrder() throws IOException {
+		try (Database db = new Database(false)) {
+			db.create(new HashArrayTable("t", List.of("k"), List.of("integer"), 0));
+
+			List<String> queries = new ArrayList<>();
+			for (int i = 0; i < 300; i++) {
+				queries.add(switch (i % 4) {
+					case 0 -> "ECHO \"%d\"".formatted(i);
+					case 1 -> "RANGE %d".formatted(i);
+					case 2 -> "NOPE %d".formatted(i);
+					default -> "STATS TABLE t";
+				});
+			}
+
+			List<Response> responses = db.interpret(queries);
+			assertEquals(queries.size(), responses.size());
+			for (int i = 0; i < queries.size(); i++) {
+				Response res = responses.get(i);
+				assertEquals(queries.get(i), res.query());
+				assertEquals(i % 4 == 2 ? Status.UNRECOGNIZED : Status.SUCCESSFUL, res.status(), queries.get(i));
+				if (i % 4 == 0)
+					assertEquals("" + i, res.message());
+				if (i % 4 == 1)
+					assertEquals(i, res.table().size());
+			}
+		}
+	}
+
+	@Test
+	public void callbackReceivesEachIndexOnce() throws IOException {
+		try (Database db = new Database(false)) {
+			List<String> queries = new ArrayList<>();
+			for (int i = 0; i < 200; i++)
+				queries.add(i % 2 == 0 ? "ECHO \"%d\"".formatted(i) : "RANGE 10");
+
+			AtomicInteger inside = new AtomicInteger();
+			Map<Integer, Integer> calls = new HashMap<>();
+			db.interpret(queries, (index, res, timings) -> {
+				assertEquals(1, inside.incrementAndGet(), "The callback must not be invoked concurrently");
+				calls.merge(index, 1, Integer::sum);
+				assertEquals(queries.get(index), res.query());
+
+				for (Duration stage: List.of(timings.parse(), timings.plan(), timings.queue(), timings.execute()))
+					assertFalse(stage.isNegative(), timings.toString());
+				assertEquals(timings.parse().plus(timings.plan()).plus(timings.queue()).plus(timings.execute()), timings.total());
+				inside.decrementAndGet();
+			});
+
+			assertEquals(queries.size(), calls.size());
+			assertTrue(calls.values().stream().allMatch(n -> n == 1));
+		}
+	}
+
+	@Test
+	public void readsOfOneTableRunInOrder() throws IOException {
+		try (Database db = new Database(false)) {
+			SlowTable t = new SlowTable("t"), u = new SlowTable("u");
+			db.create(t);
+			db.create(u);
+
+			List<String> queries = new ArrayList<>();
+			for (int i = 0; i < 40; i++)
+				queries.add(i % 2 == 0 ? "STATS TABLE t" : "STATS TABLE u");
+
+			List<Integer> completedT = new ArrayList<>();
+			db.interpret(queries, (index, res, timings) -> {
+				assertEquals(Status.SUCCESSFUL, res.status());
+				if (index % 2 == 0)
+					completedT.add(index);
+			});
+
+			assertFalse(t.overlapped.get(), "Reads of one table must not overlap");
+			assertFalse(u.overlapped.get(), "Reads of one table must not overlap");
+			assertEquals(completedT.stream().sorted().toList(), completedT);
+			assertEquals(20, completedT.size());
+		}
+	}
+
+	@Test
+	public void firstFailureInQueryOrderIsThrown() throws IOException {
+		try (Database db = new Database(false)) {
+			db.create(new FailingTable("first", new IllegalStateException("first")));
+			db.create(new FailingTable("second", new IllegalArgumentException("second")));
+
+			List<String> queries = List.of(
+				"ECHO \"a\"",
+				"STATS TABLE first",
+				"ECHO \"b\"",
+				"STATS TABLE second",
+				"ECHO \"c\""
+			);
+
+			List<Integer> delivered = new ArrayList<>();
+			IllegalStateException e = assertThrows(IllegalStateException.class, () ->
+				db.interpret(queries, (index, res, timings) -> delivered.add(index))
+			);
+			assertEquals("first", e.getMessage());
+			assertEquals(List.of(0, 2, 4), delivered.stream().sorted().toList(), "Every other query must still be delivered");
+		}
+	}
+}
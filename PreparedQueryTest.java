@@ -0,0 +1,106 @@
+package grade;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import apps.Database;
+import apps.PreparedQuery;
+import drivers.Response;
+import drivers.Status;
+import tables.HashArrayTable;
+
+public class PreparedQueryTest {
+	private static final int PLAN_CACHE_SIZE = 256;
+
+	private static String echo(int i) {
+		return "ECHO \"%d\"".formatted(i);
+	}
+
+	@Test
+	public void planBindsArguments() throws IOException {
+		try (Database db = new Database(false)) {
+			PreparedQuery range = db.prepare("RANGE ? AS ?");
+			assertEquals(2, range.parameters());
+
+			Response res = range.execute(3, "x");
+			assertEquals(Status.SUCCESSFUL, res.status());
+			assertEquals("RANGE ? AS ?", res.query());
+			assertEquals(List.of("x"), res.table().getColumnNames());
+			assertEquals(3, res.table().size());
+
+			assertEquals(Status.FAILED, range.execute(-1, "x").status());
+			assertEquals(Status.FAILED, range.execute("3", "x").status());
+			assertEquals(Status.FAILED, range.execute(3, "x y").status());
+			assertThrows(IllegalArgumentException.class, () -> range.execute(3));
+
+			PreparedQuery echo = db.prepare("ECHO ?");
+			assertEquals("a \"b\" c", echo.execute("a \"b\" c").message());
+
+			PreparedQuery quoted = db.prepare("ECHO \"?\"");
+			assertEquals(0, quoted.parameters(), "A quoted ? is not a placeholder");
+			assertEquals("?", quoted.execute().message());
+		}
+	}
+
+	@Test
+	public void fallbackBindsTypedLiterals() throws IOException {
+		try (Database db = new Database(false)) {
+			db.create(new HashArrayTable("t", List.of("k"), List.of("integer"), 0));
+
+			PreparedQuery stats = db.prepare("STATS   TABLE ?");
+			assertEquals(1, stats.parameters());
+
+			Response res = stats.execute("t");
+			assertEquals(Status.SUCCESSFUL, res.status());
+			assertEquals("STATS TABLE ?", res.query());
+			assertEquals("Table <t> has metrics disabled", res.message());
+
+			assertEquals(Status.FAILED, stats.execute("nope").status());
+			assertEquals(Status.UNRECOGNIZED, stats.execute(5).status(), "An integer is bound as a number");
+
+			for (Object argument: new Object[] { "t u", "t\nSTATS TABLE t", "\"t\"", "", 2.5, List.of("t"), null }) {
+				Response rejected = stats.execute(argument);
+				assertEquals(Status.FAILED, rejected.status(), "Argument <%s>".formatted(argument));
+				assertEquals("Argument <%s> cannot be bound".formatted(argument), rejected.message());
+				assertEquals("STATS TABLE ?", rejected.query());
+			}
+		}
+	}
+
+	@Test
+	public void equivalentTextsHitTheCache() throws IOException {
+		try (Database db = new Database(false)) {
+			PreparedQuery range = db.prepare("RANGE ? AS x");
+			assertSame(range, db.prepare("  RANGE\t?   AS x\n"));
+			assertEquals("RANGE ? AS x", range.query());
+
+			PreparedQuery echo = db.prepare("ECHO \"a  b\"");
+			assertNotSame(echo, db.prepare("ECHO \"a b\""), "Whitespace inside quotes is kept");
+			assertSame(echo, db.prepare("ECHO   \"a  b\""));
+		}
+	}
+
+	@Test
+	public void cacheEvictsLeastRecentlyUsed() throws IOException {
+		try (Database db = new Database(false)) {
+			PreparedQuery[] prepared = new PreparedQuery[PLAN_CACHE_SIZE + 1];
+			for (int i = 0; i <= PLAN_CACHE_SIZE; i++)
+				prepared[i] = db.prepare(echo(i));
+
+			assertSame(prepared[1], db.prepare(echo(1)), "The most recent queries must be kept");
+			assertSame(prepared[PLAN_CACHE_SIZE], db.prepare(echo(PLAN_CACHE_SIZE)));
+			assertNotSame(prepared[0], db.prepare(echo(0)), "The eldest query must be evicted");
+
+			// Query 1 was used after query 3, so query 3 goes first.
+			db.prepare(echo(PLAN_CACHE_SIZE + 1));
+			assertSame(prepared[1], db.prepare(echo(1)));
+			assertNotSame(prepared[3], db.prepare(echo(3)));
+
+			assertEquals("7", prepared[7].execute().message(), "An evicted query still executes");
+		}
+	}
+}
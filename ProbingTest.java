@@ -0,0 +1,102 @@
+package grade;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import tables.HashArrayTable;
+import tables.HashArrayTable.Probing;
+
+public class ProbingTest {
+	private static final List<String> NAMES = List.of("k", "v");
+	private static final List<String> TYPES = List.of("integer", "integer");
+	private static final double LOAD_FACTOR = 0.95;
+
+	/*
+	 * Just below the threshold of 65536 slots, and long
+	 * after the last resize, so no row is left to migrate.
+	 */
+	private static final int ROWS = (int) (65536 * LOAD_FACTOR);
+
+	private static List<Integer> keys(long seed, int count) {
+		Random random = new Random(seed);
+		Set<Integer> keys = new LinkedHashSet<>();
+		while (keys.size() < count)
+			keys.add(random.nextInt());
+		return new ArrayList<>(keys);
+	}
+
+	private static HashArrayTable table(Probing probing, List<Integer> keys) {
+		HashArrayTable table = new HashArrayTable("t", NAMES, TYPES, 0, probing, LOAD_FACTOR);
+		for (int k: keys)
+			table.put(List.of(k, k / 2));
+		return table;
+	}
+
+	@Test
+	public void robinHoodShortensLongestProbe() {
+		List<Integer> keys = keys(2, ROWS);
+		HashArrayTable linear = table(Probing.LINEAR, keys);
+		HashArrayTable robinHood = table(Probing.ROBIN_HOOD, keys);
+
+		assertEquals(65536, linear.capacity());
+		assertEquals(65536, robinHood.capacity());
+		assertEquals(ROWS, robinHood.size());
+
+		assertEquals(linear.meanProbeLength(), robinHood.meanProbeLength(), 1e-9,
+			"Robin Hood moves rows without changing their total distance from home");
+		assertTrue(robinHood.maxProbeLength() * 4 < linear.maxProbeLength(),
+			"Robin Hood max %d, linear max %d".formatted(robinHood.maxProbeLength(), linear.maxProbeLength()));
+	}
+
+	@Test
+	public void robinHoodSurvivesHeavyDeletion() {
+		Random random = new Random(20);
+		List<Integer> pool = keys(3, 2 * ROWS);
+		HashArrayTable table = new HashArrayTable("t", NAMES, TYPES, 0, Probing.ROBIN_HOOD, LOAD_FACTOR);
+		Map<Integer, List<Object>> model = new HashMap<>();
+
+		for (int round = 0; round < 20; round++) {
+			for (int i = 0; i < 30_000; i++) {
+				int k = pool.get(random.nextInt(pool.size()));
+				if (model.size() < ROWS - 1 && random.nextInt(3) > 0 || model.size() < ROWS / 2) {
+					List<Object> row = List.of(k, round);
+					assertEquals(model.put(k, row) != null, table.put(row));
+				}
+				else
+					assertEquals(model.remove(k) != null, table.remove(k));
+			}
+
+			assertEquals(model.size(), table.size());
+			assertEquals(0, table.stats().tombstones(), "Robin Hood removals must shift rows back");
+			for (int k: pool)
+				assertEquals(model.get(k), table.get(k));
+		}
+
+		for (int k: keys(4, 10_000))
+			if (!model.containsKey(k))
+				assertNull(table.get(k));
+
+		HashArrayTable fresh = table(Probing.ROBIN_HOOD, new ArrayList<>(model.keySet()));
+		assertEquals(fresh.capacity(), table.capacity());
+		assertEquals(fresh.meanProbeLength(), table.meanProbeLength(), 1e-9,
+			"Shifting rows back must leave the slots a fresh table would use");
+		assertTrue(table.maxProbeLength() <= 2 * fresh.maxProbeLength(),
+			"Churned max %d, fresh max %d".formatted(table.maxProbeLength(), fresh.maxProbeLength()));
+
+		for (int k: new ArrayList<>(model.keySet()))
+			assertTrue(table.remove(k));
+		assertEquals(0, table.size());
+		assertEquals(0, table.maxProbeLength());
+		for (int k: pool)
+			assertNull(table.get(k));
+	}
+}
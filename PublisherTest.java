@@ -0,0 +1,162 @@
+package grade;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.function.BiConsumer;
+
+import org.junit.jupiter.api.Test;
+
+import tables.HashArrayTable;
+import tables.Table;
+
+public class PublisherTest {
+	private static final class Recorder implements Flow.Subscriber<List<Object>> {
+		private final BiConsumer<Recorder, List<Object>> onNext;
+		private Flow.Subscription subscription;
+		private final List<List<Object>> rows = new ArrayList<>();
+		private boolean completed;
+		private Throwable error;
+		private int depth, maxDepth;
+
+		private Recorder(BiConsumer<Recorder, List<Object>> onNext) {
+			this.onNext = onNext;
+		}
+
+		private Recorder() {
+			this((recorder, row) -> {});
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(List<Object> row) {
+			depth++;
+			maxDepth = Math.max(maxDepth, depth);
+			rows.add(row);
+			onNext.accept(this, row);
+			depth--;
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			assertNull(error, "Only one terminal signal is allowed");
+			assertFalse(completed, "Only one terminal signal is allowed");
+			error = throwable;
+		}
+
+		@Override
+		public void onComplete() {
+			assertNull(error, "Only one terminal signal is allowed");
+			assertFalse(completed, "Only one terminal signal is allowed");
+			completed = true;
+		}
+	}
+
+	private static Table table(int rows) {
+		Table table = new HashArrayTable("t", List.of("k"), List.of("integer"), 0);
+		for (int k = 0; k < rows; k++)
+			table.put(List.of(k));
+		return table;
+	}
+
+	@Test
+	public void deliversOnlyRequestedRows() {
+		Recorder recorder = new Recorder();
+		table(10).publisher().subscribe(recorder);
+		assertEquals(0, recorder.rows.size(), "No row before the first request");
+
+		recorder.subscription.request(3);
+		assertEquals(3, recorder.rows.size());
+		assertFalse(recorder.completed);
+
+		recorder.subscription.request(7);
+		assertEquals(10, recorder.rows.size());
+		assertTrue(recorder.completed, "Completion must not wait for more demand");
+
+		recorder.subscription.request(Long.MAX_VALUE);
+		assertEquals(10, recorder.rows.size());
+		assertNull(recorder.error);
+	}
+
+	@Test
+	public void iterationBeginsAtFirstRequest() {
+		Table table = table(2);
+		Recorder recorder = new Recorder();
+		table.publisher().subscribe(recorder);
+		table.put(List.of(2));
+
+		recorder.subscription.request(Long.MAX_VALUE);
+		assertEquals(3, recorder.rows.size());
+		assertTrue(recorder.completed);
+	}
+
+	@Test
+	public void requestsFromOnNextDoNotRecurse() {
+		Recorder recorder = new Recorder((self, row) -> self.subscription.request(1));
+		table(100_000).publisher().subscribe(recorder);
+
+		recorder.subscription.request(1);
+		assertEquals(100_000, recorder.rows.size());
+		assertEquals(1, recorder.maxDepth);
+		assertTrue(recorder.completed);
+	}
+
+	@Test
+	public void demandOverflowIsUnbounded() {
+		Recorder recorder = new Recorder();
+		table(100).publisher().subscribe(recorder);
+
+		recorder.subscription.request(Long.MAX_VALUE);
+		recorder.subscription.request(Long.MAX_VALUE);
+		assertEquals(100, recorder.rows.size());
+		assertTrue(recorder.completed);
+	}
+
+	@Test
+	public void cancelStopsDelivery() {
+		Recorder recorder = new Recorder((self, row) -> {
+			if (self.rows.size() == 5)
+				self.subscription.cancel();
+		});
+		table(100).publisher().subscribe(recorder);
+
+		recorder.subscription.request(Long.MAX_VALUE);
+		assertEquals(5, recorder.rows.size());
+		assertFalse(recorder.completed);
+		assertNull(recorder.error);
+	}
+
+	@Test
+	public void nonPositiveRequestSignalsError() {
+		Recorder recorder = new Recorder();
+		table(10).publisher().subscribe(recorder);
+
+		recorder.subscription.request(0);
+		assertInstanceOf(IllegalArgumentException.class, recorder.error);
+		assertEquals(0, recorder.rows.size());
+
+		recorder.subscription.request(10);
+		assertEquals(0, recorder.rows.size(), "No row after an error");
+	}
+
+	@Test
+	public void concurrentModificationSignalsError() {
+		Table table = table(100);
+		Recorder recorder = new Recorder((self, row) -> {
+			if (self.rows.size() == 1)
+				table.put(List.of(1_000));
+		});
+		table.publisher().subscribe(recorder);
+
+		recorder.subscription.request(Long.MAX_VALUE);
+		assertInstanceOf(ConcurrentModificationException.class, recorder.error);
+		assertFalse(recorder.completed);
+	}
+}
@@ -0,0 +1,163 @@
+package tables;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Implements a read-only virtual table of
+ * the integers from zero up to a bound.
+ * <p>
+ * No row is stored: each row is generated when it
+ * is read, and the size, lookups and fingerprint
+ * are computed arithmetically from the bound, so the
+ * table takes constant time and memory to create.
+ * Each mutation throws an
+ * {@link UnsupportedOperationException}.
+ */
+public class RangeTable extends Table {
+	private final int upper;
+
+	/**
+	 * Creates a table of the integers from zero
+	 * up to the given bound, in a single primary
+	 * integer column of the given name.
+	 *
+	 * @param tableName the table name
+	 * @param columnName the column name
+	 * @param upper the bound, exclusive and non-negative
+	 */
+	public RangeTable(String tableName, String columnName, int upper) {
+		if (upper < 0)
+			throw new IllegalArgumentException("Bound <%d> is negative".formatted(upper));
+
+		this.tableName = tableName;
+		this.columnNames = List.of(columnName);
+		this.columnTypes = List.of("integer");
+		this.primaryIndex = 0;
+
+		this.upper = upper;
+	}
+
+	@Override
+	public void clear() {
+		throw new UnsupportedOperationException("Table <%s> is virtual".formatted(tableName));
+	}
+
+	@Override
+	public boolean put(List<Object> row) {
+		throw new UnsupportedOperationException("Table <%s> is virtual".formatted(tableName));
+	}
+
+	@Override
+	public boolean remove(Object key) {
+		throw new UnsupportedOperationException("Table <%s> is virtual".formatted(tableName));
+	}
+
+	@Override
+	public List<Object> get(Object key) {
+		return contains(key) ? List.of(key) : null;
+	}
+
+	@Override
+	public boolean contains(Object key) {
+		return key instanceof Integer i && i >= 0 && i < upper;
+	}
+
+	@Override
+	public int size() {
+		return upper;
+	}
+
+	@Override
+	public int capacity() {
+		return upper;
+	}
+
+	/**
+	 * Returns the sum of the integers in the table,
+	 * which is the sum of the hash codes in the state.
+	 * The sum wraps like a sum of each row would.
+	 *
+	 * @return the sum of the hash codes in the state.
+	 */
+	@Override
+	protected int stateHash() {
+		return (int) ((long) upper * (upper - 1) / 2);
+	}
+
+	@Override
+	public Iterator<List<Object>> iterator() {
+		return new Iterator<>() {
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next < upper;
+			}
+
+			@Override
+			public List<Object> next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+
+				return List.of(next++);
+			}
+		};
+	}
+
+	/**
+	 * Returns a spliterator that is sized
+	 * and splits evenly at every level.
+	 *
+	 * @return a spliterator of rows.
+	 */
+	@Override
+	public Spliterator<List<Object>> spliterator() {
+		return IntStream.range(0, upper)
+			.<List<Object>>mapToObj(List::of)
+			.spliterator();
+	}
+
+	/**
+	 * Returns a sequential stream of the rows in
+	 * range, in key order, which generates only
+	 * those rows when the bounds are integers.
+	 *
+	 * @param lo the lower bound, inclusive.
+	 * @param hi the upper bound, exclusive.
+	 * @return a stream of rows.
+	 */
+	@Override
+	public Stream<List<Object>> range(Object lo, Object hi) {
+		if (lo instanceof Integer from && hi instanceof Integer to)
+			return rows(Math.max(from, 0), Math.min(to, upper));
+		return super.range(lo, hi);
+	}
+
+	@Override
+	public Stream<List<Object>> headRange(Object hi) {
+		if (hi instanceof Integer to)
+			return rows(0, Math.min(to, upper));
+		return super.headRange(hi);
+	}
+
+	@Override
+	public Stream<List<Object>> tailRange(Object lo) {
+		if (lo instanceof Integer from)
+			return rows(Math.max(from, 0), upper);
+		return super.tailRange(lo);
+	}
+
+	private static Stream<List<Object>> rows(int from, int to) {
+		return IntStream.range(from, to).mapToObj(List::of);
+	}
+
+	@Override
+	public Table snapshot() {
+		return this;
+	}
+}
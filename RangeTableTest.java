@@ -0,0 +1,90 @@
+package grade;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import tables.HashArrayTable;
+import tables.RangeTable;
+import tables.Table;
+
+public class RangeTableTest {
+	/*
+	 * Copies each generated row into a stored table of the
+	 * same schema, whose fingerprint sums the rows it holds.
+	 */
+	private static Table materialize(RangeTable range) {
+		Table table = new HashArrayTable(
+			range.getTableName(),
+			range.getColumnNames(),
+			range.getColumnTypes(),
+			range.getPrimaryIndex()
+		);
+		for (List<Object> row: range)
+			table.put(row);
+		return table;
+	}
+
+	@Test
+	public void fingerprintMatchesMaterializedRows() {
+		// From 65537 up, the sum of the rows wraps
+		// past the largest int, as the stored sum does.
+		for (int upper: new int[] { 0, 1, 2, 3, 1000, 65536, 65537, 100_000, 1_000_003 }) {
+			RangeTable range = new RangeTable("r", "n", upper);
+			Table table = materialize(range);
+			assertEquals(upper, table.size());
+			assertEquals(table.hashCode(), range.hashCode(), "Bound <%d>".formatted(upper));
+			assertEquals(table, range);
+			assertEquals(range, table);
+		}
+	}
+
+	@Test
+	public void fingerprintDistinguishesBounds() {
+		assertNotEquals(new RangeTable("r", "n", 10), new RangeTable("r", "n", 11));
+		assertNotEquals(new RangeTable("r", "n", 10), new RangeTable("r", "m", 10));
+
+		Table table = materialize(new RangeTable("r", "n", 10));
+		table.remove(9);
+		assertNotEquals(table, new RangeTable("r", "n", 10));
+		assertEquals(table, new RangeTable("r", "n", 9));
+	}
+
+	@Test
+	public void lookupsMatchMaterializedRows() {
+		RangeTable range = new RangeTable("r", "n", 100);
+		Table table = materialize(range);
+		for (Object key: new Object[] { -1, 0, 1, 99, 100, Integer.MAX_VALUE, 5L, "5" }) {
+			assertEquals(table.contains(key), range.contains(key), "Key <%s>".formatted(key));
+			assertEquals(table.get(key), range.get(key));
+		}
+
+		assertEquals(List.of(List.of(98), List.of(99)), range.range(98, 1000).toList());
+		assertEquals(List.of(List.of(0), List.of(1)), range.range(-5, 2).toList());
+		assertEquals(2, range.headRange(2).count());
+		assertEquals(0, range.tailRange(100).count());
+		assertEquals(range.size(), range.parallelStream().count());
+	}
+
+	@Test
+	public void emptyRange() {
+		RangeTable range = new RangeTable("r", "n", 0);
+		assertTrue(range.isEmpty());
+		assertFalse(range.iterator().hasNext());
+		assertNull(range.get(0));
+		assertEquals(0, range.range(0, 10).count());
+		assertThrows(IllegalArgumentException.class, () -> new RangeTable("r", "n", -1));
+	}
+
+	@Test
+	public void mutationsAreRejected() {
+		RangeTable range = new RangeTable("r", "n", 10);
+		assertThrows(UnsupportedOperationException.class, () -> range.put(List.of(10)));
+		assertThrows(UnsupportedOperationException.class, () -> range.remove(0));
+		assertThrows(UnsupportedOperationException.class, range::clear);
+		assertEquals(10, range.size());
+		assertSame(range, range.snapshot());
+	}
+}
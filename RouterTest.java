@@ -0,0 +1,141 @@
+package grade;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+
+import apps.Database;
+import drivers.Driver;
+import drivers.Response;
+import drivers.Status;
+
+public class RouterTest {
+	/*
+	 * Answers the queries that match its predicate with its
+	 * own name, and notes each query it is asked to execute.
+	 */
+	private static class Named implements Driver {
+		private final String name, keyword;
+		private final Predicate<String> matches;
+		private final boolean announces;
+		private final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+
+		private Named(String name, String keyword, Predicate<String> matches, boolean announces) {
+			this.name = name;
+			this.keyword = keyword;
+			this.matches = matches;
+			this.announces = announces;
+		}
+
+		@Override
+		public Response execute(String query, Database db) {
+			executed.add(query);
+			if (!matches.test(query))
+				return new Response(query, Status.UNRECOGNIZED, null, null);
+			return new Response(query, Status.SUCCESSFUL, name, null);
+		}
+
+		@Override
+		public String keyword() {
+			return keyword;
+		}
+
+		@Override
+		public boolean recognizes(String query) {
+			return announces && matches.test(query);
+		}
+	}
+
+	private static Database database(List<Driver> extensions) {
+		return new Database(false, Path.of("data"), Duration.ZERO, Duration.ofHours(1), extensions);
+	}
+
+	private static Response interpret(Database db, String query) {
+		return db.interpret(List.of(query)).get(0);
+	}
+
+	@Test
+	public void keywordsIgnoreCase() throws IOException {
+		Named shout = new Named("shout", "Shout", q -> q.matches("(?i)\\s*shout\\s.*"), false);
+		Named other = new Named("other", null, q -> true, true);
+
+		try (Database db = database(List.of(other, shout))) {
+			for (String query: List.of("SHOUT a", "shout a", "  ShOuT a", "\tshout\ta"))
+				assertEquals("shout", interpret(db, query).message(), "Query <%s>".formatted(query));
+			assertTrue(other.executed.isEmpty(), "An owned keyword must not reach the fallback drivers");
+
+			assertEquals("x", interpret(db, "echo \"x\"").message(), "A built-in keyword must ignore case too");
+			assertEquals(Status.SUCCESSFUL, interpret(db, "range 2").status());
+			assertTrue(other.executed.isEmpty());
+
+			assertEquals("other", interpret(db, "SHOUTING a").message(), "A keyword is the whole run of letters");
+		}
+	}
+
+	@Test
+	public void sharedKeywordsKeepRegistrationOrder() throws IOException {
+		Named first = new Named("first", "JOB", q -> q.endsWith("1") || q.endsWith("*"), false);
+		Named second = new Named("second", "job", q -> q.endsWith("2") || q.endsWith("*"), false);
+		Named echo = new Named("echo", "ECHO", q -> q.equals("ECHO bare"), false);
+
+		try (Database db = database(List.of(first, second, echo))) {
+			assertEquals("first", interpret(db, "JOB 1").message());
+			assertEquals("second", interpret(db, "JOB 2").message());
+			assertEquals("first", interpret(db, "JOB *").message(), "The earlier driver must win");
+			assertEquals(Status.UNRECOGNIZED, interpret(db, "JOB 3").status());
+			assertEquals(List.of("JOB 1", "JOB 2", "JOB *", "JOB 3"), first.executed);
+			assertEquals(List.of("JOB 2", "JOB 3"), second.executed);
+
+			assertEquals("quoted", interpret(db, "ECHO \"quoted\"").message(), "A built-in driver comes first");
+			assertEquals("echo", interpret(db, "ECHO bare").message());
+			assertEquals(List.of("ECHO bare"), echo.executed);
+		}
+	}
+
+	@Test
+	public void fallbackKeepsRegistrationOrder() throws IOException {
+		Named silent = new Named("silent", null, q -> q.contains("a"), false);
+		Named early = new Named("early", null, q -> q.contains("b"), true);
+		Named late = new Named("late", null, q -> q.contains("b") || q.contains("c"), true);
+
+		try (Database db = database(List.of(silent, early, late))) {
+			assertEquals("silent", interpret(db, "ab").message(), "A driver that cannot announce is still tried in order");
+			assertEquals("early", interpret(db, "b").message());
+			assertEquals("early", interpret(db, "bc").message());
+			assertEquals("late", interpret(db, "c").message());
+			assertEquals("early", interpret(db, "  123 b").message(), "A query without a keyword falls back");
+
+			List<Response> responses = db.interpret(List.of("c", "a", "bc", "ab"));
+			assertEquals(List.of("late", "silent", "early", "silent"), responses.stream().map(Response::message).toList());
+		}
+	}
+
+	@Test
+	public void unknownQueriesAreUnrecognized() throws IOException {
+		Named only = new Named("only", null, q -> q.equals("ONLY"), true);
+
+		try (Database db = database(List.of(only))) {
+			for (String query: List.of("NOPE", "nope 1", "", "   ", "123", "RANGE x", "ECHO unquoted")) {
+				Response res = interpret(db, query);
+				assertEquals(Status.UNRECOGNIZED, res.status(), "Query <%s>".formatted(query));
+				assertEquals(query, res.query());
+			}
+			assertFalse(only.executed.contains("RANGE x"), "An owned keyword must not fall back");
+			assertFalse(only.executed.contains("ECHO unquoted"));
+			assertEquals("only", interpret(db, "ONLY").message());
+		}
+
+		try (Database db = new Database(false)) {
+			assertEquals(Status.UNRECOGNIZED, interpret(db, "NOPE").status());
+			assertEquals(Status.UNRECOGNIZED, interpret(db, "").status());
+		}
+	}
+}
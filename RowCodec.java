@@ -0,0 +1,357 @@
+package tables;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implements a compact binary encoding
+ * of rows driven by the column types.
+ * <p>
+ * A record is the length of its body followed by the body:
+ * a bit set of the null fields, then the primary field,
+ * then the remaining non-null fields in column order.
+ * An integer takes 4 bytes, a boolean takes 1 byte,
+ * and a string takes its UTF-8 length in 4 bytes
+ * followed by its UTF-8 bytes. Integers are big-endian,
+ * which is the default order of a buffer.
+ * <p>
+ * Placing the primary field first means a key can be
+ * compared in place, without decoding the record.
+ */
+final class RowCodec {
+	static final byte INTEGER = 0;
+	static final byte BOOLEAN = 1;
+	static final byte STRING = 2;
+
+	private final List<String> columnTypes;
+	private final byte[] kinds;
+	private final int primaryIndex;
+	private final int bitmapBytes;
+
+	private byte[] scratch = new byte[256];
+
+	/**
+	 * Creates a codec for the given schema.
+	 *
+	 * @param columnTypes the column types.
+	 * @param primaryIndex the primary index.
+	 */
+	RowCodec(List<String> columnTypes, int primaryIndex) {
+		this.columnTypes = columnTypes;
+		this.primaryIndex = primaryIndex;
+
+		kinds = new byte[columnTypes.size()];
+		for (int c = 0; c < kinds.length; c++) {
+			kinds[c] = switch (columnTypes.get(c)) {
+				case "integer" -> INTEGER;
+				case "boolean" -> BOOLEAN;
+				case "string" -> STRING;
+				default -> throw new IllegalArgumentException(
+					"Column type <%s> is unsupported".formatted(columnTypes.get(c))
+				);
+			};
+		}
+
+		bitmapBytes = (kinds.length + 7) >>> 3;
+	}
+
+	/**
+	 * Throws an exception unless the given fields
+	 * match the column types of the schema.
+	 *
+	 * @param values the fields of a row.
+	 */
+	void validate(Object[] values) {
+		if (values.length != kinds.length)
+			throw new IllegalArgumentException(
+				"Row has %d fields but the schema has %d columns".formatted(values.length, kinds.length)
+			);
+
+		for (int c = 0; c < kinds.length; c++) {
+			Object v = values[c];
+			if (v == null) {
+				if (c == primaryIndex)
+					throw new IllegalArgumentException("Primary key must not be null");
+				continue;
+			}
+
+			boolean valid = switch (kinds[c]) {
+				case INTEGER -> v instanceof Integer;
+				case BOOLEAN -> v instanceof Boolean;
+				default -> v instanceof String;
+			};
+			if (!valid)
+				throw new IllegalArgumentException(
+					"Field <%s> does not match column type <%s>".formatted(v, columnTypes.get(c))
+				);
+		}
+	}
+
+	/**
+	 * Encodes the given validated fields as a record into
+	 * an internal scratch array, then returns the length
+	 * of the record; see {@link #copyTo(ByteBuffer, int)}.
+	 *
+	 * @param values the fields of a row.
+	 * @return the length of the record, in bytes.
+	 */
+	int encode(Object[] values) {
+		int pos = 4;
+		ensure(pos + bitmapBytes);
+		Arrays.fill(scratch, pos, pos + bitmapBytes, (byte) 0);
+		for (int c = 0; c < kinds.length; c++)
+			if (values[c] == null)
+				scratch[pos + (c >>> 3)] |= (byte) (1 << (c & 7));
+		pos += bitmapBytes;
+
+		pos = encodeField(values[primaryIndex], kinds[primaryIndex], pos);
+		for (int c = 0; c < kinds.length; c++)
+			if (c != primaryIndex && values[c] != null)
+				pos = encodeField(values[c], kinds[c], pos);
+
+		writeInt(scratch, 0, pos - 4);
+		return pos;
+	}
+
+	/**
+	 * Copies the record last encoded into
+	 * the given buffer at the given offset.
+	 *
+	 * @param buffer a buffer.
+	 * @param offset an offset in the buffer.
+	 */
+	void copyTo(ByteBuffer buffer, int offset) {
+		buffer.put(offset, scratch, 0, 4 + readInt(scratch, 0));
+	}
+
+	/**
+	 * Returns the length of the record
+	 * at the given offset, in bytes.
+	 *
+	 * @param buffer a buffer.
+	 * @param offset the offset of a record.
+	 * @return the length of the record.
+	 */
+	int length(ByteBuffer buffer, int offset) {
+		return 4 + buffer.getInt(offset);
+	}
+
+	/**
+	 * Decodes the record at the given offset.
+	 *
+	 * @param buffer a buffer.
+	 * @param offset the offset of a record.
+	 * @return the fields of the row.
+	 */
+	Object[] decode(ByteBuffer buffer, int offset) {
+		Object[] values = new Object[kinds.length];
+
+		int bitmap = offset + 4;
+		int pos = bitmap + bitmapBytes;
+
+		pos = decodeField(buffer, pos, kinds[primaryIndex], values, primaryIndex);
+		for (int c = 0; c < kinds.length; c++) {
+			if (c == primaryIndex)
+				continue;
+			if ((buffer.get(bitmap + (c >>> 3)) & (1 << (c & 7))) != 0)
+				continue;
+			pos = decodeField(buffer, pos, kinds[c], values, c);
+		}
+
+		return values;
+	}
+
+	/**
+	 * Returns the sum of the hash codes of the fields
+	 * of the record at the given offset, computed in place
+	 * without decoding; see {@link Table#rowHash(Object[])}.
+	 *
+	 * @param buffer a buffer.
+	 * @param offset the offset of a record.
+	 * @return the sum of the hash codes.
+	 */
+	int hash(ByteBuffer buffer, int offset) {
+		int bitmap = offset + 4;
+		int pos = bitmap + bitmapBytes;
+
+		int sum = fieldHash(buffer, pos, kinds[primaryIndex]);
+		pos = skipField(buffer, pos, kinds[primaryIndex]);
+		for (int c = 0; c < kinds.length; c++) {
+			if (c == primaryIndex)
+				continue;
+			if ((buffer.get(bitmap + (c >>> 3)) & (1 << (c & 7))) != 0)
+				continue;
+			sum += fieldHash(buffer, pos, kinds[c]);
+			pos = skipField(buffer, pos, kinds[c]);
+		}
+
+		return sum;
+	}
+
+	/**
+	 * Reduces the given key to a probe that can be
+	 * compared in place against encoded records,
+	 * or returns <code>null</code> if the key cannot
+	 * match the type of the primary column.
+	 *
+	 * @param key a key.
+	 * @return the probe, if any.
+	 */
+	Object probe(Object key) {
+		return switch (kinds[primaryIndex]) {
+			case INTEGER -> key instanceof Integer ? key : null;
+			case BOOLEAN -> key instanceof Boolean ? key : null;
+			default -> key instanceof String s ? s.getBytes(UTF_8) : null;
+		};
+	}
+
+	/**
+	 * Returns whether the record at the given
+	 * offset has the key of the given probe.
+	 *
+	 * @param buffer a buffer.
+	 * @param offset the offset of a record.
+	 * @param probe a probe of a key.
+	 * @return whether the keys are equal.
+	 */
+	boolean matches(ByteBuffer buffer, int offset, Object probe) {
+		int pos = offset + 4 + bitmapBytes;
+		return switch (kinds[primaryIndex]) {
+			case INTEGER -> buffer.getInt(pos) == (Integer) probe;
+			case BOOLEAN -> (buffer.get(pos) != 0) == (Boolean) probe;
+			default -> {
+				byte[] bytes = (byte[]) probe;
+				if (buffer.getInt(pos) != bytes.length)
+					yield false;
+				pos += 4;
+				for (int i = 0; i < bytes.length; i++)
+					if (buffer.get(pos + i) != bytes[i])
+						yield false;
+				yield true;
+			}
+		};
+	}
+
+	private int encodeField(Object v, byte kind, int pos) {
+		switch (kind) {
+			case INTEGER -> {
+				ensure(pos + 4);
+				writeInt(scratch, pos, (Integer) v);
+				return pos + 4;
+			}
+			case BOOLEAN -> {
+				ensure(pos + 1);
+				scratch[pos] = (byte) ((Boolean) v ? 1 : 0);
+				return pos + 1;
+			}
+			default -> {
+				byte[] bytes = ((String) v).getBytes(UTF_8);
+				ensure(pos + 4 + bytes.length);
+				writeInt(scratch, pos, bytes.length);
+				System.arraycopy(bytes, 0, scratch, pos + 4, bytes.length);
+				return pos + 4 + bytes.length;
+			}
+		}
+	}
+
+	private static int decodeField(ByteBuffer buffer, int pos, byte kind, Object[] values, int column) {
+		switch (kind) {
+			case INTEGER -> {
+				values[column] = buffer.getInt(pos);
+				return pos + 4;
+			}
+			case BOOLEAN -> {
+				values[column] = buffer.get(pos) != 0;
+				return pos + 1;
+			}
+			default -> {
+				int length = buffer.getInt(pos);
+				byte[] bytes = new byte[length];
+				buffer.get(pos + 4, bytes);
+				values[column] = new String(bytes, UTF_8);
+				return pos + 4 + length;
+			}
+		}
+	}
+
+	private static int fieldHash(ByteBuffer buffer, int pos, byte kind) {
+		return switch (kind) {
+			case INTEGER -> buffer.getInt(pos);
+			case BOOLEAN -> Boolean.hashCode(buffer.get(pos) != 0);
+			default -> stringHash(buffer, pos + 4, buffer.getInt(pos));
+		};
+	}
+
+	private static int skipField(ByteBuffer buffer, int pos, byte kind) {
+		return switch (kind) {
+			case INTEGER -> pos + 4;
+			case BOOLEAN -> pos + 1;
+			default -> pos + 4 + buffer.getInt(pos);
+		};
+	}
+
+	/**
+	 * Returns the {@link String#hashCode()} of the string
+	 * encoded in UTF-8 at the given position, decoding
+	 * each code point into its UTF-16 units in place.
+	 *
+	 * @param buffer a buffer.
+	 * @param pos the position of the UTF-8 bytes.
+	 * @param length the number of UTF-8 bytes.
+	 * @return the hash code of the string.
+	 */
+	private static int stringHash(ByteBuffer buffer, int pos, int length) {
+		int h = 0;
+		for (int i = pos, end = pos + length; i < end; ) {
+			int b = buffer.get(i) & 0xFF;
+			int cp;
+			if (b < 0x80) {
+				cp = b;
+				i += 1;
+			}
+			else if (b < 0xE0) {
+				cp = (b & 0x1F) << 6 | (buffer.get(i + 1) & 0x3F);
+				i += 2;
+			}
+			else if (b < 0xF0) {
+				cp = (b & 0x0F) << 12 | (buffer.get(i + 1) & 0x3F) << 6 | (buffer.get(i + 2) & 0x3F);
+				i += 3;
+			}
+			else {
+				cp = (b & 0x07) << 18 | (buffer.get(i + 1) & 0x3F) << 12
+					| (buffer.get(i + 2) & 0x3F) << 6 | (buffer.get(i + 3) & 0x3F);
+				i += 4;
+			}
+
+			if (Character.isBmpCodePoint(cp))
+				h = 31 * h + cp;
+			else {
+				h = 31 * h + Character.highSurrogate(cp);
+				h = 31 * h + Character.lowSurrogate(cp);
+			}
+		}
+		return h;
+	}
+
+	private void ensure(int length) {
+		if (length > scratch.length)
+			scratch = Arrays.copyOf(scratch, Math.max(length, scratch.length * 2));
+	}
+
+	private static void writeInt(byte[] bytes, int pos, int v) {
+		bytes[pos] = (byte) (v >>> 24);
+		bytes[pos + 1] = (byte) (v >>> 16);
+		bytes[pos + 2] = (byte) (v >>> 8);
+		bytes[pos + 3] = (byte) v;
+	}
+
+	private static int readInt(byte[] bytes, int pos) {
+		return (bytes[pos] & 0xFF) << 24
+			| (bytes[pos + 1] & 0xFF) << 16
+			| (bytes[pos + 2] & 0xFF) << 8
+			| (bytes[pos + 3] & 0xFF);
+	}
+}
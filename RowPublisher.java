@@ -0,0 +1,112 @@
+package tables;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implements a publisher of the rows of a table,
+ * which produces each row only once it is requested.
+ * <p>
+ * The publisher is cold: each subscriber gets its own
+ * iteration, which begins at its first request. Rows are
+ * delivered on the thread that requests them, and a
+ * request made from within <code>onNext</code> is queued
+ * as demand rather than delivered recursively. A failure
+ * of the iteration, such as a concurrent modification,
+ * is signalled to the subscriber as an error.
+ */
+final class RowPublisher implements Flow.Publisher<List<Object>> {
+	private final Iterable<List<Object>> rows;
+
+	/**
+	 * Creates a publisher of the given rows.
+	 *
+	 * @param rows the rows.
+	 */
+	RowPublisher(Iterable<List<Object>> rows) {
+		this.rows = rows;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super List<Object>> subscriber) {
+		Objects.requireNonNull(subscriber);
+		subscriber.onSubscribe(new RowSubscription(subscriber));
+	}
+
+	/**
+	 * Implements the subscription of one subscriber,
+	 * where the thread that raises the demand from zero
+	 * delivers rows until the demand is met again.
+	 */
+	private final class RowSubscription implements Flow.Subscription {
+		private final Flow.Subscriber<? super List<Object>> subscriber;
+		private final AtomicLong demand = new AtomicLong();
+		private volatile boolean done;
+		private Iterator<List<Object>> iterator;
+
+		private RowSubscription(Flow.Subscriber<? super List<Object>> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				if (!done) {
+					done = true;
+					subscriber.onError(new IllegalArgumentException("Request must be positive"));
+				}
+				return;
+			}
+
+			long previous = demand.getAndAccumulate(n, (d, m) -> d + m < 0 ? Long.MAX_VALUE : d + m);
+			if (previous == 0)
+				drain();
+		}
+
+		@Override
+		public void cancel() {
+			done = true;
+		}
+
+		private void drain() {
+			long requested = demand.get();
+			long emitted = 0;
+
+			while (true) {
+				while (!done) {
+					List<Object> row;
+					try {
+						if (iterator == null)
+							iterator = rows.iterator();
+						if (!iterator.hasNext()) {
+							done = true;
+							subscriber.onComplete();
+							return;
+						}
+						if (emitted == requested)
+							break;
+						row = iterator.next();
+					}
+					catch (RuntimeException e) {
+						done = true;
+						subscriber.onError(e);
+						return;
+					}
+
+					subscriber.onNext(row);
+					emitted++;
+				}
+				if (done)
+					return;
+
+				requested = demand.addAndGet(-emitted);
+				emitted = 0;
+				if (requested == 0)
+					return;
+			}
+		}
+	}
+}
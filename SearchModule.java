@@ -0,0 +1,31 @@
+package grade;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+
+import tables.SearchTable;
+import tables.Table;
+
+public class SearchModule extends EngineModule {
+	@BeforeAll
+	public static void setup() {
+		module_tag = "MS";
+		calls_per_table = 2500;
+	}
+
+	@Override
+	protected String prefix() {
+		return "ms";
+	}
+
+	@Override
+	protected Class<? extends Table> engine() {
+		return SearchTable.class;
+	}
+
+	@Override
+	protected Table create(String tableName, List<String> columnNames, List<String> columnTypes, Integer primaryIndex) {
+		return new SearchTable(tableName, columnNames, columnTypes, primaryIndex);
+	}
+}
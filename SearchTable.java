@@ -0,0 +1,557 @@
+package tables;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Implements a search-based table
+ * using a B+ tree data structure.
+ * <p>
+ * Each node is a wide array of keys, so a lookup reads
+ * a few contiguous arrays and binary searches each one,
+ * instead of chasing a pointer per comparison. The rows
+ * are kept in the leaves, in key order, and each leaf
+ * links to the next, so iteration follows key order
+ * and a range scan descends once to its lower bound,
+ * then reads only the rows in range.
+ * <p>
+ * Keys are ordered by {@link Table#compareKeys}. Every
+ * node but the root is kept at least half full: an
+ * overflowing node is split in two, and an underflowing
+ * node borrows from a sibling or merges with one.
+ */
+public class SearchTable extends Table {
+	private static final int ORDER = 64;
+	private static final int MIN = ORDER / 2;
+
+	private Node root;
+	private int height;
+	private int size;
+	private int leaves;
+	private int stateHash;
+	private int modCount;
+
+	/**
+	 * Implements a node with up to {@link #ORDER} keys,
+	 * and room for one more until it is split.
+	 */
+	private abstract static class Node {
+		final Object[] keys = new Object[ORDER + 1];
+		int size;
+	}
+
+	/**
+	 * Implements a leaf, where each
+	 * key has the fields of its row.
+	 */
+	private static final class Leaf extends Node {
+		final Object[][] rows = new Object[ORDER + 1][];
+		Leaf next;
+	}
+
+	/**
+	 * Implements an inner node, where each key is
+	 * the least key under the child that follows it.
+	 */
+	private static final class Inner extends Node {
+		final Node[] children = new Node[ORDER + 2];
+	}
+
+	/**
+	 * Creates a table and initializes
+	 * the data structure.
+	 *
+	 * @param tableName the table name
+	 * @param columnNames the column names
+	 * @param columnTypes the column types
+	 * @param primaryIndex the primary index
+	 */
+	public SearchTable(String tableName, List<String> columnNames, List<String> columnTypes, Integer primaryIndex) {
+		this.tableName = tableName;
+		this.columnNames = List.copyOf(columnNames);
+		this.columnTypes = List.copyOf(columnTypes);
+		this.primaryIndex = primaryIndex;
+
+		root = new Leaf();
+		leaves = 1;
+	}
+
+	@Override
+	public void clear() {
+		root = new Leaf();
+		height = 0;
+		size = 0;
+		leaves = 1;
+		stateHash = 0;
+		modCount++;
+
+		fireClear();
+	}
+
+	@Override
+	public boolean put(List<Object> row) {
+		Object[] values = row.toArray();
+		Object key = values[primaryIndex];
+
+		Inner[] path = new Inner[height];
+		int[] slots = new int[height];
+		Leaf leaf = descend(key, path, slots);
+
+		int i = search(leaf, key);
+		if (i >= 0) {
+			Object[] replaced = leaf.rows[i];
+			leaf.rows[i] = values;
+			stateHash += rowHash(values) - rowHash(replaced);
+			modCount++;
+
+			if (observed())
+				firePut(view(replaced), view(values));
+			return true;
+		}
+
+		insert(leaf, -i - 1, key, values);
+		size++;
+		stateHash += rowHash(values);
+		modCount++;
+
+		Node node = leaf;
+		for (int d = height - 1; d >= 0 && node.size > ORDER; d--) {
+			split(path[d], slots[d]);
+			node = path[d];
+		}
+		if (node.size > ORDER)
+			splitRoot();
+
+		if (observed())
+			firePut(null, view(values));
+		return false;
+	}
+
+	@Override
+	public boolean remove(Object key) {
+		Inner[] path = new Inner[height];
+		int[] slots = new int[height];
+		Leaf leaf = descend(key, path, slots);
+
+		int i = search(leaf, key);
+		if (i < 0)
+			return false;
+
+		Object[] removed = leaf.rows[i];
+		delete(leaf, i);
+		size--;
+		stateHash -= rowHash(removed);
+		modCount++;
+
+		Node node = leaf;
+		for (int d = height - 1; d >= 0 && node.size < MIN; d--) {
+			rebalance(path[d], slots[d]);
+			node = path[d];
+		}
+		if (root instanceof Inner inner && inner.size == 0) {
+			root = inner.children[0];
+			height--;
+		}
+
+		if (observed())
+			fireRemove(view(removed));
+		return true;
+	}
+
+	@Override
+	public List<Object> get(Object key) {
+		Leaf leaf = descend(key, null, null);
+		int i = search(leaf, key);
+		return i >= 0 ? view(leaf.rows[i]) : null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int capacity() {
+		return leaves * ORDER;
+	}
+
+	@Override
+	protected int stateHash() {
+		return stateHash;
+	}
+
+	/**
+	 * Returns an iterator over each row in the state,
+	 * in key order.
+	 *
+	 * @return an iterator of rows.
+	 */
+	@Override
+	public Iterator<List<Object>> iterator() {
+		return new LeafIterator(first(), 0, null);
+	}
+
+	@Override
+	public Spliterator<List<Object>> spliterator() {
+		return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+	}
+
+	/**
+	 * Returns a sequential stream of the rows in
+	 * range, in key order, which descends once to
+	 * the lower bound and then reads only those rows.
+	 *
+	 * @param lo the lower bound, inclusive.
+	 * @param hi the upper bound, exclusive.
+	 * @return a stream of rows.
+	 */
+	@Override
+	public Stream<List<Object>> range(Object lo, Object hi) {
+		return scan(lo, hi);
+	}
+
+	@Override
+	public Stream<List<Object>> headRange(Object hi) {
+		return scan(null, hi);
+	}
+
+	@Override
+	public Stream<List<Object>> tailRange(Object lo) {
+		return scan(lo, null);
+	}
+
+	private Stream<List<Object>> scan(Object lo, Object hi) {
+		LeafIterator iterator;
+		if (lo != null) {
+			Leaf leaf = descend(lo, null, null);
+			int i = search(leaf, lo);
+			iterator = new LeafIterator(leaf, i >= 0 ? i : -i - 1, hi);
+		}
+		else
+			iterator = new LeafIterator(first(), 0, hi);
+
+		return StreamSupport.stream(
+			Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL),
+			false
+		);
+	}
+
+	/**
+	 * Descends from the root to the leaf where the given
+	 * key is or belongs, recording the inner nodes along
+	 * the way and the child taken in each, if asked to.
+	 *
+	 * @param key a key.
+	 * @param path the inner nodes from the root, if any.
+	 * @param slots the child taken in each, if any.
+	 * @return the leaf.
+	 */
+	private Leaf descend(Object key, Inner[] path, int[] slots) {
+		Node node = root;
+		for (int d = 0; d < height; d++) {
+			Inner inner = (Inner) node;
+			int i = child(inner, key);
+			if (path != null) {
+				path[d] = inner;
+				slots[d] = i;
+			}
+			node = inner.children[i];
+		}
+		return (Leaf) node;
+	}
+
+	private Leaf first() {
+		Node node = root;
+		for (int d = 0; d < height; d++)
+			node = ((Inner) node).children[0];
+		return (Leaf) node;
+	}
+
+	/**
+	 * Returns the index of the given key in the given
+	 * leaf, or <code>-(insertion point) - 1</code> if
+	 * it is absent, as by {@link Arrays#binarySearch}.
+	 *
+	 * @param leaf a leaf.
+	 * @param key a key.
+	 * @return the index, if any.
+	 */
+	private static int search(Leaf leaf, Object key) {
+		int lo = 0, hi = leaf.size - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int c = compareKeys(leaf.keys[mid], key);
+			if (c < 0)
+				lo = mid + 1;
+			else if (c > 0)
+				hi = mid - 1;
+			else
+				return mid;
+		}
+		return -lo - 1;
+	}
+
+	/**
+	 * Returns the index of the child of the given
+	 * inner node under which the given key belongs,
+	 * which follows the last key not greater than it.
+	 *
+	 * @param inner an inner node.
+	 * @param key a key.
+	 * @return the index of the child.
+	 */
+	private static int child(Inner inner, Object key) {
+		int lo = 0, hi = inner.size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (compareKeys(inner.keys[mid], key) <= 0)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	private static void insert(Leaf leaf, int i, Object key, Object[] values) {
+		System.arraycopy(leaf.keys, i, leaf.keys, i + 1, leaf.size - i);
+		System.arraycopy(leaf.rows, i, leaf.rows, i + 1, leaf.size - i);
+		leaf.keys[i] = key;
+		leaf.rows[i] = values;
+		leaf.size++;
+	}
+
+	private static void delete(Leaf leaf, int i) {
+		System.arraycopy(leaf.keys, i + 1, leaf.keys, i, leaf.size - i - 1);
+		System.arraycopy(leaf.rows, i + 1, leaf.rows, i, leaf.size - i - 1);
+		leaf.size--;
+		leaf.keys[leaf.size] = null;
+		leaf.rows[leaf.size] = null;
+	}
+
+	/**
+	 * Splits the overflowing child at the given
+	 * index of the given inner node in two, and
+	 * inserts the new right half after it.
+	 *
+	 * @param parent an inner node.
+	 * @param i the index of the child.
+	 */
+	private void split(Inner parent, int i) {
+		Node left = parent.children[i];
+		Object separator;
+		Node right;
+
+		if (left instanceof Leaf leaf) {
+			Leaf half = new Leaf();
+			int m = leaf.size / 2;
+			half.size = leaf.size - m;
+			System.arraycopy(leaf.keys, m, half.keys, 0, half.size);
+			System.arraycopy(leaf.rows, m, half.rows, 0, half.size);
+			Arrays.fill(leaf.keys, m, leaf.size, null);
+			Arrays.fill(leaf.rows, m, leaf.size, null);
+			leaf.size = m;
+
+			half.next = leaf.next;
+			leaf.next = half;
+			leaves++;
+
+			separator = half.keys[0];
+			right = half;
+		}
+		else {
+			Inner inner = (Inner) left;
+			Inner half = new Inner();
+			int m = inner.size / 2;
+			separator = inner.keys[m];
+			half.size = inner.size - m - 1;
+			System.arraycopy(inner.keys, m + 1, half.keys, 0, half.size);
+			System.arraycopy(inner.children, m + 1, half.children, 0, half.size + 1);
+			Arrays.fill(inner.keys, m, inner.size, null);
+			Arrays.fill(inner.children, m + 1, inner.size + 1, null);
+			inner.size = m;
+
+			right = half;
+		}
+
+		System.arraycopy(parent.keys, i, parent.keys, i + 1, parent.size - i);
+		System.arraycopy(parent.children, i + 1, parent.children, i + 2, parent.size - i);
+		parent.keys[i] = separator;
+		parent.children[i + 1] = right;
+		parent.size++;
+	}
+
+	private void splitRoot() {
+		Inner inner = new Inner();
+		inner.children[0] = root;
+		root = inner;
+		height++;
+		split(inner, 0);
+	}
+
+	/**
+	 * Restores the underflowing child at the given index
+	 * of the given inner node, by borrowing a key from
+	 * a sibling that can spare one, or otherwise merging
+	 * it with a sibling.
+	 *
+	 * @param parent an inner node.
+	 * @param i the index of the child.
+	 */
+	private void rebalance(Inner parent, int i) {
+		Node left = i > 0 ? parent.children[i - 1] : null;
+		Node right = i < parent.size ? parent.children[i + 1] : null;
+
+		if (left != null && left.size > MIN)
+			borrowLeft(parent, i);
+		else if (right != null && right.size > MIN)
+			borrowRight(parent, i);
+		else if (left != null)
+			merge(parent, i - 1);
+		else
+			merge(parent, i);
+	}
+
+	private static void borrowLeft(Inner parent, int i) {
+		Node node = parent.children[i];
+		Node left = parent.children[i - 1];
+
+		if (node instanceof Leaf leaf) {
+			Leaf from = (Leaf) left;
+			insert(leaf, 0, from.keys[from.size - 1], from.rows[from.size - 1]);
+			delete(from, from.size - 1);
+			parent.keys[i - 1] = leaf.keys[0];
+		}
+		else {
+			Inner inner = (Inner) node;
+			Inner from = (Inner) left;
+			System.arraycopy(inner.keys, 0, inner.keys, 1, inner.size);
+			System.arraycopy(inner.children, 0, inner.children, 1, inner.size + 1);
+			inner.keys[0] = parent.keys[i - 1];
+			inner.children[0] = from.children[from.size];
+			inner.size++;
+
+			parent.keys[i - 1] = from.keys[from.size - 1];
+			from.keys[from.size - 1] = null;
+			from.children[from.size] = null;
+			from.size--;
+		}
+	}
+
+	private static void borrowRight(Inner parent, int i) {
+		Node node = parent.children[i];
+		Node right = parent.children[i + 1];
+
+		if (node instanceof Leaf leaf) {
+			Leaf from = (Leaf) right;
+			insert(leaf, leaf.size, from.keys[0], from.rows[0]);
+			delete(from, 0);
+			parent.keys[i] = from.keys[0];
+		}
+		else {
+			Inner inner = (Inner) node;
+			Inner from = (Inner) right;
+			inner.keys[inner.size] = parent.keys[i];
+			inner.children[inner.size + 1] = from.children[0];
+			inner.size++;
+
+			parent.keys[i] = from.keys[0];
+			System.arraycopy(from.keys, 1, from.keys, 0, from.size - 1);
+			System.arraycopy(from.children, 1, from.children, 0, from.size);
+			from.keys[from.size - 1] = null;
+			from.children[from.size] = null;
+			from.size--;
+		}
+	}
+
+	/**
+	 * Merges the child after the key at the given index
+	 * of the given inner node into the child before it,
+	 * and removes the key and the emptied child.
+	 *
+	 * @param parent an inner node.
+	 * @param k the index of the separating key.
+	 */
+	private void merge(Inner parent, int k) {
+		Node left = parent.children[k];
+		Node right = parent.children[k + 1];
+
+		if (left instanceof Leaf leaf) {
+			Leaf from = (Leaf) right;
+			System.arraycopy(from.keys, 0, leaf.keys, leaf.size, from.size);
+			System.arraycopy(from.rows, 0, leaf.rows, leaf.size, from.size);
+			leaf.size += from.size;
+			leaf.next = from.next;
+			leaves--;
+		}
+		else {
+			Inner inner = (Inner) left;
+			Inner from = (Inner) right;
+			inner.keys[inner.size] = parent.keys[k];
+			System.arraycopy(from.keys, 0, inner.keys, inner.size + 1, from.size);
+			System.arraycopy(from.children, 0, inner.children, inner.size + 1, from.size + 1);
+			inner.size += 1 + from.size;
+		}
+
+		System.arraycopy(parent.keys, k + 1, parent.keys, k, parent.size - k - 1);
+		System.arraycopy(parent.children, k + 2, parent.children, k + 1, parent.size - k - 1);
+		parent.size--;
+		parent.keys[parent.size] = null;
+		parent.children[parent.size + 1] = null;
+	}
+
+	private static List<Object> view(Object[] values) {
+		return Collections.unmodifiableList(Arrays.asList(values));
+	}
+
+	/**
+	 * Implements a fail-fast iterator that follows
+	 * the leaf links from the given position, until
+	 * the last leaf or the given upper bound.
+	 */
+	private class LeafIterator implements Iterator<List<Object>> {
+		private final int expectedModCount = modCount;
+		private final Object hi;
+		private Leaf leaf;
+		private int index;
+
+		private LeafIterator(Leaf leaf, int index, Object hi) {
+			this.leaf = leaf;
+			this.index = index;
+			this.hi = hi;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+
+			while (leaf != null && index >= leaf.size) {
+				leaf = leaf.next;
+				index = 0;
+			}
+			if (leaf == null)
+				return false;
+			if (hi != null && compareKeys(leaf.keys[index], hi) >= 0) {
+				leaf = null;
+				return false;
+			}
+			return true;
+		}
+
+		@Override
+		public List<Object> next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+
+			return view(leaf.rows[index++]);
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package grade;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import tables.SearchTable;
+
+public class SearchTableTest {
+	private static final int ORDER = 64;
+
+	private static SearchTable table() {
+		return new SearchTable("t", List.of("k", "v"), List.of("integer", "string"), 0);
+	}
+
+	private static List<Integer> keys(Stream<List<Object>> rows) {
+		return rows.map(row -> (Integer) row.get(0)).toList();
+	}
+
+	private static List<Integer> between(int lo, int hi) {
+		return IntStream.range(lo, hi).boxed().toList();
+	}
+
+	@Test
+	public void leafSplitsPastOrder() {
+		SearchTable table = table();
+		for (int k = 0; k < ORDER; k++)
+			table.put(List.of(k, "v"));
+		assertEquals(ORDER, table.capacity());
+
+		table.put(List.of(ORDER, "v"));
+		assertEquals(2 * ORDER, table.capacity());
+		assertEquals(between(0, ORDER + 1), keys(table.stream()));
+	}
+
+	@Test
+	public void rangesAreHalfOpenAcrossLeaves() {
+		SearchTable table = table();
+		int n = ORDER * ORDER + 1;
+		for (int k = n - 1; k >= 0; k--)
+			table.put(List.of(2 * k, "v"));
+
+		assertEquals(between(0, n).stream().map(k -> 2 * k).toList(), keys(table.stream()));
+
+		for (int lo : new int[] { -1, 0, 1, 2 * ORDER - 2, 2 * ORDER - 1, 2 * ORDER, 2 * n - 2, 2 * n }) {
+			for (int hi : new int[] { 0, 2, 2 * ORDER, 2 * ORDER + 1, 2 * n - 2, 2 * n - 1 }) {
+				int from = lo, to = hi;
+				List<Integer> expected = between(Math.max(from, 0), Math.min(to, 2 * n))
+					.stream().filter(k -> k % 2 == 0).toList();
+				assertEquals(expected, keys(table.range(from, to)), "range(%d, %d)".formatted(from, to));
+			}
+		}
+
+		assertEquals(List.of(), keys(table.range(10, 10)));
+		assertEquals(List.of(), keys(table.range(11, 10)));
+		assertEquals(List.of(0, 2), keys(table.headRange(4)));
+		assertEquals(List.of(0, 2, 4), keys(table.headRange(5)));
+		assertEquals(List.of(2 * n - 4, 2 * n - 2), keys(table.tailRange(2 * n - 4)));
+		assertEquals(List.of(2 * n - 2), keys(table.tailRange(2 * n - 3)));
+		assertEquals(List.of(), keys(table.tailRange(2 * n)));
+	}
+
+	@Test
+	public void removalsMergeBackToOneLeaf() {
+		SearchTable table = table();
+		int n = ORDER * ORDER + 1;
+		for (int k = 0; k < n; k++)
+			table.put(List.of(k, "v"));
+
+		for (int k = 0; k < n - ORDER; k++)
+			assertTrue(table.remove(k));
+		assertEquals(between(n - ORDER, n), keys(table.stream()));
+
+		assertTrue(table.remove(n - ORDER));
+		assertEquals(ORDER - 1, table.size());
+		assertEquals(ORDER, table.capacity());
+		assertEquals(between(n - ORDER + 1, n), keys(table.stream()));
+		assertEquals(between(n - ORDER + 1, n - ORDER / 2), keys(table.headRange(n - ORDER / 2)));
+	}
+
+	@Test
+	public void matchesSortedMap() {
+		SearchTable table = table();
+		TreeMap<Integer, List<Object>> expected = new TreeMap<>();
+		Random rng = new Random(17);
+		for (int i = 0; i < 50_000; i++) {
+			int k = rng.nextInt(5_000);
+			if (rng.nextInt(3) == 0) {
+				assertEquals(expected.remove(k) != null, table.remove(k));
+			}
+			else {
+				List<Object> row = List.of(k, "v" + i);
+				assertEquals(expected.put(k, row) != null, table.put(row));
+			}
+		}
+
+		assertEquals(expected.size(), table.size());
+		assertEquals(new ArrayList<>(expected.values()), table.stream().toList());
+		assertEquals(new ArrayList<>(expected.subMap(1_000, 2_000).keySet()), keys(table.range(1_000, 2_000)));
+	}
+}
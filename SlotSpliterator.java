@@ -0,0 +1,151 @@
+package tables;
+
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Implements a spliterator over the rows
+ * in a range of slots of a table engine,
+ * which splits by halving the range.
+ * <p>
+ * If every slot in the range holds a row, the spliterator
+ * is exact: it and each of its splits are sized. Otherwise
+ * only the spliterator before any split is sized, since
+ * the rows are spread unevenly across the slots, and each
+ * split estimates half the rows of its parent.
+ * <p>
+ * Like the iterators of the engines, it is fail-fast,
+ * and checks for a modification before reading each slot,
+ * since a slot could refer to a record that has moved.
+ */
+final class SlotSpliterator implements Spliterator<List<Object>> {
+	/**
+	 * Defines the protocols for reading
+	 * the slots of a table engine.
+	 */
+	interface Source {
+		/**
+		 * Returns whether the given slot holds a row.
+		 *
+		 * @param slot a slot.
+		 * @return whether the slot holds a row.
+		 */
+		boolean occupied(int slot);
+
+		/**
+		 * Returns the row in the given occupied slot.
+		 *
+		 * @param slot an occupied slot.
+		 * @return the row.
+		 */
+		List<Object> row(int slot);
+
+		/**
+		 * Returns the number of modifications
+		 * of the engine so far.
+		 *
+		 * @return the modification count.
+		 */
+		int modCount();
+	}
+
+	private static final int CHARACTERISTICS = DISTINCT | NONNULL;
+
+	private final Source source;
+	private final int expectedModCount;
+	private final boolean exact;
+
+	private int slot;
+	private final int fence;
+	private long estimate;
+	private boolean sized;
+
+	/**
+	 * Creates a spliterator over the given range of slots.
+	 *
+	 * @param source the slots.
+	 * @param origin the first slot, inclusive.
+	 * @param fence the last slot, exclusive.
+	 * @param size the number of rows in the range.
+	 * @param exact whether every slot in the range holds a row.
+	 */
+	SlotSpliterator(Source source, int origin, int fence, long size, boolean exact) {
+		this(source, source.modCount(), origin, fence, size, exact, true);
+	}
+
+	private SlotSpliterator(Source source, int expectedModCount, int origin, int fence, long estimate, boolean exact, boolean sized) {
+		this.source = source;
+		this.expectedModCount = expectedModCount;
+		this.exact = exact;
+		this.slot = origin;
+		this.fence = fence;
+		this.estimate = estimate;
+		this.sized = sized;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super List<Object>> action) {
+		while (slot < fence) {
+			int current = slot++;
+			check();
+			if (source.occupied(current)) {
+				action.accept(source.row(current));
+				return true;
+			}
+		}
+
+		check();
+		return false;
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super List<Object>> action) {
+		int current = slot;
+		slot = fence;
+		for (; current < fence; current++) {
+			check();
+			if (source.occupied(current))
+				action.accept(source.row(current));
+		}
+
+		check();
+	}
+
+	@Override
+	public Spliterator<List<Object>> trySplit() {
+		int mid = (slot + fence) >>> 1;
+		if (mid <= slot)
+			return null;
+
+		Spliterator<List<Object>> prefix;
+		if (exact) {
+			prefix = new SlotSpliterator(source, expectedModCount, slot, mid, mid - slot, true, true);
+			estimate = fence - mid;
+		}
+		else {
+			estimate >>>= 1;
+			sized = false;
+			prefix = new SlotSpliterator(source, expectedModCount, slot, mid, estimate, false, false);
+		}
+
+		slot = mid;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		return exact ? fence - slot : estimate;
+	}
+
+	@Override
+	public int characteristics() {
+		return CHARACTERISTICS | (exact ? SIZED | SUBSIZED : sized ? SIZED : 0);
+	}
+
+	private void check() {
+		if (source.modCount() != expectedModCount)
+			throw new ConcurrentModificationException();
+	}
+}
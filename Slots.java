@@ -0,0 +1,177 @@
+package tables;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Implements an open-addressing array of hash slots in a
+ * buffer, for tables whose rows are records in a row heap.
+ * <p>
+ * Each slot is 8 bytes: the hash of a key, then the offset
+ * of its record plus one, so a zero marks an empty slot.
+ * Collisions are resolved by linear probing, and removals
+ * shift the following slots back instead of leaving tombstones.
+ */
+final class Slots {
+	static final int BYTES = 8;
+
+	private final ByteBuffer buffer;
+	private final int capacity;
+
+	/**
+	 * Creates slots over the given buffer,
+	 * whose length is a power of two times
+	 * the length of a slot.
+	 *
+	 * @param buffer a buffer.
+	 */
+	Slots(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.capacity = buffer.capacity() / BYTES;
+	}
+
+	/**
+	 * Returns the number of slots.
+	 *
+	 * @return the number of slots.
+	 */
+	int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns whether the given slot is empty.
+	 *
+	 * @param slot a slot.
+	 * @return whether the slot is empty.
+	 */
+	boolean empty(int slot) {
+		return buffer.getInt(slot * BYTES + 4) == 0;
+	}
+
+	/**
+	 * Returns the hash in the given slot.
+	 *
+	 * @param slot a slot.
+	 * @return the hash.
+	 */
+	int hash(int slot) {
+		return buffer.getInt(slot * BYTES);
+	}
+
+	/**
+	 * Returns the record offset in the given slot,
+	 * or <code>-1</code> if the slot is empty.
+	 *
+	 * @param slot a slot.
+	 * @return the offset.
+	 */
+	int offset(int slot) {
+		return buffer.getInt(slot * BYTES + 4) - 1;
+	}
+
+	/**
+	 * Replaces the record offset in the given slot.
+	 *
+	 * @param slot a non-empty slot.
+	 * @param offset the offset.
+	 */
+	void offset(int slot, int offset) {
+		buffer.putInt(slot * BYTES + 4, offset + 1);
+	}
+
+	/**
+	 * Returns the slot of the key of the given probe,
+	 * or <code>-1</code> if it is absent.
+	 *
+	 * @param hash the hash of the key.
+	 * @param probe the probe of the key, if any.
+	 * @param codec the codec of the records.
+	 * @param heap the row heap of the records.
+	 * @return the slot of the key, if any.
+	 */
+	int find(int hash, Object probe, RowCodec codec, ByteBuffer heap) {
+		if (probe == null)
+			return -1;
+
+		int mask = capacity - 1;
+		for (int i = hash & mask; ; i = (i + 1) & mask) {
+			int reference = buffer.getInt(i * BYTES + 4);
+			if (reference == 0)
+				return -1;
+			if (buffer.getInt(i * BYTES) == hash && codec.matches(heap, reference - 1, probe))
+				return i;
+		}
+	}
+
+	/**
+	 * Adds the given record to the first
+	 * empty slot from its home slot.
+	 *
+	 * @param hash the hash of the key.
+	 * @param offset the offset of the record.
+	 */
+	void link(int hash, int offset) {
+		int mask = capacity - 1;
+		int i = hash & mask;
+		while (buffer.getInt(i * BYTES + 4) != 0)
+			i = (i + 1) & mask;
+
+		buffer.putInt(i * BYTES, hash);
+		buffer.putInt(i * BYTES + 4, offset + 1);
+	}
+
+	/**
+	 * Fills the given empty slot directly, which keeps
+	 * the positions of slots copied from a region of the
+	 * same capacity.
+	 *
+	 * @param slot an empty slot.
+	 * @param hash the hash of the key.
+	 * @param offset the offset of the record.
+	 */
+	void set(int slot, int hash, int offset) {
+		buffer.putInt(slot * BYTES, hash);
+		buffer.putInt(slot * BYTES + 4, offset + 1);
+	}
+
+	/**
+	 * Empties the given slot, then moves back
+	 * each following slot whose home slot does not
+	 * lie between the emptied slot and its own slot.
+	 *
+	 * @param slot a slot.
+	 */
+	void unlink(int slot) {
+		int mask = capacity - 1;
+		int i = slot;
+		buffer.putLong(i * BYTES, 0);
+		for (int j = (i + 1) & mask; buffer.getInt(j * BYTES + 4) != 0; j = (j + 1) & mask) {
+			int home = buffer.getInt(j * BYTES) & mask;
+			boolean stays = i <= j
+				? i < home && home <= j
+				: i < home || home <= j;
+			if (!stays) {
+				buffer.putLong(i * BYTES, buffer.getLong(j * BYTES));
+				buffer.putLong(j * BYTES, 0);
+				i = j;
+			}
+		}
+	}
+
+	/**
+	 * Links every record of these slots into the
+	 * given slots, using the hashes in the slots.
+	 *
+	 * @param target the empty slots to fill.
+	 */
+	void transferTo(Slots target) {
+		for (int slot = 0; slot < capacity; slot++)
+			if (!empty(slot))
+				target.link(hash(slot), offset(slot));
+	}
+
+	static int hash(Object key) {
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+}
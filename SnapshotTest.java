@@ -0,0 +1,131 @@
+package grade;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import tables.ConcurrentTable;
+import tables.HashArrayTable;
+import tables.Table;
+import tables.VersionedTable;
+
+public class SnapshotTest {
+	private static final List<String> NAMES = List.of("k", "v");
+	private static final List<String> TYPES = List.of("integer", "string");
+
+	private static Set<List<Object>> rows(Table table) {
+		Set<List<Object>> rows = new HashSet<>();
+		for (List<Object> row: table)
+			rows.add(List.copyOf(row));
+		return rows;
+	}
+
+	private static void assertIsolated(Table table) {
+		table.put(List.of(1, "a"));
+		table.put(List.of(2, "b"));
+
+		Table snapshot = table.snapshot();
+
+		table.put(List.of(1, "c"));
+		table.remove(2);
+		table.put(List.of(3, "d"));
+
+		assertEquals(Set.of(List.of(1, "a"), List.of(2, "b")), rows(snapshot));
+		assertEquals(2, snapshot.size());
+		assertEquals(List.of(1, "a"), snapshot.get(1));
+		assertEquals(List.of(2, "b"), snapshot.get(2));
+		assertNull(snapshot.get(3));
+		assertThrows(UnsupportedOperationException.class, () -> snapshot.put(List.of(4, "e")));
+		assertThrows(UnsupportedOperationException.class, () -> snapshot.remove(1));
+
+		table.clear();
+		assertEquals(Set.of(List.of(1, "a"), List.of(2, "b")), rows(snapshot));
+	}
+
+	/*
+	 * A writer puts the keys 0, 1, 2, ... in order, so a
+	 * consistent snapshot holds exactly the keys below its size.
+	 */
+	private static void assertConsistentUnderWriter(Table table) throws Exception {
+		AtomicBoolean stop = new AtomicBoolean();
+		Thread writer = new Thread(() -> {
+			for (int k = 0; k < 20_000 && !stop.get(); k++)
+				table.put(List.of(k, "v" + k));
+		});
+		writer.start();
+		try {
+			for (int round = 0; round < 200 && writer.isAlive(); round++) {
+				Table snapshot = table.snapshot();
+				int size = snapshot.size();
+				Set<Object> keys = new HashSet<>();
+				for (List<Object> row: snapshot)
+					keys.add(row.get(0));
+
+				assertEquals(size, keys.size(), "Iteration must match the size");
+				for (int k = 0; k < size; k++)
+					assertTrue(keys.contains(k), "Key %d missing from a snapshot of size %d".formatted(k, size));
+
+				if (snapshot instanceof Closeable closeable)
+					closeable.close();
+			}
+		}
+		finally {
+			stop.set(true);
+			writer.join();
+		}
+	}
+
+	@Test
+	public void defaultSnapshotIsIsolated() {
+		assertIsolated(new HashArrayTable("t", NAMES, TYPES, 0));
+	}
+
+	@Test
+	public void concurrentSnapshotIsIsolated() {
+		assertIsolated(new ConcurrentTable("t", NAMES, TYPES, 0));
+	}
+
+	@Test
+	public void versionedSnapshotIsIsolated() {
+		assertIsolated(new VersionedTable("t", NAMES, TYPES, 0));
+	}
+
+	@Test
+	public void concurrentSnapshotIsConsistent() throws Exception {
+		assertConsistentUnderWriter(new ConcurrentTable("t", NAMES, TYPES, 0));
+	}
+
+	@Test
+	public void versionedSnapshotIsConsistent() throws Exception {
+		assertConsistentUnderWriter(new VersionedTable("t", NAMES, TYPES, 0));
+	}
+
+	@Test
+	public void versionedSnapshotKeepsVersionsUntilClosed() throws IOException {
+		VersionedTable table = new VersionedTable("t", NAMES, TYPES, 0);
+		for (int k = 0; k < 100; k++)
+			table.put(List.of(k, "a"));
+
+		Table snapshot = table.snapshot();
+		for (int k = 0; k < 100; k++)
+			table.put(List.of(k, "b"));
+
+		table.vacuum();
+		assertEquals(100, table.oldVersions(), "An open snapshot must keep the versions it reads");
+		assertEquals(List.of(7, "a"), snapshot.get(7));
+
+		((Closeable) snapshot).close();
+		assertThrows(IllegalStateException.class, () -> snapshot.get(7));
+
+		table.vacuum();
+		assertEquals(0, table.oldVersions());
+		assertEquals(List.of(7, "b"), table.get(7));
+	}
+}
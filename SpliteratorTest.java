@@ -0,0 +1,180 @@
+package grade;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import tables.ColumnarTable;
+import tables.HashArrayTable;
+import tables.MappedTable;
+import tables.OffHeapTable;
+import tables.Table;
+
+public class SpliteratorTest {
+	private static final List<String> NAMES = List.of("k", "v");
+	private static final List<String> TYPES = List.of("integer", "string");
+
+	@TempDir
+	Path directory;
+
+	private static Table fill(Table table, int rows) {
+		for (int k = 0; k < rows; k++)
+			table.put(List.of(k, "v" + k));
+		for (int k = 0; k < rows; k += 7)
+			table.remove(k);
+		return table;
+	}
+
+	private static Set<Object> keys(Table table) {
+		Set<Object> keys = new HashSet<>();
+		for (List<Object> row: table)
+			keys.add(row.get(0));
+		return keys;
+	}
+
+	/*
+	 * Splits the spliterator of the table down to its leaves,
+	 * checking the estimates of each split against its parent,
+	 * then reads each leaf and checks that every row is read
+	 * by exactly one leaf.
+	 */
+	private static void assertSplits(Table table, boolean exact) {
+		Spliterator<List<Object>> root = table.spliterator();
+		assertEquals(table.size(), root.estimateSize());
+		assertEquals(table.size(), root.getExactSizeIfKnown());
+		assertTrue(root.hasCharacteristics(Spliterator.DISTINCT | Spliterator.NONNULL));
+
+		List<Spliterator<List<Object>>> leaves = new ArrayList<>();
+		List<Spliterator<List<Object>>> pending = new ArrayList<>(List.of(root));
+		int splits = 0;
+		while (!pending.isEmpty()) {
+			assertTrue(splits++ <= 4 * table.capacity() + 2, "Splitting must stop at single slots");
+			Spliterator<List<Object>> each = pending.remove(pending.size() - 1);
+			long before = each.estimateSize();
+			Spliterator<List<Object>> prefix = each.trySplit();
+			if (prefix == null) {
+				leaves.add(each);
+				continue;
+			}
+
+			if (exact) {
+				assertTrue(prefix.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+				assertTrue(each.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+				assertEquals(before, prefix.estimateSize() + each.estimateSize());
+			}
+			else {
+				assertFalse(prefix.hasCharacteristics(Spliterator.SIZED), "A split of uneven slots is not sized");
+				assertFalse(each.hasCharacteristics(Spliterator.SIZED));
+				assertTrue(prefix.estimateSize() + each.estimateSize() <= before);
+			}
+			pending.add(prefix);
+			pending.add(each);
+		}
+		assertTrue(leaves.size() > 1, "A table of many rows must split");
+
+		Set<Object> seen = new HashSet<>();
+		long total = 0;
+		for (Spliterator<List<Object>> leaf: leaves) {
+			long estimate = leaf.estimateSize();
+			long[] count = { 0 };
+			leaf.forEachRemaining(row -> {
+				assertTrue(seen.add(row.get(0)), "Row %s read by two splits".formatted(row));
+				count[0]++;
+			});
+			if (exact)
+				assertEquals(estimate, count[0]);
+			total += count[0];
+		}
+		assertEquals(table.size(), total);
+		assertEquals(keys(table), seen);
+	}
+
+	private static void assertParallel(Table table) {
+		long expected = 0;
+		for (List<Object> row: table)
+			expected += (Integer) row.get(0);
+
+		assertTrue(table.parallelStream().isParallel());
+		assertEquals(expected, table.parallelStream().mapToLong(row -> (Integer) row.get(0)).sum());
+		assertEquals(keys(table), table.parallelStream().map(row -> row.get(0)).collect(Collectors.toSet()));
+		assertEquals(table.size(), table.parallelStream().toList().size());
+	}
+
+	@Test
+	public void hashArrayTableSplits() {
+		Table table = fill(new HashArrayTable("t", NAMES, TYPES, 0), 100_000);
+		assertSplits(table, false);
+		assertParallel(table);
+	}
+
+	@Test
+	public void hashArrayTableSplitsWhileMigrating() {
+		// The arrays grow from 1024 to 2048 slots at the 769th
+		// row, then migrate 16 slots of the retired arrays per
+		// mutation, so after 800 rows most are still retired.
+		Table table = new HashArrayTable("t", NAMES, TYPES, 0);
+		for (int k = 0; k < 800; k++)
+			table.put(List.of(k, "v" + k));
+		assertEquals(2048, table.capacity());
+
+		assertSplits(table, false);
+		assertParallel(table);
+	}
+
+	@Test
+	public void columnarTableSplitsExactly() {
+		Table table = fill(new ColumnarTable("t", NAMES, TYPES, 0), 100_000);
+		assertSplits(table, true);
+		assertParallel(table);
+	}
+
+	@Test
+	public void storedTablesSplit() throws IOException {
+		try (
+			MappedTable mapped = new MappedTable(directory.resolve("t.table"), "t", NAMES, TYPES, 0);
+			OffHeapTable offHeap = new OffHeapTable("t", NAMES, TYPES, 0)
+		) {
+			for (Table table: List.<Table>of(mapped, offHeap)) {
+				fill(table, 20_000);
+				assertSplits(table, false);
+				assertParallel(table);
+			}
+		}
+	}
+
+	@Test
+	public void emptyTableSplits() {
+		Table table = new HashArrayTable("t", NAMES, TYPES, 0);
+		Spliterator<List<Object>> root = table.spliterator();
+		assertEquals(0, root.estimateSize());
+		assertFalse(root.tryAdvance(row -> fail()));
+		assertEquals(0, table.parallelStream().count());
+	}
+
+	@Test
+	public void splitsFailFast() {
+		for (Table table: List.<Table>of(
+			fill(new HashArrayTable("t", NAMES, TYPES, 0), 1000),
+			fill(new ColumnarTable("t", NAMES, TYPES, 0), 1000)
+		)) {
+			Spliterator<List<Object>> suffix = table.spliterator();
+			Spliterator<List<Object>> prefix = suffix.trySplit();
+			assertTrue(prefix.tryAdvance(row -> {}));
+
+			table.put(List.of(-1, "new"));
+			assertThrows(ConcurrentModificationException.class, () -> prefix.forEachRemaining(row -> {}));
+			assertThrows(ConcurrentModificationException.class, () -> suffix.tryAdvance(row -> {}));
+		}
+	}
+}
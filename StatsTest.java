@@ -0,0 +1,135 @@
+package grade;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import apps.Database;
+import drivers.Response;
+import drivers.Status;
+import tables.ConcurrentTable;
+import tables.HashArrayTable;
+import tables.Table;
+import tables.TableStats;
+
+public class StatsTest {
+	private static final List<String> NAMES = List.of("k", "v");
+	private static final List<String> TYPES = List.of("integer", "string");
+
+	private static void exercise(Table table) {
+		for (int k = 0; k < 1000; k++)
+			table.put(List.of(k, "a"));
+		for (int k = 0; k < 200; k++)
+			table.put(List.of(k, "b"));
+		for (int k = 0; k < 600; k++)
+			table.get(k < 500 ? k : -k);
+		for (int k = 0; k < 350; k++)
+			table.remove(k < 300 ? k : -k);
+	}
+
+	private static void assertCounted(Table table) {
+		table.enableMetrics();
+		exercise(table);
+		TableStats stats = table.stats();
+
+		assertEquals("t", stats.tableName());
+		assertTrue(stats.recording());
+		assertEquals(700, stats.size());
+		assertEquals(table.capacity(), stats.capacity());
+		assertEquals(1200, stats.puts());
+		assertEquals(200, stats.putHits());
+		assertEquals(600, stats.gets());
+		assertEquals(500, stats.getHits());
+		assertEquals(350, stats.removes());
+		assertEquals(300, stats.removeHits());
+		assertEquals(500.0 / 600, stats.getHitRatio());
+		assertEquals(700.0 / stats.capacity(), stats.loadFactor());
+		assertTrue(stats.resizes() > 0, "Growing from the initial capacity must resize");
+		assertTrue(stats.tombstones() >= 0);
+
+		assertEquals(TableStats.probeLengthBuckets().size(), stats.probeLengths().size());
+		assertEquals(200 + 500 + 300, stats.probeLengths().stream().mapToLong(Long::longValue).sum(),
+			"Each hit must record one probe length");
+	}
+
+	@Test
+	public void hashArrayTableCountsOperations() {
+		assertCounted(new HashArrayTable("t", NAMES, TYPES, 0));
+	}
+
+	@Test
+	public void concurrentTableCountsOperations() {
+		assertCounted(new ConcurrentTable("t", NAMES, TYPES, 0));
+	}
+
+	@Test
+	public void disabledMetricsRecordNothing() {
+		Table table = new HashArrayTable("t", NAMES, TYPES, 0);
+		exercise(table);
+
+		TableStats stats = table.stats();
+		assertFalse(stats.recording());
+		assertEquals(700, stats.size());
+		assertEquals(0, stats.puts());
+		assertEquals(0, stats.resizes());
+
+		table.enableMetrics();
+		table.get(999);
+		assertEquals(1, table.stats().getHits());
+
+		table.disableMetrics();
+		assertFalse(table.stats().recording());
+		assertEquals(0, table.stats().gets());
+	}
+
+	@Test
+	public void probeLengthBucketsArePowersOfTwo() {
+		assertEquals(List.of("1", "2", "3-4", "5-8", "9-16", "17-32", "33-64", "65+"), TableStats.probeLengthBuckets());
+	}
+
+	@Test
+	public void statsTableListsEveryStatistic() throws IOException {
+		try (Database db = new Database(false)) {
+			Table table = new HashArrayTable("t", NAMES, TYPES, 0);
+			db.create(table);
+			table.enableMetrics();
+			exercise(table);
+
+			Response res = db.interpret(List.of("STATS TABLE t")).get(0);
+			assertEquals(Status.SUCCESSFUL, res.status());
+			assertEquals("Table <t> has metrics enabled", res.message());
+			assertEquals(List.of("statistic", "value"), res.table().getColumnNames());
+
+			Map<String, String> values = new LinkedHashMap<>();
+			for (List<Object> row: res.table())
+				values.put((String) row.get(0), (String) row.get(1));
+
+			List<String> expected = new ArrayList<>(List.of(
+				"size", "capacity", "load_factor", "tombstones",
+				"gets", "get_hit_ratio", "puts", "put_hit_ratio",
+				"removes", "remove_hit_ratio", "resizes", "resize_millis"
+			));
+			for (String bucket: TableStats.probeLengthBuckets())
+				expected.add("probe_length_" + bucket);
+			assertEquals(expected, List.copyOf(values.keySet()));
+
+			assertEquals("700", values.get("size"));
+			assertEquals("1200", values.get("puts"));
+			assertEquals("0.833", values.get("get_hit_ratio"));
+			assertEquals("0.857", values.get("remove_hit_ratio"));
+
+			table.disableMetrics();
+			assertEquals("Table <t> has metrics disabled", db.interpret(List.of("STATS TABLE t")).get(0).message());
+
+			Response missing = db.interpret(List.of("STATS TABLE nope")).get(0);
+			assertEquals(Status.FAILED, missing.status());
+			assertEquals("Table <nope> does not exist", missing.message());
+		}
+	}
+}
@@ -1,9 +1,19 @@
 package tables;
 
-import java.util.HashSet;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Defines the protocols for a table
@@ -18,6 +28,14 @@ public abstract class Table implements Iterable<List<Object>> {
 	protected List<String> columnTypes;
 	protected Integer primaryIndex;
 
+	// Each of these is replaced, never changed in place,
+	// under the lock of this table, and read without it,
+	// including by engines with concurrent writers.
+	private volatile TableListener[] listeners;
+	private volatile Index[] indexes;
+	private volatile BitmapIndex bitmaps;
+	private volatile TableMetrics metrics;
+
 	/**
 	 * Sets the table name in the schema.
 	 *
@@ -94,6 +112,143 @@ public abstract class Table implements Iterable<List<Object>> {
 		return primaryIndex;
 	}
 
+	/**
+	 * Adds a listener to be notified
+	 * of each mutation of the state.
+	 *
+	 * @param listener a listener.
+	 */
+	public synchronized void addListener(TableListener listener) {
+		if (listeners == null)
+			listeners = new TableListener[] { listener };
+		else {
+			TableListener[] grown = Arrays.copyOf(listeners, listeners.length + 1);
+			grown[listeners.length] = listener;
+			listeners = grown;
+		}
+	}
+
+	/**
+	 * Removes a listener added earlier, if present.
+	 *
+	 * @param listener a listener.
+	 */
+	public synchronized void removeListener(TableListener listener) {
+		if (listeners == null)
+			return;
+
+		TableListener[] kept = Arrays.stream(listeners)
+			.filter(l -> l != listener)
+			.toArray(TableListener[]::new);
+		listeners = kept.length > 0 ? kept : null;
+	}
+
+	/**
+	 * Enables the metrics of this table, so that
+	 * engines which record them count each operation
+	 * from now on, until they are disabled.
+	 * <p>
+	 * Metrics are off by default, in which case recording
+	 * them costs one volatile field read per operation.
+	 */
+	public synchronized void enableMetrics() {
+		if (metrics == null)
+			metrics = new TableMetrics();
+	}
+
+	/**
+	 * Disables the metrics of this table,
+	 * and discards the counters so far.
+	 */
+	public synchronized void disableMetrics() {
+		metrics = null;
+	}
+
+	/**
+	 * Returns a snapshot of the statistics of this table,
+	 * including the counters recorded since metrics were
+	 * enabled, if they are.
+	 *
+	 * @return the statistics.
+	 */
+	public TableStats stats() {
+		TableMetrics m = metrics;
+		return m != null ? m.snapshot(this) : TableStats.of(this);
+	}
+
+	/**
+	 * Returns the counters that engines record
+	 * operations in, or <code>null</code> if
+	 * metrics are not enabled.
+	 *
+	 * @return the counters, if any.
+	 */
+	TableMetrics metrics() {
+		return metrics;
+	}
+
+	/**
+	 * Returns the number of slots that are marked
+	 * with a tombstone, which engines that leave
+	 * tombstones on removal override.
+	 *
+	 * @return the number of tombstones.
+	 */
+	protected int tombstones() {
+		return 0;
+	}
+
+	/**
+	 * Returns whether any listener is notified of mutations,
+	 * so implementations can skip building the rows passed
+	 * to {@link #firePut}, {@link #fireRemove}, and
+	 * {@link #fireClear} when nothing observes them.
+	 *
+	 * @return whether the state is observed.
+	 */
+	protected boolean observed() {
+		return listeners != null;
+	}
+
+	/**
+	 * Notifies the listeners that a row was put.
+	 * Implementations call this after each put.
+	 *
+	 * @param oldRow the replaced row on a hit,
+	 * 		or <code>null</code> on a miss.
+	 * @param newRow the row put.
+	 */
+	protected void firePut(List<Object> oldRow, List<Object> newRow) {
+		TableListener[] current = listeners;
+		if (current != null)
+			for (TableListener listener: current)
+				listener.onPut(this, oldRow, newRow);
+	}
+
+	/**
+	 * Notifies the listeners that a row was removed.
+	 * Implementations call this after each hit removal.
+	 *
+	 * @param oldRow the removed row.
+	 */
+	protected void fireRemove(List<Object> oldRow) {
+		TableListener[] current = listeners;
+		if (current != null)
+			for (TableListener listener: current)
+				listener.onRemove(this, oldRow);
+	}
+
+	/**
+	 * Notifies the listeners that all rows were removed.
+	 * Implementations call this after each clear.
+	 */
+	protected void fireClear() {
+		TableListener[] current = listeners;
+		if (current != null)
+			for (TableListener listener: current)
+				listener.onClear(this);
+	}
+
 	/**
 	 * Removes all rows from the state.
 	 */
@@ -111,6 +266,51 @@ public abstract class Table implements Iterable<List<Object>> {
 	 */
 	public abstract boolean put(List<Object> row);
 
+	/**
+	 * Puts each of the given rows, in order.
+	 * <p>
+	 * If the rows are a {@link Collection}, the table
+	 * is first presized for all of them at once, so a
+	 * large load does not resize repeatedly. For more
+	 * control over a load, see {@link BulkLoad}.
+	 *
+	 * @param rows the rows.
+	 */
+	public void putAll(Iterable<List<Object>> rows) {
+		if (rows instanceof Collection<?> c)
+			ensureCapacity(size() + c.size());
+
+		for (List<Object> row: rows)
+			put(row);
+	}
+
+	/**
+	 * Prepares the data structure to hold the given
+	 * number of rows in total without resizing.
+	 * <p>
+	 * This implementation does nothing. Implementations
+	 * that resize as they grow should override it.
+	 *
+	 * @param rows the total number of rows.
+	 */
+	protected void ensureCapacity(int rows) {
+	}
+
+	/**
+	 * Creates the given row in the state, where the
+	 * caller guarantees that its key is not in the state.
+	 * <p>
+	 * This implementation calls {@link #put(List)}.
+	 * Implementations can override it to skip looking
+	 * up the key, in which case the state is undefined
+	 * if the key is in fact in the state.
+	 *
+	 * @param row a row with a new key.
+	 */
+	protected void putUnique(List<Object> row) {
+		put(row);
+	}
+
 	/**
 	 * On a hit, removes the corresponding row
 	 * from the state, then returns <code>true</code>.
@@ -222,6 +422,9 @@ public abstract class Table implements Iterable<List<Object>> {
 	 * which is the sum of the hash codes of
 	 * each property value in the schema and
 	 * each field value in each row in the state.
+	 * <p>
+	 * The part of the sum from the state is
+	 * given by {@link #stateHash()}.
 	 *
 	 * @return this table's fingerprint.
 	 */
@@ -235,10 +438,41 @@ public abstract class Table implements Iterable<List<Object>> {
 		for (String type: columnTypes)
 			sum += type.hashCode();
 
-		for (List<Object> row: rows())
+		return sum + stateHash();
+	}
+
+	/**
+	 * Returns the sum of the hash codes of
+	 * each field value in each row in the state.
+	 * <p>
+	 * This implementation scans every row. Implementations
+	 * should override it to return a sum that they update
+	 * on each mutation, subtracting the {@link #rowHash}
+	 * of each replaced or removed row and adding that of
+	 * each row put, so that {@link #hashCode()} and
+	 * {@link #equals(Object)} take constant time.
+	 *
+	 * @return the sum of the hash codes in the state.
+	 */
+	protected int stateHash() {
+		int sum = 0;
+		for (List<Object> row: this)
 			for (Object field: row)
 				sum += field != null ? field.hashCode() : 0;
+		return sum;
+	}
 
+	/**
+	 * Returns the sum of the hash codes of the given
+	 * fields, which is what a row adds to the state hash.
+	 *
+	 * @param fields the fields of a row.
+	 * @return the sum of the hash codes.
+	 */
+	protected static int rowHash(Object[] fields) {
+		int sum = 0;
+		for (Object field: fields)
+			sum += field != null ? field.hashCode() : 0;
 		return sum;
 	}
 
@@ -252,29 +486,496 @@ public abstract class Table implements Iterable<List<Object>> {
 	@Override
 	public abstract Iterator<List<Object>> iterator();
 
+	/**
+	 * Returns a spliterator over each row in the state.
+	 * <p>
+	 * This implementation wraps the {@link #iterator()},
+	 * so it splits by copying batches of rows into arrays.
+	 * Implementations should override it to split their
+	 * data structure into ranges instead.
+	 *
+	 * @return a spliterator of rows.
+	 */
+	@Override
+	public Spliterator<List<Object>> spliterator() {
+		return Spliterators.spliterator(iterator(), size(), Spliterator.DISTINCT | Spliterator.NONNULL);
+	}
+
+	/**
+	 * Returns a sequential stream of
+	 * each row in the state.
+	 *
+	 * @return a stream of rows.
+	 */
+	public Stream<List<Object>> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * Returns a parallel stream of each row in the state,
+	 * which splits the rows across the common pool.
+	 * <p>
+	 * The table must not be mutated until the stream
+	 * is consumed. Rows are read concurrently, so an
+	 * engine whose reads mutate it cannot be used.
+	 *
+	 * @return a stream of rows.
+	 */
+	public Stream<List<Object>> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+
+	/**
+	 * Returns a sequential stream of each row whose
+	 * key is at least the given lower bound and less
+	 * than the given upper bound.
+	 * <p>
+	 * Keys are ordered by {@link #compareKeys}. This
+	 * implementation filters a scan of every row, in no
+	 * particular order. Ordered implementations should
+	 * override it to visit only the rows in range, in
+	 * key order, as does {@link SearchTable}.
+	 *
+	 * @param lo the lower bound, inclusive.
+	 * @param hi the upper bound, exclusive.
+	 * @return a stream of rows.
+	 */
+	public Stream<List<Object>> range(Object lo, Object hi) {
+		Objects.requireNonNull(lo);
+		Objects.requireNonNull(hi);
+		return stream().filter(row -> {
+			Object key = row.get(primaryIndex);
+			return compareKeys(key, lo) >= 0 && compareKeys(key, hi) < 0;
+		});
+	}
+
+	/**
+	 * Returns a sequential stream of each row whose
+	 * key is less than the given upper bound.
+	 * <p>
+	 * This implementation filters a scan of every row;
+	 * see {@link #range(Object, Object)}.
+	 *
+	 * @param hi the upper bound, exclusive.
+	 * @return a stream of rows.
+	 */
+	public Stream<List<Object>> headRange(Object hi) {
+		Objects.requireNonNull(hi);
+		return stream().filter(row -> compareKeys(row.get(primaryIndex), hi) < 0);
+	}
+
+	/**
+	 * Returns a sequential stream of each row whose
+	 * key is at least the given lower bound.
+	 * <p>
+	 * This implementation filters a scan of every row;
+	 * see {@link #range(Object, Object)}.
+	 *
+	 * @param lo the lower bound, inclusive.
+	 * @return a stream of rows.
+	 */
+	public Stream<List<Object>> tailRange(Object lo) {
+		Objects.requireNonNull(lo);
+		return stream().filter(row -> compareKeys(row.get(primaryIndex), lo) >= 0);
+	}
+
+	/**
+	 * Creates a secondary index of the column with the
+	 * given name, which is kept in sync with each mutation
+	 * and answers {@link #lookup} without a scan.
+	 * <p>
+	 * A hash index answers equality lookups, and a sorted
+	 * index also answers {@link #lookupRange}. The index
+	 * is built from the rows in the state, so the table
+	 * must not be mutated until this method returns.
+	 *
+	 * @param columnName the name of a non-primary column.
+	 * @param sorted whether the index is sorted.
+	 */
+	public synchronized void createIndex(String columnName, boolean sorted) {
+		int column = column(columnName);
+		if (column == primaryIndex)
+			throw new IllegalArgumentException("Column <%s> is the primary column".formatted(columnName));
+		if (index(column) != null)
+			throw new IllegalArgumentException("Column <%s> is already indexed".formatted(columnName));
+
+		Index index = new Index(column, sorted);
+		index.build(this, primaryIndex);
+		addListener(index);
+
+		if (indexes == null)
+			indexes = new Index[] { index };
+		else {
+			Index[] grown = Arrays.copyOf(indexes, indexes.length + 1);
+			grown[indexes.length] = index;
+			indexes = grown;
+		}
+	}
+
+	/**
+	 * Creates a bitmap index of the boolean or integer
+	 * column with the given name, which is kept in sync
+	 * with each mutation and answers {@link #where}.
+	 * <p>
+	 * A bitmap index suits columns with few distinct
+	 * values, since it keeps a compressed bitmap of the
+	 * rows for each value. The index is built from the
+	 * rows in the state, so the table must not be mutated
+	 * until this method returns.
+	 *
+	 * @param columnName the name of a non-primary column.
+	 */
+	public synchronized void createBitmapIndex(String columnName) {
+		int column = column(columnName);
+		if (column == primaryIndex)
+			throw new IllegalArgumentException("Column <%s> is the primary column".formatted(columnName));
+		if (!columnTypes.get(column).equals("boolean") && !columnTypes.get(column).equals("integer"))
+			throw new IllegalArgumentException("Column <%s> is not boolean or integer".formatted(columnName));
+		if (bitmaps != null && bitmaps.indexes(column))
+			throw new IllegalArgumentException("Column <%s> is already indexed".formatted(columnName));
+
+		if (bitmaps == null) {
+			bitmaps = new BitmapIndex(this, primaryIndex);
+			addListener(bitmaps);
+		}
+		bitmaps.add(column, this, primaryIndex);
+	}
+
+	/**
+	 * Drops the secondary or bitmap index of the
+	 * column with the given name, if present.
+	 *
+	 * @param columnName a column name.
+	 * @return whether an index was dropped.
+	 */
+	public synchronized boolean dropIndex(String columnName) {
+		int column = column(columnName);
+		if (bitmaps != null && bitmaps.remove(column)) {
+			if (bitmaps.isEmpty()) {
+				removeListener(bitmaps);
+				bitmaps = null;
+			}
+			return true;
+		}
+
+		Index index = index(column);
+		if (index == null)
+			return false;
+
+		removeListener(index);
+
+		Index[] kept = Arrays.stream(indexes)
+			.filter(i -> i != index)
+			.toArray(Index[]::new);
+		indexes = kept.length > 0 ? kept : null;
+		return true;
+	}
+
+	/**
+	 * Returns a sequential stream of each row whose
+	 * field in the column with the given name equals
+	 * the given value, which may be <code>null</code>.
+	 * <p>
+	 * A lookup of the primary column gets the row by
+	 * its key, and a lookup of an indexed column reads
+	 * only the matching rows. Any other lookup filters
+	 * a scan of every row.
+	 *
+	 * @param columnName a column name.
+	 * @param value a value.
+	 * @return a stream of rows.
+	 */
+	public Stream<List<Object>> lookup(String columnName, Object value) {
+		int column = column(columnName);
+		if (column == primaryIndex)
+			return value != null ? Stream.ofNullable(get(value)) : Stream.empty();
+
+		Index index = index(column);
+		if (index != null)
+			return rowsOf(index.keys(value));
+
+		return stream().filter(row -> Objects.equals(row.get(column), value));
+	}
+
+	/**
+	 * Returns a sequential stream of each row whose
+	 * field in the column with the given name is at
+	 * least the given lower bound and less than the
+	 * given upper bound, ordered by {@link #compareKeys}.
+	 * <p>
+	 * A lookup of the primary column is a {@link #range},
+	 * and a lookup of a column with a sorted index reads
+	 * only the matching rows, in value order. Any other
+	 * lookup filters a scan of every row.
+	 *
+	 * @param columnName a column name.
+	 * @param lo the lower bound, inclusive.
+	 * @param hi the upper bound, exclusive.
+	 * @return a stream of rows.
+	 */
+	public Stream<List<Object>> lookupRange(String columnName, Object lo, Object hi) {
+		Objects.requireNonNull(lo);
+		Objects.requireNonNull(hi);
+
+		int column = column(columnName);
+		if (column == primaryIndex)
+			return range(lo, hi);
+
+		Index index = index(column);
+		if (index != null && index.sorted())
+			return rowsOf(index.keys(lo, hi));
+
+		return stream().filter(row -> {
+			Object field = row.get(column);
+			return field != null && compareKeys(field, lo) >= 0 && compareKeys(field, hi) < 0;
+		});
+	}
+
+	/**
+	 * Returns a sequential stream of each
+	 * row that passes the given filter.
+	 * <p>
+	 * If each column the filter tests has a bitmap index,
+	 * the filter is answered by combining their bitmaps
+	 * a word at a time, then only the matching rows are
+	 * read. Otherwise, the filter is tested on every row.
+	 *
+	 * @param filter a filter.
+	 * @return a stream of rows.
+	 */
+	public Stream<List<Object>> where(Filter filter) {
+		BitmapIndex current = bitmaps;
+		if (current != null && current.covers(filter, this::column))
+			return rowsOf(current.keys(filter, this::column));
+
+		return stream().filter(predicate(filter));
+	}
+
+	private Predicate<List<Object>> predicate(Filter filter) {
+		return switch (filter) {
+			case Filter.Equals eq -> {
+				int column = column(eq.columnName());
+				Object value = eq.value();
+				yield row -> Objects.equals(row.get(column), value);
+			}
+			case Filter.And and -> and.filters().stream()
+				.map(this::predicate)
+				.reduce(row -> true, Predicate::and);
+			case Filter.Or or -> or.filters().stream()
+				.map(this::predicate)
+				.reduce(row -> false, Predicate::or);
+			case Filter.Not not -> predicate(not.filter()).negate();
+		};
+	}
+
+	private int column(String columnName) {
+		int column = columnNames.indexOf(columnName);
+		if (column < 0)
+			throw new IllegalArgumentException("Column <%s> does not exist".formatted(columnName));
+		return column;
+	}
+
+	private Index index(int column) {
+		Index[] current = indexes;
+		if (current != null)
+			for (Index index: current)
+				if (index.column() == column)
+					return index;
+		return null;
+	}
+
+	private Stream<List<Object>> rowsOf(List<Object> keys) {
+		return keys.stream()
+			.map(this::get)
+			.filter(Objects::nonNull);
+	}
+
+	/**
+	 * Compares the given keys in their natural order,
+	 * or by the names of their classes if their classes
+	 * differ, so that any two keys are ordered.
+	 *
+	 * @param a a key.
+	 * @param b a key.
+	 * @return the comparison, as by {@link Comparable}.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	protected static int compareKeys(Object a, Object b) {
+		if (a.getClass() != b.getClass())
+			return a.getClass().getName().compareTo(b.getClass().getName());
+		return ((Comparable) a).compareTo(b);
+	}
+
+	/**
+	 * Returns a publisher of each row in the state,
+	 * which produces rows only as its subscribers
+	 * request them, so a consumer can handle each row
+	 * as it arrives without holding the whole result.
+	 * <p>
+	 * Each subscriber iterates the table on its own,
+	 * starting at its first request, so the table must
+	 * not be mutated until the subscription is done.
+	 *
+	 * @return a publisher of rows.
+	 */
+	public Flow.Publisher<List<Object>> publisher() {
+		return new RowPublisher(this);
+	}
+
+	/**
+	 * Returns a snapshot of this table, which is a
+	 * read-only table with the schema of this table and
+	 * its state as of now, unaffected by later mutations.
+	 * <p>
+	 * This implementation copies the state, which takes time
+	 * in the size of the table, and is only consistent if the
+	 * table is not mutated meanwhile. Implementations should
+	 * override it to share their state instead, as does
+	 * {@link VersionedTable}. A snapshot that holds resources
+	 * implements {@link java.io.Closeable}, and should be
+	 * closed once it is no longer used.
+	 *
+	 * @return the snapshot.
+	 */
+	public Table snapshot() {
+		return new FrozenTable(this, this);
+	}
+
 	/**
 	 * Returns an unmodifiable set of
 	 * the rows in the state.
+	 * <p>
+	 * The set is a live view backed by this table,
+	 * so it reflects later mutations and copies nothing.
+	 * Its size is the {@link #size()}, and it checks
+	 * whether it contains a row by a {@link #get} of
+	 * the key of the row.
 	 *
 	 * @return the set of rows.
 	 */
 	public Set<List<Object>> rows() {
-		Set<List<Object>> rows = new HashSet<>();
-		for (List<Object> row: this)
-			rows.add(row);
-		return Set.copyOf(rows);
+		return new RowSet();
 	};
 
 	/**
 	 * Returns an unmodifiable set of
 	 * the keys of the rows in the state.
+	 * <p>
+	 * The set is a live view backed by this table,
+	 * so it reflects later mutations and copies nothing.
+	 * Its size is the {@link #size()}, and it checks
+	 * whether it contains a key by {@link #contains}.
 	 *
 	 * @return the set of keys.
 	 */
 	public Set<Object> keys() {
-		Set<Object> keys = new HashSet<>();
-		for (List<Object> row: this)
-			keys.add(row.get(getPrimaryIndex()));
-		return Set.copyOf(keys);
+		return new KeySet();
 	};
+
+	/**
+	 * Implements the view returned by {@link #rows()}.
+	 */
+	private class RowSet extends AbstractSet<List<Object>> {
+		@Override
+		public Iterator<List<Object>> iterator() {
+			return Table.this.iterator();
+		}
+
+		@Override
+		public Spliterator<List<Object>> spliterator() {
+			return Table.this.spliterator();
+		}
+
+		@Override
+		public int size() {
+			return Table.this.size();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			if (!(o instanceof List<?> row) || row.size() != columnNames.size())
+				return false;
+
+			Object key = row.get(primaryIndex);
+			if (key == null)
+				return false;
+
+			List<Object> found = get(key);
+			return found != null && found.equals(row);
+		}
+	}
+
+	/**
+	 * Implements the view returned by {@link #keys()}.
+	 */
+	private class KeySet extends AbstractSet<Object> {
+		@Override
+		public Iterator<Object> iterator() {
+			Iterator<List<Object>> rows = Table.this.iterator();
+			return new Iterator<>() {
+				@Override
+				public boolean hasNext() {
+					return rows.hasNext();
+				}
+
+				@Override
+				public Object next() {
+					return rows.next().get(primaryIndex);
+				}
+			};
+		}
+
+		@Override
+		public Spliterator<Object> spliterator() {
+			return new KeySpliterator(Table.this.spliterator());
+		}
+
+		@Override
+		public int size() {
+			return Table.this.size();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return o != null && Table.this.contains(o);
+		}
+	}
+
+	/**
+	 * Implements the spliterator of the view returned by
+	 * {@link #keys()}, which maps a spliterator of rows.
+	 */
+	private class KeySpliterator implements Spliterator<Object> {
+		private final Spliterator<List<Object>> rows;
+
+		private KeySpliterator(Spliterator<List<Object>> rows) {
+			this.rows = rows;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Object> action) {
+			return rows.tryAdvance(row -> action.accept(row.get(primaryIndex)));
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super Object> action) {
+			rows.forEachRemaining(row -> action.accept(row.get(primaryIndex)));
+		}
+
+		@Override
+		public Spliterator<Object> trySplit() {
+			Spliterator<List<Object>> prefix = rows.trySplit();
+			return prefix != null ? new KeySpliterator(prefix) : null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return rows.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return rows.characteristics();
+		}
+	}
 }
@@ -0,0 +1,39 @@
+package tables;
+
+import java.util.List;
+
+/**
+ * Defines the protocols for observing
+ * the mutations of a table's state.
+ * <p>
+ * Each method is called after the mutation is applied,
+ * on the thread that applied it. The rows passed may be
+ * views that are only valid for the duration of the call,
+ * so a listener must copy any row it keeps.
+ */
+public interface TableListener {
+	/**
+	 * Called after a row is put into the given table.
+	 *
+	 * @param table the table.
+	 * @param oldRow the replaced row on a hit,
+	 * 		or <code>null</code> on a miss.
+	 * @param newRow the row put.
+	 */
+	void onPut(Table table, List<Object> oldRow, List<Object> newRow);
+
+	/**
+	 * Called after a row is removed from the given table.
+	 *
+	 * @param table the table.
+	 * @param oldRow the removed row.
+	 */
+	void onRemove(Table table, List<Object> oldRow);
+
+	/**
+	 * Called after all rows are removed from the given table.
+	 *
+	 * @param table the table.
+	 */
+	void onClear(Table table);
+}
@@ -0,0 +1,131 @@
+package tables;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Implements the counters of the operations
+ * on a table, once they are enabled.
+ * <p>
+ * Each counter is a {@link LongAdder}, which is striped
+ * across cells under contention, so engines that are
+ * mutated by concurrent threads never contend on it.
+ * Probe lengths are counted in a histogram with one
+ * bucket per power of two: 1, 2, 3 to 4, 5 to 8, and
+ * so on, where the last bucket counts every longer one.
+ */
+final class TableMetrics {
+	static final int BUCKETS = 8;
+
+	private final LongAdder gets = new LongAdder();
+	private final LongAdder getHits = new LongAdder();
+	private final LongAdder puts = new LongAdder();
+	private final LongAdder putHits = new LongAdder();
+	private final LongAdder removes = new LongAdder();
+	private final LongAdder removeHits = new LongAdder();
+	private final LongAdder resizes = new LongAdder();
+	private final LongAdder resizeNanos = new LongAdder();
+	private final LongAdder[] probes = new LongAdder[BUCKETS];
+
+	TableMetrics() {
+		for (int b = 0; b < BUCKETS; b++)
+			probes[b] = new LongAdder();
+	}
+
+	/**
+	 * Counts a get, and whether it was a hit.
+	 *
+	 * @param hit whether the key was present.
+	 */
+	void get(boolean hit) {
+		gets.increment();
+		if (hit)
+			getHits.increment();
+	}
+
+	/**
+	 * Counts a put, and whether it was a hit.
+	 *
+	 * @param hit whether the key was present.
+	 */
+	void put(boolean hit) {
+		puts.increment();
+		if (hit)
+			putHits.increment();
+	}
+
+	/**
+	 * Counts a remove, and whether it was a hit.
+	 *
+	 * @param hit whether the key was present.
+	 */
+	void remove(boolean hit) {
+		removes.increment();
+		if (hit)
+			removeHits.increment();
+	}
+
+	/**
+	 * Counts a lookup that examined
+	 * the given number of slots.
+	 *
+	 * @param length the probe length, positive.
+	 */
+	void probe(int length) {
+		probes[bucket(length)].increment();
+	}
+
+	/**
+	 * Counts a resize that took the
+	 * given number of nanoseconds.
+	 *
+	 * @param nanos the duration of the resize.
+	 */
+	void resize(long nanos) {
+		resizes.increment();
+		resizeNanos.add(nanos);
+	}
+
+	/**
+	 * Returns a snapshot of the counters, along with
+	 * the size, capacity, and tombstones of the given table.
+	 * <p>
+	 * Each counter is read on its own, so a snapshot
+	 * taken during concurrent operations may count an
+	 * operation in one counter but not yet in another.
+	 *
+	 * @param table the table.
+	 * @return the statistics.
+	 */
+	TableStats snapshot(Table table) {
+		long[] histogram = new long[BUCKETS];
+		for (int b = 0; b < BUCKETS; b++)
+			histogram[b] = probes[b].sum();
+
+		return new TableStats(
+			table.getTableName(),
+			true,
+			table.size(),
+			table.capacity(),
+			table.tombstones(),
+			gets.sum(),
+			getHits.sum(),
+			puts.sum(),
+			putHits.sum(),
+			removes.sum(),
+			removeHits.sum(),
+			TableStats.histogram(histogram),
+			resizes.sum(),
+			resizeNanos.sum()
+		);
+	}
+
+	/**
+	 * Returns the bucket of the given probe length.
+	 *
+	 * @param length a probe length, positive.
+	 * @return the bucket.
+	 */
+	static int bucket(int length) {
+		return Math.min(BUCKETS - 1, 32 - Integer.numberOfLeadingZeros(length - 1));
+	}
+}
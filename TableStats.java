@@ -0,0 +1,146 @@
+package tables;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Implements a snapshot of the statistics of a table,
+ * returned by {@link Table#stats()}.
+ * <p>
+ * The counters are only recorded once metrics are
+ * enabled on the table, and only by the engines that
+ * record them; otherwise they are zero. The probe
+ * lengths count the slots examined by each lookup that
+ * found its key, in buckets of powers of two, where the
+ * last bucket counts every longer lookup.
+ *
+ * @param tableName the table name.
+ * @param recording whether metrics are enabled.
+ * @param size the number of rows.
+ * @param capacity the capacity.
+ * @param tombstones the number of slots marked with a tombstone.
+ * @param gets the number of gets.
+ * @param getHits the number of gets that found their key.
+ * @param puts the number of puts.
+ * @param putHits the number of puts that replaced a row.
+ * @param removes the number of removes.
+ * @param removeHits the number of removes that removed a row.
+ * @param probeLengths the probe length histogram.
+ * @param resizes the number of resizes.
+ * @param resizeNanos the total duration of the resizes, in nanoseconds.
+ */
+public record TableStats(
+	String tableName,
+	boolean recording,
+	int size,
+	int capacity,
+	int tombstones,
+	long gets,
+	long getHits,
+	long puts,
+	long putHits,
+	long removes,
+	long removeHits,
+	List<Long> probeLengths,
+	long resizes,
+	long resizeNanos
+) {
+	/**
+	 * Returns the statistics of the given
+	 * table without metrics enabled.
+	 *
+	 * @param table the table.
+	 * @return the statistics.
+	 */
+	static TableStats of(Table table) {
+		return new TableStats(
+			table.getTableName(),
+			false,
+			table.size(),
+			table.capacity(),
+			table.tombstones(),
+			0, 0, 0, 0, 0, 0,
+			histogram(new long[TableMetrics.BUCKETS]),
+			0,
+			0
+		);
+	}
+
+	/**
+	 * Returns an unmodifiable list of the given counts.
+	 *
+	 * @param counts the counts.
+	 * @return the histogram.
+	 */
+	static List<Long> histogram(long[] counts) {
+		Long[] boxed = new Long[counts.length];
+		for (int b = 0; b < counts.length; b++)
+			boxed[b] = counts[b];
+		return List.of(boxed);
+	}
+
+	/**
+	 * Returns the label of each bucket
+	 * of the probe length histogram.
+	 *
+	 * @return the labels.
+	 */
+	public static List<String> probeLengthBuckets() {
+		String[] labels = new String[TableMetrics.BUCKETS];
+		for (int b = 0; b < labels.length; b++) {
+			int lo = b == 0 ? 1 : (1 << (b - 1)) + 1;
+			int hi = 1 << b;
+			labels[b] = b == labels.length - 1 ? lo + "+" : lo == hi ? "" + lo : lo + "-" + hi;
+		}
+		return List.of(labels);
+	}
+
+	/**
+	 * Returns the fraction of the gets that found their key,
+	 * or <code>0</code> if there were none.
+	 *
+	 * @return the get hit ratio.
+	 */
+	public double getHitRatio() {
+		return gets > 0 ? (double) getHits / gets : 0;
+	}
+
+	/**
+	 * Returns the fraction of the puts that replaced a row,
+	 * or <code>0</code> if there were none.
+	 *
+	 * @return the put hit ratio.
+	 */
+	public double putHitRatio() {
+		return puts > 0 ? (double) putHits / puts : 0;
+	}
+
+	/**
+	 * Returns the fraction of the removes that removed a row,
+	 * or <code>0</code> if there were none.
+	 *
+	 * @return the remove hit ratio.
+	 */
+	public double removeHitRatio() {
+		return removes > 0 ? (double) removeHits / removes : 0;
+	}
+
+	/**
+	 * Returns the ratio of the size to the capacity,
+	 * or <code>0</code> if the capacity is zero.
+	 *
+	 * @return the load factor.
+	 */
+	public double loadFactor() {
+		return capacity > 0 ? (double) size / capacity : 0;
+	}
+
+	/**
+	 * Returns the total duration of the resizes.
+	 *
+	 * @return the resize time.
+	 */
+	public Duration resizeTime() {
+		return Duration.ofNanos(resizeNanos);
+	}
+}
@@ -0,0 +1,485 @@
+package tables;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implements a hash-based table that keeps
+ * multiple versions of each row.
+ * <p>
+ * Each key maps to a chain of versions, newest first. A
+ * mutation is a commit: it takes the next timestamp and
+ * installs a new version at the head of each chain it changes,
+ * where a removal installs a version without fields. Versions
+ * are never changed once installed, and mutations are applied
+ * one at a time.
+ * <p>
+ * A {@link #snapshot()} reads the state as of the last commit
+ * before it was taken, by skipping any newer versions, so it is
+ * consistent without ever blocking a mutation, and a mutation
+ * never blocks it. Reads of the table itself take no lock and
+ * see the newest version of each row.
+ * <p>
+ * Versions that no open snapshot can read are collected: those
+ * of a key are pruned on each mutation of the key, and all of
+ * them are pruned once enough accumulate. A snapshot should be
+ * closed once it is no longer used, so that the versions it
+ * reads can be collected.
+ */
+public class VersionedTable extends Table {
+	private static final int VACUUM_THRESHOLD = 64;
+
+	/**
+	 * Implements a version of a row, with
+	 * <code>null</code> fields for a removal.
+	 *
+	 * @param commit the timestamp of the commit.
+	 * @param values the fields, if any.
+	 * @param older the next older version, if any.
+	 */
+	private record Version(long commit, Object[] values, Version older) {
+		/**
+		 * Returns the newest version as of the given
+		 * timestamp, or <code>null</code> if there is none.
+		 *
+		 * @param timestamp a timestamp.
+		 * @return the version, if any.
+		 */
+		private Version asOf(long timestamp) {
+			Version v = this;
+			while (v != null && v.commit > timestamp)
+				v = v.older;
+			return v;
+		}
+
+		/**
+		 * Returns a copy of this chain without the versions
+		 * older than the newest one as of the given timestamp,
+		 * or this chain if there are none to drop.
+		 *
+		 * @param timestamp the oldest timestamp still read.
+		 * @return the pruned chain.
+		 */
+		private Version prune(long timestamp) {
+			if (commit <= timestamp)
+				return older == null ? this : new Version(commit, values, null);
+			if (older == null)
+				return this;
+
+			Version pruned = older.prune(timestamp);
+			return pruned == older ? this : new Version(commit, values, pruned);
+		}
+	}
+
+	/**
+	 * Implements the counters of the state as of a commit,
+	 * published together so a snapshot reads them at once.
+	 *
+	 * @param timestamp the timestamp of the commit.
+	 * @param size the number of rows.
+	 * @param stateHash the sum of the hash codes in the state.
+	 */
+	private record Commit(long timestamp, int size, int stateHash) {}
+
+	private final ConcurrentHashMap<Object, Version> chains = new ConcurrentHashMap<>();
+	private final ReentrantLock writeLock = new ReentrantLock();
+
+	private volatile Commit latest = new Commit(0, 0, 0);
+
+	private final TreeMap<Long, Integer> open = new TreeMap<>();
+	private int superseded;
+
+	/**
+	 * Creates a table and initializes
+	 * the data structure.
+	 *
+	 * @param tableName the table name
+	 * @param columnNames the column names
+	 * @param columnTypes the column types
+	 * @param primaryIndex the primary index
+	 */
+	public VersionedTable(String tableName, List<String> columnNames, List<String> columnTypes, Integer primaryIndex) {
+		this.tableName = tableName;
+		this.columnNames = List.copyOf(columnNames);
+		this.columnTypes = List.copyOf(columnTypes);
+		this.primaryIndex = primaryIndex;
+	}
+
+	@Override
+	public void clear() {
+		writeLock.lock();
+		try {
+			Commit commit = latest;
+			long timestamp = commit.timestamp() + 1;
+
+			for (Map.Entry<Object, Version> entry: chains.entrySet()) {
+				Version head = entry.getValue();
+				if (head.values() != null) {
+					entry.setValue(new Version(timestamp, null, head));
+					superseded++;
+				}
+			}
+
+			latest = new Commit(timestamp, 0, 0);
+			collect();
+
+			fireClear();
+		}
+		finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public boolean put(List<Object> row) {
+		Object[] values = row.toArray();
+		Object key = values[primaryIndex];
+
+		writeLock.lock();
+		try {
+			Commit commit = latest;
+			long timestamp = commit.timestamp() + 1;
+
+			Version head = chains.get(key);
+			Object[] replaced = head != null ? head.values() : null;
+			chains.put(key, new Version(timestamp, values, prune(head)));
+			if (head != null)
+				superseded++;
+
+			if (replaced != null)
+				latest = new Commit(timestamp, commit.size(), commit.stateHash() + rowHash(values) - rowHash(replaced));
+			else
+				latest = new Commit(timestamp, commit.size() + 1, commit.stateHash() + rowHash(values));
+			collect();
+
+			if (observed())
+				firePut(replaced != null ? view(replaced) : null, view(values));
+			return replaced != null;
+		}
+		finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public boolean remove(Object key) {
+		writeLock.lock();
+		try {
+			Version head = chains.get(key);
+			if (head == null || head.values() == null)
+				return false;
+
+			Commit commit = latest;
+			long timestamp = commit.timestamp() + 1;
+
+			Object[] removed = head.values();
+			chains.put(key, new Version(timestamp, null, prune(head)));
+			superseded++;
+
+			latest = new Commit(timestamp, commit.size() - 1, commit.stateHash() - rowHash(removed));
+			collect();
+
+			if (observed())
+				fireRemove(view(removed));
+			return true;
+		}
+		finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public List<Object> get(Object key) {
+		Version head = chains.get(key);
+		return head != null && head.values() != null ? view(head.values()) : null;
+	}
+
+	@Override
+	public int size() {
+		return latest.size();
+	}
+
+	@Override
+	public int capacity() {
+		return chains.size();
+	}
+
+	@Override
+	protected int stateHash() {
+		return latest.stateHash();
+	}
+
+	/**
+	 * Returns a weakly consistent iterator
+	 * over the newest version of each row.
+	 * <p>
+	 * For a consistent iteration, iterate
+	 * a {@link #snapshot()} instead.
+	 *
+	 * @return an iterator of rows.
+	 */
+	@Override
+	public Iterator<List<Object>> iterator() {
+		return new VersionIterator(Long.MAX_VALUE);
+	}
+
+	/**
+	 * Returns a snapshot of the state as of the last
+	 * commit, which shares the versions of this table
+	 * instead of copying them, so it takes constant time.
+	 * <p>
+	 * The snapshot implements {@link Closeable}, and
+	 * should be closed once it is no longer used.
+	 *
+	 * @return the snapshot.
+	 */
+	@Override
+	public Table snapshot() {
+		Commit commit;
+		synchronized (open) {
+			commit = latest;
+			open.merge(commit.timestamp(), 1, Integer::sum);
+		}
+		return new Snapshot(commit);
+	}
+
+	/**
+	 * Returns the number of versions that
+	 * are no longer the newest of their key
+	 * and are not yet collected.
+	 *
+	 * @return the number of old versions.
+	 */
+	public int oldVersions() {
+		writeLock.lock();
+		try {
+			return superseded;
+		}
+		finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Prunes every chain of the versions that
+	 * no open snapshot can read, and drops the
+	 * keys whose only remaining version is a removal.
+	 */
+	public void vacuum() {
+		writeLock.lock();
+		try {
+			long timestamp = oldestRead();
+			int remaining = 0;
+
+			for (Map.Entry<Object, Version> entry: chains.entrySet()) {
+				Version head = entry.getValue();
+				Version pruned = head.prune(timestamp);
+				if (pruned.values() == null && pruned.commit() <= timestamp && pruned.older() == null) {
+					chains.remove(entry.getKey(), head);
+					continue;
+				}
+				if (pruned != head)
+					entry.setValue(pruned);
+
+				for (Version v = pruned.older(); v != null; v = v.older())
+					remaining++;
+				if (pruned.values() == null)
+					remaining++;
+			}
+
+			superseded = remaining;
+		}
+		finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the timestamp of the oldest open
+	 * snapshot, or of the last commit if none is open,
+	 * which is the oldest state that can still be read.
+	 * The caller holds the write lock.
+	 *
+	 * @return the timestamp.
+	 */
+	private long oldestRead() {
+		synchronized (open) {
+			return open.isEmpty() ? latest.timestamp() : open.firstKey();
+		}
+	}
+
+	/**
+	 * Prunes the given chain before a new
+	 * version is installed at its head.
+	 * The caller holds the write lock.
+	 * <p>
+	 * A chain left with only a removal that every
+	 * snapshot can read is dropped, since any snapshot
+	 * taken later reads the same absence of the key.
+	 * A key is never dropped otherwise, since a snapshot
+	 * taken meanwhile could still read its newest version.
+	 *
+	 * @param head the head of a chain, if any.
+	 * @return the pruned chain.
+	 */
+	private Version prune(Version head) {
+		if (head == null)
+			return null;
+
+		long timestamp = oldestRead();
+		Version pruned = head.prune(timestamp);
+		if (pruned.values() == null && pruned.older() == null && pruned.commit() <= timestamp)
+			return null;
+		return pruned;
+	}
+
+	/**
+	 * Vacuums the table once enough old
+	 * versions accumulate since the last time.
+	 * The caller holds the write lock.
+	 */
+	private void collect() {
+		if (superseded > Math.max(VACUUM_THRESHOLD, latest.size()))
+			vacuum();
+	}
+
+	private void release(long timestamp) {
+		synchronized (open) {
+			open.computeIfPresent(timestamp, (t, count) -> count > 1 ? count - 1 : null);
+		}
+	}
+
+	private static List<Object> view(Object[] values) {
+		return Collections.unmodifiableList(Arrays.asList(values));
+	}
+
+	/**
+	 * Implements an iterator over the rows
+	 * as of the given timestamp.
+	 */
+	private class VersionIterator implements Iterator<List<Object>> {
+		private final Iterator<Version> heads = chains.values().iterator();
+		private final long timestamp;
+		private Object[] next;
+
+		private VersionIterator(long timestamp) {
+			this.timestamp = timestamp;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (next == null && heads.hasNext()) {
+				Version v = heads.next().asOf(timestamp);
+				if (v != null)
+					next = v.values();
+			}
+			return next != null;
+		}
+
+		@Override
+		public List<Object> next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+
+			List<Object> row = view(next);
+			next = null;
+			return row;
+		}
+	}
+
+	/**
+	 * Implements a read-only snapshot of
+	 * the state as of a given commit.
+	 */
+	private class Snapshot extends Table implements Closeable {
+		private final Commit commit;
+		private boolean closed;
+
+		private Snapshot(Commit commit) {
+			this.commit = commit;
+
+			setTableName(VersionedTable.this.tableName);
+			setColumnNames(VersionedTable.this.columnNames);
+			setColumnTypes(VersionedTable.this.columnTypes);
+			setPrimaryIndex(VersionedTable.this.primaryIndex);
+		}
+
+		@Override
+		public void clear() {
+			throw new UnsupportedOperationException("Table <%s> is a snapshot".formatted(tableName));
+		}
+
+		@Override
+		public boolean put(List<Object> row) {
+			throw new UnsupportedOperationException("Table <%s> is a snapshot".formatted(tableName));
+		}
+
+		@Override
+		public boolean remove(Object key) {
+			throw new UnsupportedOperationException("Table <%s> is a snapshot".formatted(tableName));
+		}
+
+		@Override
+		public List<Object> get(Object key) {
+			ensureOpen();
+
+			Version head = chains.get(key);
+			Version v = head != null ? head.asOf(commit.timestamp()) : null;
+			return v != null && v.values() != null ? view(v.values()) : null;
+		}
+
+		@Override
+		public int size() {
+			return commit.size();
+		}
+
+		@Override
+		public int capacity() {
+			return commit.size();
+		}
+
+		@Override
+		protected int stateHash() {
+			return commit.stateHash();
+		}
+
+		@Override
+		public Iterator<List<Object>> iterator() {
+			ensureOpen();
+
+			return new VersionIterator(commit.timestamp());
+		}
+
+		@Override
+		public Table snapshot() {
+			return this;
+		}
+
+		/**
+		 * Closes this snapshot, after which the versions
+		 * it reads can be collected and it can no longer
+		 * be read, except for its size and fingerprint.
+		 */
+		@Override
+		public synchronized void close() {
+			if (closed)
+				return;
+
+			closed = true;
+			release(commit.timestamp());
+		}
+
+		private synchronized void ensureOpen() {
+			if (closed)
+				throw new IllegalStateException("Snapshot of table <%s> is closed".formatted(tableName));
+		}
+	}
+}
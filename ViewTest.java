@@ -0,0 +1,134 @@
+package grade;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import tables.ColumnarTable;
+import tables.ConcurrentTable;
+import tables.HashArrayTable;
+import tables.Table;
+
+public class ViewTest {
+	private static final List<String> NAMES = List.of("v", "k");
+	private static final List<String> TYPES = List.of("string", "integer");
+
+	private static final List<Supplier<Table>> ENGINES = List.of(
+		() -> new HashArrayTable("t", NAMES, TYPES, 1),
+		() -> new ConcurrentTable("t", NAMES, TYPES, 1),
+		() -> new ColumnarTable("t", NAMES, TYPES, 1)
+	);
+
+	private static Set<List<Object>> copy(Table table) {
+		Set<List<Object>> rows = new HashSet<>();
+		for (List<Object> row: table)
+			rows.add(List.copyOf(row));
+		return rows;
+	}
+
+	private static Set<Object> copyKeys(Table table) {
+		Set<Object> keys = new HashSet<>();
+		for (List<Object> row: table)
+			keys.add(row.get(1));
+		return keys;
+	}
+
+	private static void assertViews(Table table, Set<List<Object>> rows, Set<Object> keys) {
+		assertEquals(table.size(), rows.size());
+		assertEquals(table.size(), keys.size());
+		assertEquals(copy(table), rows);
+		assertEquals(copy(table), new HashSet<>(rows));
+		assertEquals(copyKeys(table), keys);
+		assertEquals(copyKeys(table), new HashSet<>(keys));
+		assertEquals(copy(table).hashCode(), rows.hashCode());
+		assertEquals(copyKeys(table).hashCode(), keys.hashCode());
+		assertEquals(table.size(), keys.stream().count());
+		assertEquals(table.size(), rows.parallelStream().count());
+	}
+
+	@Test
+	public void viewsFollowMutations() {
+		for (Supplier<Table> engine: ENGINES) {
+			Table table = engine.get();
+			Set<List<Object>> rows = table.rows();
+			Set<Object> keys = table.keys();
+			assertTrue(rows.isEmpty());
+			assertTrue(keys.isEmpty());
+
+			for (int k = 0; k < 1000; k++)
+				table.put(List.of("v" + k, k));
+			assertViews(table, rows, keys);
+
+			for (int k = 0; k < 1000; k += 2)
+				table.remove(k);
+			table.put(List.of("w", 1));
+			assertViews(table, rows, keys);
+			assertFalse(keys.contains(0), "A removed key must leave the view");
+			assertFalse(rows.contains(List.of("v0", 0)), "A removed row must leave the view");
+			assertFalse(rows.contains(List.of("v1", 1)), "A replaced row must leave the view");
+			assertTrue(rows.contains(List.of("w", 1)));
+
+			table.clear();
+			assertTrue(rows.isEmpty());
+			assertTrue(keys.isEmpty());
+			assertFalse(keys.iterator().hasNext());
+		}
+	}
+
+	@Test
+	public void containsChecksTheWholeRow() {
+		for (Supplier<Table> engine: ENGINES) {
+			Table table = engine.get();
+			table.put(List.of("a", 1));
+			Set<List<Object>> rows = table.rows();
+			Set<Object> keys = table.keys();
+
+			assertTrue(rows.contains(List.of("a", 1)));
+			assertTrue(rows.contains(new ArrayList<>(List.of("a", 1))));
+			assertFalse(rows.contains(List.of("b", 1)));
+			assertFalse(rows.contains(List.of("a", 2)));
+			assertFalse(rows.contains(List.of("a", 1, 1)));
+			assertFalse(rows.contains(List.of(1)));
+			assertFalse(rows.contains(Arrays.asList("a", null)));
+			assertFalse(rows.contains("a"));
+			assertFalse(rows.contains(null));
+
+			assertTrue(keys.contains(1));
+			assertFalse(keys.contains(2));
+			assertFalse(keys.contains("1"));
+			assertFalse(keys.contains(null));
+		}
+	}
+
+	@Test
+	public void viewsAreUnmodifiable() {
+		for (Supplier<Table> engine: ENGINES) {
+			Table table = engine.get();
+			table.put(List.of("a", 1));
+			Set<List<Object>> rows = table.rows();
+			Set<Object> keys = table.keys();
+
+			assertThrows(UnsupportedOperationException.class, () -> rows.add(List.of("b", 2)));
+			assertThrows(UnsupportedOperationException.class, () -> rows.remove(List.of("a", 1)));
+			assertThrows(UnsupportedOperationException.class, () -> keys.add(2));
+			assertThrows(UnsupportedOperationException.class, () -> keys.remove(1));
+			assertThrows(UnsupportedOperationException.class, () -> keys.removeIf(k -> true));
+
+			Iterator<Object> iterator = keys.iterator();
+			iterator.next();
+			assertThrows(UnsupportedOperationException.class, iterator::remove);
+			assertThrows(UnsupportedOperationException.class, () -> rows.iterator().next().set(0, "b"));
+
+			assertEquals(List.of("a", 1), table.get(1), "A rejected mutation must leave the table as it was");
+			assertEquals(1, table.size());
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package grade;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import apps.WriteAheadLog;
+import tables.MappedTable;
+
+public class WriteAheadLogTest {
+	@TempDir
+	Path directory;
+
+	private static List<String> replay(Path file) throws IOException {
+		List<String> records = new ArrayList<>();
+		try (WriteAheadLog log = new WriteAheadLog(file, Duration.ZERO)) {
+			log.replay(new WriteAheadLog.Handler() {
+				@Override
+				public void put(String tableName, List<Object> row) {
+					records.add("put %s %s".formatted(tableName, row));
+				}
+
+				@Override
+				public void remove(String tableName, Object key) {
+					records.add("remove %s %s".formatted(tableName, key));
+				}
+
+				@Override
+				public void clear(String tableName) {
+					records.add("clear %s".formatted(tableName));
+				}
+			});
+		}
+		return records;
+	}
+
+	@Test
+	public void replayAppliesRecordsInOrder() throws IOException {
+		Path file = directory.resolve("wal");
+		try (WriteAheadLog log = new WriteAheadLog(file, Duration.ZERO)) {
+			log.logPut("t", List.of("a", 1, true));
+			log.logRemove("t", "a");
+			log.logClear("u");
+			log.logState("u", List.of(List.of(2, "b"), List.of(3, "c")));
+			log.logPut("t", Arrays.asList("n", null, false));
+		}
+
+		assertEquals(List.of(
+			"put t [a, 1, true]",
+			"remove t a",
+			"clear u",
+			"clear u",
+			"put u [2, b]",
+			"put u [3, c]",
+			"put t [n, null, false]"
+		), replay(file));
+	}
+
+	@Test
+	public void replayTruncatesTornTail() throws IOException {
+		Path file = directory.resolve("wal");
+		long intact;
+		try (WriteAheadLog log = new WriteAheadLog(file, Duration.ZERO)) {
+			log.logPut("t", List.of("a", 1));
+			log.logPut("t", List.of("b", 2));
+			intact = log.position();
+			log.logPut("t", List.of("c", 3));
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(Files.size(file) - 3);
+		}
+
+		assertEquals(List.of("put t [a, 1]", "put t [b, 2]"), replay(file));
+		assertEquals(intact, Files.size(file), "The torn record must be cut off");
+
+		try (WriteAheadLog log = new WriteAheadLog(file, Duration.ZERO)) {
+			log.logPut("t", List.of("d", 4));
+		}
+		assertEquals(List.of("put t [a, 1]", "put t [b, 2]", "put t [d, 4]"), replay(file));
+	}
+
+	@Test
+	public void replayStopsAtCorruptRecord() throws IOException {
+		Path file = directory.resolve("wal");
+		long intact;
+		try (WriteAheadLog log = new WriteAheadLog(file, Duration.ZERO)) {
+			log.logPut("t", List.of("a", 1));
+			intact = log.position();
+			log.logPut("t", List.of("b", 2));
+			log.logPut("t", List.of("c", 3));
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			long at = intact + 8 + 1;
+			ByteBuffer payload = ByteBuffer.allocate(1);
+			channel.read(payload, at);
+			payload.put(0, (byte) (payload.get(0) ^ 1)).rewind();
+			channel.write(payload, at);
+		}
+
+		assertEquals(List.of("put t [a, 1]"), replay(file));
+		assertEquals(intact, Files.size(file));
+	}
+
+	@Test
+	public void truncateKeepsLaterRecords() throws IOException {
+		Path file = directory.resolve("wal");
+		try (WriteAheadLog log = new WriteAheadLog(file, Duration.ZERO)) {
+			log.logPut("t", List.of("a", 1));
+			long first = log.position();
+			log.logPut("t", List.of("b", 2));
+			long second = log.position();
+
+			log.truncate(first);
+			assertEquals(second, log.position(), "Positions must not move back on truncation");
+			assertEquals(second - first, log.length());
+			assertEquals(second - first, Files.size(file));
+
+			log.logRemove("t", "b");
+			log.truncate(log.position());
+			assertEquals(0, log.length());
+			assertEquals(0, Files.size(file));
+
+			log.logPut("t", List.of("c", 3));
+		}
+
+		assertEquals(List.of("put t [c, 3]"), replay(file));
+	}
+
+	@Test
+	public void writersOfOneTableShareForces() throws Exception {
+		int writers = 8;
+		try (
+			WriteAheadLog log = new WriteAheadLog(directory.resolve("wal"), Duration.ofMillis(20));
+			MappedTable table = new MappedTable(directory.resolve("t.table"), "t", List.of("k"), List.of("integer"), 0)
+		) {
+			table.setJournal(log);
+
+			CountDownLatch start = new CountDownLatch(1);
+			List<Thread> threads = new ArrayList<>();
+			for (int i = 0; i < writers; i++) {
+				int k = i;
+				threads.add(Thread.ofPlatform().start(() -> {
+					try {
+						start.await();
+					}
+					catch (InterruptedException e) {
+						return;
+					}
+					table.put(List.of(k));
+				}));
+			}
+			start.countDown();
+			for (Thread thread: threads)
+				thread.join();
+
+			assertEquals(writers, table.size());
+			assertTrue(log.forces() < writers / 2, "Writers of one table must share forces, but took %d".formatted(log.forces()));
+		}
+
+		List<String> records = replay(directory.resolve("wal"));
+		assertEquals(writers, records.size());
+	}
+
+	@Test
+	public void journalRecordsOnlyValidMutations() throws IOException {
+		Path file = directory.resolve("wal");
+		try (
+			WriteAheadLog log = new WriteAheadLog(file, Duration.ZERO);
+			MappedTable table = new MappedTable(directory.resolve("t.table"), "t", List.of("k", "v"), List.of("string", "integer"), 0)
+		) {
+			table.setJournal(log);
+
+			assertThrows(IllegalArgumentException.class, () -> table.put(List.of("a", "not an integer")));
+			assertFalse(table.remove("absent"));
+			assertEquals(0, log.length());
+
+			table.put(List.of("a", 1));
+			table.remove("a");
+			table.clear();
+		}
+
+		assertEquals(List.of("put t [a, 1]", "remove t a", "clear t"), replay(file));
+	}
+}
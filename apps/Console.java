@@ -5,8 +5,11 @@ import java.io.PrintStream;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
 
 import drivers.Response;
+import tables.Table;
 
 /**
  * Implements a user console for
@@ -16,6 +19,8 @@ import drivers.Response;
  * but you may add new protocols.
  */
 public class Console {
+	private static final int BATCH_SIZE = 64;
+
 	/**
 	 * The entry point for execution
 	 * with user input/output.
@@ -33,18 +38,111 @@ public class Console {
 
 			String text = in.nextLine();
 
-			List<String> queries = new LinkedList<>();
-			queries.add(text);
-
-			List<Response> responses = db.interpret(queries);
+			List<Response> responses = db.interpret(split(text));
 
-			out.println("Query:   " + responses.get(0).query());
-			out.println("Status:  " + responses.get(0).status());
-			out.println("Message: " + responses.get(0).message());
-			out.println("Table:   " + responses.get(0).table());
+			for (Response res: responses) {
+				out.println("Query:   " + res.query());
+				out.println("Status:  " + res.status());
+				out.println("Message: " + res.message());
+				print(res.table(), out);
+			}
 		}
 		catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
+
+	/**
+	 * Splits the given line into queries at each
+	 * semicolon outside a quoted string, and returns
+	 * the queries stripped, skipping blank ones.
+	 *
+	 * @param text a line of queries.
+	 * @return the list of queries.
+	 */
+	public static List<String> split(String text) {
+		List<String> queries = new LinkedList<>();
+		boolean quoted = false;
+		int start = 0;
+		for (int i = 0; i <= text.length(); i++) {
+			char c = i < text.length() ? text.charAt(i) : ';';
+			if (c == '"')
+				quoted = !quoted;
+			else if (c == ';' && (!quoted || i == text.length())) {
+				String query = text.substring(start, i);
+				if (!query.isBlank())
+					queries.add(query.strip());
+				start = i + 1;
+			}
+		}
+		return queries;
+	}
+
+	/**
+	 * Prints the schema of the given table, then
+	 * each row as the table produces it, so that
+	 * the first rows of a large result are printed
+	 * without waiting for the rest.
+	 * <p>
+	 * Rows are requested in batches, so at most
+	 * one batch is produced ahead of printing.
+	 *
+	 * @param table a table, or <code>null</code>.
+	 * @param out the output stream.
+	 */
+	public static void print(Table table, PrintStream out) {
+		if (table == null) {
+			out.println("Table:   null");
+			return;
+		}
+
+		out.println("Table:   %s %s %s primary %d".formatted(
+			table.getTableName(),
+			table.getColumnNames(),
+			table.getColumnTypes(),
+			table.getPrimaryIndex()
+		));
+
+		CountDownLatch done = new CountDownLatch(1);
+		table.publisher().subscribe(new Flow.Subscriber<>() {
+			private Flow.Subscription subscription;
+			private int pending;
+
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				this.subscription = subscription;
+				pending = BATCH_SIZE;
+				subscription.request(BATCH_SIZE);
+			}
+
+			@Override
+			public void onNext(List<Object> row) {
+				out.println("         " + row);
+				if (--pending == 0) {
+					pending = BATCH_SIZE;
+					out.flush();
+					subscription.request(BATCH_SIZE);
+				}
+			}
+
+			@Override
+			public void onError(Throwable e) {
+				out.println("         Failed: " + e);
+				done.countDown();
+			}
+
+			@Override
+			public void onComplete() {
+				done.countDown();
+			}
+		});
+
+		try {
+			done.await();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		out.flush();
+	}
 }
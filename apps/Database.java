@@ -2,12 +2,43 @@ package apps;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 import drivers.Driver;
+import drivers.DumpTable;
 import drivers.Echo;
+import drivers.Plan;
+import drivers.Range;
 import drivers.Response;
+import drivers.Stats;
+import drivers.Status;
+import tables.HashArrayTable;
+import tables.MappedTable;
 import tables.Table;
 
 /**
@@ -18,23 +49,127 @@ import tables.Table;
  * but you may add new protocols.
  */
 public class Database implements Closeable {
-	private final List<Table> tables;
+	private static final Duration CHECKPOINT_INTERVAL = Duration.ofSeconds(30);
+	private static final int PLAN_CACHE_SIZE = 256;
+	private static final int PIPELINE_DEPTH = 64;
+
+	private final Map<String, Table> catalog = new ConcurrentHashMap<>();
+	private volatile List<Table> tables = List.of();
 	private final List<Driver> drivers;
+	private final Router router;
+	private final Map<String, PreparedQuery> plans = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, PreparedQuery> eldest) {
+			return size() > PLAN_CACHE_SIZE;
+		}
+	};
 	private final boolean persistent;
+	private final Path directory;
+	private final Duration commitWindow;
+	private final Duration checkpointInterval;
+	private WriteAheadLog log;
+
+	private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+	private ScheduledExecutorService checkpointer;
+	private final AtomicBoolean checkpointing = new AtomicBoolean();
+	private volatile RuntimeException checkpointFailure;
 
 	/**
 	 * Initializes the drivers and the tables.
+	 * <p>
+	 * A persistent database keeps its tables in
+	 * the <code>data</code> directory.
 	 *
 	 * @param persistent whether the database is persistent.
 	 */
 	public Database(boolean persistent) {
+		this(persistent, Path.of("data"));
+	}
+
+	/**
+	 * Initializes the drivers and the tables.
+	 * <p>
+	 * A persistent database keeps each table in a
+	 * {@link MappedTable} file in the given directory,
+	 * and reopens every table file found there.
+	 *
+	 * @param persistent whether the database is persistent.
+	 * @param directory the directory of the table files.
+	 */
+	public Database(boolean persistent, Path directory) {
+		this(persistent, directory, Duration.ZERO);
+	}
+
+	/**
+	 * Initializes the drivers and the tables.
+	 * <p>
+	 * A persistent database also records each mutation
+	 * of its tables in a {@link WriteAheadLog} in the
+	 * given directory, and replays it on startup.
+	 * Concurrent mutations wait up to the given
+	 * commit window to share a single force.
+	 *
+	 * @param persistent whether the database is persistent.
+	 * @param directory the directory of the table files.
+	 * @param commitWindow the group commit window of the log.
+	 */
+	public Database(boolean persistent, Path directory, Duration commitWindow) {
+		this(persistent, directory, commitWindow, CHECKPOINT_INTERVAL);
+	}
+
+	/**
+	 * Initializes the drivers and the tables.
+	 * <p>
+	 * A persistent database also takes a {@link #checkpoint()}
+	 * in the background at the given interval, which bounds
+	 * the length of the log that is replayed on startup.
+	 * The checkpoints begin once a table is first found
+	 * or created, after the constructor has returned.
+	 *
+	 * @param persistent whether the database is persistent.
+	 * @param directory the directory of the table files.
+	 * @param commitWindow the group commit window of the log.
+	 * @param checkpointInterval the interval between checkpoints.
+	 */
+	public Database(boolean persistent, Path directory, Duration commitWindow, Duration checkpointInterval) {
+		this(persistent, directory, commitWindow, checkpointInterval, List.of());
+	}
+
+	/**
+	 * Initializes the drivers and the tables.
+	 * <p>
+	 * The given drivers extend the built-in drivers,
+	 * and are routed after them, in the given order.
+	 *
+	 * @param persistent whether the database is persistent.
+	 * @param directory the directory of the table files.
+	 * @param commitWindow the group commit window of the log.
+	 * @param checkpointInterval the interval between checkpoints.
+	 * @param extensions the drivers to add.
+	 */
+	public Database(boolean persistent, Path directory, Duration commitWindow, Duration checkpointInterval, List<Driver> extensions) {
 		this.persistent = persistent;
+		this.directory = directory;
+		this.commitWindow = commitWindow;
+		this.checkpointInterval = checkpointInterval;
+
+		List<Driver> all = new ArrayList<>(List.of(
+			new Echo(),
+			new DumpTable(),
+			new Range(),
+			new Stats()
+		));
+		all.addAll(extensions);
+		drivers = List.copyOf(all);
+		router = new Router(drivers);
 
-		tables = new LinkedList<>();
+		if (persistent) {
+			load();
 
-		drivers = List.of(
-			new Echo()
-		);
+			checkpointer = Executors.newSingleThreadScheduledExecutor(
+				Thread.ofPlatform().name("checkpoint").daemon().factory()
+			);
+		}
 	}
 
 	/**
@@ -49,83 +184,916 @@ public class Database implements Closeable {
 	/**
 	 * Returns an unmodifiable list
 	 * of the tables in the database.
+	 * <p>
+	 * The list is a snapshot in creation order, which is
+	 * rebuilt only when a table is created or dropped,
+	 * so this method takes constant time.
 	 *
 	 * @return the list of tables.
 	 */
 	public List<Table> tables() {
-		return List.copyOf(tables);
+		startCheckpoints();
+		return tables;
 	}
 
 	/**
 	 * Returns the table with the given name,
 	 * or <code>null</code> if there is none.
+	 * <p>
+	 * The catalog is a concurrent hash map of the
+	 * tables by name, so this is a single lookup.
 	 *
 	 * @param tableName a table name.
 	 * @return the corresponding table, if any.
 	 */
 	public Table find(String tableName) {
-		return null;
+		startCheckpoints();
+		return tableName != null ? catalog.get(tableName) : null;
 	}
 
 	/**
 	 * Returns <code>true</code> if a table with the
 	 * given name exists or <code>false</code> otherwise.
+	 * <p>
+	 * A caller that goes on to use the table should
+	 * call {@link #find(String)} once instead.
 	 *
 	 * @param tableName a table name.
 	 * @return whether the corresponding table exists.
 	 */
 	public boolean exists(String tableName) {
-		return false;
+		return tableName != null && catalog.containsKey(tableName);
 	}
 
 	/**
 	 * Creates the given table, unless
 	 * a table with the corresponding name exists.
 	 * <p>
+	 * A persistent database only stores tables as they
+	 * are given, so it only accepts a {@link MappedTable}
+	 * whose file is the table file for its name in the
+	 * directory of the database, and rejects any other
+	 * table, which is left as is; see
+	 * {@link #create(String, List, List, Integer)}. The
+	 * state of the table is recorded in the log, so that
+	 * a replay never depends on an earlier table of the
+	 * same name.
+	 * <p>
 	 * Returns <code>true</code> if created
 	 * or <code>false</code> otherwise.
 	 *
 	 * @return whether the table was created.
+	 * @throws IllegalArgumentException if the database
+	 * 		is persistent and cannot store the table.
 	 */
 	public boolean create(Table table) {
-		return false;
+		startCheckpoints();
+		if (persistent && !(table instanceof MappedTable m && m.path().equals(file(table.getTableName()))))
+			throw new IllegalArgumentException("Table <%s> is not stored in <%s>".formatted(
+				table.getTableName(),
+				file(table.getTableName())
+			));
+
+		checkpointLock.readLock().lock();
+		try {
+			synchronized (catalog) {
+				if (exists(table.getTableName()))
+					return false;
+
+				if (persistent)
+					attach((MappedTable) table);
+
+				register(table);
+				return true;
+			}
+		}
+		finally {
+			checkpointLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Creates an empty table with the given schema, unless
+	 * a table with the corresponding name exists.
+	 * <p>
+	 * The table is a {@link MappedTable} in its table file
+	 * in a persistent database, or a {@link HashArrayTable}
+	 * otherwise. The file is only created once the name is
+	 * known to be free, so an existing table is never replaced.
+	 * <p>
+	 * Returns <code>true</code> if created
+	 * or <code>false</code> otherwise.
+	 *
+	 * @param tableName the table name
+	 * @param columnNames the column names
+	 * @param columnTypes the column types
+	 * @param primaryIndex the primary index
+	 * @return whether the table was created.
+	 */
+	public boolean create(String tableName, List<String> columnNames, List<String> columnTypes, Integer primaryIndex) {
+		if (!persistent)
+			return create(new HashArrayTable(tableName, columnNames, columnTypes, primaryIndex));
+
+		startCheckpoints();
+
+		checkpointLock.readLock().lock();
+		try {
+			synchronized (catalog) {
+				if (exists(tableName))
+					return false;
+
+				MappedTable table = new MappedTable(file(tableName), tableName, columnNames, columnTypes, primaryIndex);
+				attach(table);
+				register(table);
+				return true;
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		finally {
+			checkpointLock.readLock().unlock();
+		}
 	}
 
 	/**
 	 * Drops the table with the given name, unless
 	 * no table with the given name exists.
 	 * <p>
+	 * A dropped table that holds resources,
+	 * such as off-heap memory, is closed.
+	 * <p>
+	 * A persistent database then deletes the table file,
+	 * and logs nothing, since a replay skips the records
+	 * of a table without a file, and the state recorded
+	 * when a table of the same name is created begins
+	 * with a clear. So a process that dies before the
+	 * file is deleted restarts with the table as it was.
+	 * <p>
 	 * Returns <code>true</code> if dropped
 	 * or <code>false</code> otherwise.
 	 *
 	 * @return whether the table was dropped.
 	 */
 	public boolean drop(String tableName) {
-		return false;
+		checkpointLock.readLock().lock();
+		try {
+			Table table;
+			synchronized (catalog) {
+				table = tableName != null ? catalog.remove(tableName) : null;
+				if (table == null)
+					return false;
+
+				List<Table> kept = new ArrayList<>(tables);
+				kept.remove(table);
+				tables = List.copyOf(kept);
+			}
+
+			release(table);
+
+			if (persistent) {
+				try {
+					Files.deleteIfExists(file(tableName));
+				}
+				catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			return true;
+		}
+		finally {
+			checkpointLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Defines the protocols for receiving
+	 * the responses of a pipelined interpretation.
+	 */
+	@FunctionalInterface
+	public interface Callback {
+		/**
+		 * Receives the response to a query
+		 * as soon as it is complete.
+		 *
+		 * @param index the position of the query in its list.
+		 * @param response the response.
+		 * @param timings the timings of the query.
+		 */
+		void completed(int index, Response response, Timings timings);
+	}
+
+	/**
+	 * Implements the state of a query
+	 * as it passes through the pipeline.
+	 * Each time is a reading of {@link System#nanoTime()}.
+	 */
+	private static final class Ticket {
+		private final int index;
+		private final String query;
+		private List<Driver> candidates;
+		private RuntimeException failure;
+		private long created, parsed, planning, planned, started, finished;
+
+		private Ticket(int index, String query) {
+			this.index = index;
+			this.query = query;
+		}
+
+		private Timings timings() {
+			return new Timings(
+				Duration.ofNanos(parsed - created),
+				Duration.ofNanos(planned - planning),
+				Duration.ofNanos(planning - parsed + started - planned),
+				Duration.ofNanos(finished - started)
+			);
+		}
 	}
 
 	/**
 	 * Interprets a list of queries and returns
 	 * a list of responses to each in sequence.
+	 * <p>
+	 * The queries are interpreted in a pipeline, as by
+	 * {@link #interpret(List, Callback)}, and the responses
+	 * are collected in the order of the queries.
+	 * <p>
+	 * A query that no driver recognizes
+	 * has an unrecognized response.
 	 *
 	 * @param queries the list of queries.
 	 * @return the list of responses.
 	 */
 	public List<Response> interpret(List<String> queries) {
-		List<Response> responses = new LinkedList<>();
+		return interpret(queries, new ArrayList<>(queries.size()));
+	}
+
+	/**
+	 * Interprets a list of queries and returns
+	 * a list of responses to each in sequence,
+	 * as by {@link #interpret(List)}, and adds the
+	 * timings of each query to the given list, in
+	 * the same order.
+	 *
+	 * @param queries the list of queries.
+	 * @param timings the list to add the timings to.
+	 * @return the list of responses.
+	 */
+	public List<Response> interpret(List<String> queries, List<Timings> timings) {
+		Response[] responses = new Response[queries.size()];
+		Timings[] stages = new Timings[queries.size()];
+		interpret(queries, (index, res, times) -> {
+			responses[index] = res;
+			stages[index] = times;
+		});
+
+		timings.addAll(Arrays.asList(stages));
+		return new LinkedList<>(Arrays.asList(responses));
+	}
+
+	/**
+	 * Interprets a list of queries in a pipeline, and
+	 * passes the response to each query, along with its
+	 * timings, to the given callback as soon as it is
+	 * complete, which may be out of order.
+	 * <p>
+	 * The pipeline has three stages that overlap. The
+	 * parse stage routes each query by its leading keyword
+	 * to the drivers that own it, on a thread of its own,
+	 * and hands it on to the plan stage, at most
+	 * {@value #PIPELINE_DEPTH} queries ahead. The plan
+	 * stage chooses the first of those drivers that
+	 * recognizes the query and the table it reads, and
+	 * dispatches it to the execute stage. A query whose
+	 * keyword no driver owns is unrecognized at once,
+	 * without trying any driver.
+	 * <p>
+	 * Queries of read-only drivers execute concurrently
+	 * on virtual threads, except that those which read
+	 * the same table execute in their order. Any other
+	 * query, or one that no driver recognizes in advance,
+	 * waits until every earlier query is done, and every
+	 * later query waits until it is done, while the parse
+	 * stage goes on.
+	 * <p>
+	 * The callback is never invoked concurrently, and
+	 * this method returns once it has received every
+	 * response. If a query fails, or the callback does,
+	 * the first such failure in the order of the queries
+	 * is thrown once every other query is done.
+	 *
+	 * @param queries the list of queries.
+	 * @param callback the callback.
+	 */
+	public void interpret(List<String> queries, Callback callback) {
+		List<CompletableFuture<Void>> deliveries = new ArrayList<>(queries.size());
+		Object delivering = new Object();
+
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			BlockingQueue<Ticket> parsed = new ArrayBlockingQueue<>(PIPELINE_DEPTH);
+			executor.submit(() -> parse(queries, parsed));
+
+			Map<String, CompletableFuture<Response>> lastByTable = new HashMap<>();
+			List<CompletableFuture<Response>> running = new ArrayList<>();
+
+			for (int i = 0; i < queries.size(); i++) {
+				Ticket ticket = take(parsed);
+				ticket.planning = System.nanoTime();
+
+				CompletableFuture<Response> future = dispatch(ticket, executor, lastByTable, running);
+
+				deliveries.add(future.thenAccept(res -> {
+					synchronized (delivering) {
+						callback.completed(ticket.index, res, ticket.timings());
+					}
+				}));
+			}
+
+			// A chained query is only submitted once the query
+			// before it is done, so wait for every query before
+			// the executor is closed.
+			CompletableFuture.allOf(deliveries.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+		}
+
+		for (CompletableFuture<Void> delivery: deliveries) {
+			try {
+				delivery.join();
+			}
+			catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException cause)
+					throw cause;
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Runs the parse stage, which routes each of the
+	 * given queries and hands them on in order.
+	 *
+	 * @param queries the list of queries.
+	 * @param parsed the queue of the plan stage.
+	 */
+	private void parse(List<String> queries, BlockingQueue<Ticket> parsed) {
+		int index = 0;
+		for (String query: queries) {
+			Ticket ticket = new Ticket(index++, query);
+			ticket.created = System.nanoTime();
+			try {
+				ticket.candidates = router.route(query);
+			}
+			catch (RuntimeException e) {
+				ticket.failure = e;
+			}
+			ticket.parsed = System.nanoTime();
+
+			try {
+				parsed.put(ticket);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Runs the plan stage for the given query,
+	 * and dispatches it to the execute stage.
+	 *
+	 * @param ticket a parsed query.
+	 * @param executor the executor of read-only queries.
+	 * @param lastByTable the last query that reads each table.
+	 * @param running the queries since the last barrier.
+	 * @return the future response.
+	 */
+	private CompletableFuture<Response> dispatch(
+		Ticket ticket,
+		ExecutorService executor,
+		Map<String, CompletableFuture<Response>> lastByTable,
+		List<CompletableFuture<Response>> running
+	) {
+		String query = ticket.query;
+		List<Driver> candidates = ticket.candidates;
+
+		Driver driver = null;
+		String tableName = null;
+		if (ticket.failure == null && !candidates.isEmpty()) {
+			try {
+				driver = recognizer(candidates, query);
+				if (driver != null && driver.isReadOnly())
+					tableName = driver.tableName(query);
+			}
+			catch (RuntimeException e) {
+				ticket.failure = e;
+			}
+		}
+		ticket.planned = System.nanoTime();
+
+		if (ticket.failure != null || candidates.isEmpty()) {
+			ticket.started = ticket.finished = ticket.planned;
+			return ticket.failure != null
+				? CompletableFuture.failedFuture(ticket.failure)
+				: CompletableFuture.completedFuture(new Response(query, Status.UNRECOGNIZED, null, null));
+		}
+
+		if (driver == null || !driver.isReadOnly()) {
+			CompletableFuture.allOf(running.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+			running.clear();
+			lastByTable.clear();
+
+			Driver recognizer = driver;
+			CompletableFuture<Response> future = new CompletableFuture<>();
+			try {
+				future.complete(timed(ticket, () -> recognizer != null ? execute(recognizer, query) : execute(candidates, query)));
+			}
+			catch (RuntimeException e) {
+				future.completeExceptionally(e);
+			}
+			return future;
+		}
+
+		Driver reader = driver;
+		CompletableFuture<Response> previous = tableName != null ? lastByTable.get(tableName) : null;
+
+		CompletableFuture<Response> future = previous == null
+			? CompletableFuture.supplyAsync(() -> timed(ticket, () -> execute(reader, query)), executor)
+			: previous.handleAsync((res, e) -> timed(ticket, () -> execute(reader, query)), executor);
 
-		Response res = drivers.get(0).execute(queries.get(0), this);
-		responses.add(res);
+		if (tableName != null)
+			lastByTable.put(tableName, future);
+		running.add(future);
+		return future;
+	}
+
+	/**
+	 * Runs the execute stage of the given query,
+	 * and records when it starts and finishes.
+	 *
+	 * @param ticket a planned query.
+	 * @param execution the execution.
+	 * @return the response.
+	 */
+	private static Response timed(Ticket ticket, Supplier<Response> execution) {
+		ticket.started = System.nanoTime();
+		try {
+			return execution.get();
+		}
+		finally {
+			ticket.finished = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Takes the next query handed on by the parse stage.
+	 *
+	 * @param parsed the queue of the plan stage.
+	 * @return the parsed query.
+	 */
+	private static Ticket take(BlockingQueue<Ticket> parsed) {
+		try {
+			return parsed.take();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while interpreting", e);
+		}
+	}
+
+	/**
+	 * Prepares the given query, where any <code>?</code>
+	 * outside a quoted string is a placeholder for an
+	 * argument bound at each execution.
+	 * <p>
+	 * The query is parsed and validated once, by the
+	 * first driver that can prepare it, and the prepared
+	 * query is cached by its normalized text, which has
+	 * each run of whitespace outside a quoted string
+	 * replaced by a single space. The cache keeps the
+	 * most recently used prepared queries.
+	 *
+	 * @param query a query with placeholders.
+	 * @return the prepared query.
+	 */
+	public PreparedQuery prepare(String query) {
+		String text = normalize(query);
+
+		synchronized (plans) {
+			PreparedQuery prepared = plans.get(text);
+			if (prepared != null)
+				return prepared;
+		}
+
+		Plan plan = null;
+		for (Driver driver: router.route(text)) {
+			plan = driver.prepare(text);
+			if (plan != null)
+				break;
+		}
+		PreparedQuery prepared = new PreparedQuery(this, text, plan);
+
+		synchronized (plans) {
+			PreparedQuery cached = plans.putIfAbsent(text, prepared);
+			return cached != null ? cached : prepared;
+		}
+	}
 
-		return responses;
+	/**
+	 * Executes the given plan with the given arguments,
+	 * holding off any checkpoint until it is done.
+	 *
+	 * @param plan a plan.
+	 * @param arguments one argument per placeholder.
+	 * @return the response.
+	 */
+	Response execute(Plan plan, List<Object> arguments) {
+		checkpointLock.readLock().lock();
+		try {
+			return plan.execute(arguments, this);
+		}
+		finally {
+			checkpointLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the given query stripped, with each run
+	 * of whitespace outside a quoted string replaced
+	 * by a single space.
+	 *
+	 * @param query a query.
+	 * @return the normalized query.
+	 */
+	private static String normalize(String query) {
+		String stripped = query.strip();
+		StringBuilder text = new StringBuilder(stripped.length());
+		boolean quoted = false;
+		boolean space = false;
+		for (int i = 0; i < stripped.length(); i++) {
+			char c = stripped.charAt(i);
+			if (!quoted && Character.isWhitespace(c)) {
+				space = true;
+				continue;
+			}
+			if (space) {
+				text.append(' ');
+				space = false;
+			}
+			if (c == '"')
+				quoted = !quoted;
+			text.append(c);
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Returns the only candidate driver for the given
+	 * query, or otherwise the first candidate if it
+	 * recognizes the query in advance, or <code>null</code>
+	 * if it does not.
+	 * <p>
+	 * A later candidate is never chosen in advance, since
+	 * an earlier one may recognize the query only when
+	 * it executes, and the candidates keep their order.
+	 *
+	 * @param candidates the candidate drivers.
+	 * @param query a query.
+	 * @return the driver, if any.
+	 */
+	private static Driver recognizer(List<Driver> candidates, String query) {
+		if (candidates.size() == 1 && candidates.get(0).keyword() != null)
+			return candidates.get(0);
+
+		Driver first = candidates.get(0);
+		return first.recognizes(query) ? first : null;
+	}
+
+	/**
+	 * Executes the given query against each candidate
+	 * driver in turn, until one does not leave it
+	 * unrecognized.
+	 *
+	 * @param candidates the candidate drivers.
+	 * @param query a query.
+	 * @return the response.
+	 */
+	private Response execute(List<Driver> candidates, String query) {
+		for (Driver driver: candidates) {
+			Response res = execute(driver, query);
+			if (res.status() != Status.UNRECOGNIZED)
+				return res;
+		}
+
+		return new Response(query, Status.UNRECOGNIZED, null, null);
+	}
+
+	/**
+	 * Executes the given query against the given driver,
+	 * holding off any checkpoint until it is done.
+	 * <p>
+	 * Each query takes the lock on its own, since a
+	 * query that runs on another thread could not take
+	 * it again while a checkpoint is waiting.
+	 *
+	 * @param driver a driver.
+	 * @param query a query.
+	 * @return the response.
+	 */
+	private Response execute(Driver driver, String query) {
+		checkpointLock.readLock().lock();
+		try {
+			return driver.execute(query, this);
+		}
+		finally {
+			checkpointLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Takes a checkpoint of a persistent database.
+	 * <p>
+	 * Each table changed since the last checkpoint is
+	 * rebuilt into a compact sorted run and forced, then
+	 * the log is truncated up to where it was when the
+	 * checkpoint began, since every mutation recorded
+	 * before then is now durable in a table file. A
+	 * database without any mutation since the last
+	 * checkpoint is left as is.
+	 * <p>
+	 * Queries go on while the tables are compacted, since
+	 * each table is locked while it is compacted, and a
+	 * mutation is logged and applied under the same lock of
+	 * its table, so every mutation logged before the noted
+	 * position is in the table by the time it is compacted.
+	 * Queries only wait while the log is truncated. A table
+	 * dropped meanwhile is skipped, and its file deleted.
+	 * Checkpoints are taken one at a time.
+	 * <p>
+	 * The outcome is kept for {@link #lastCheckpointFailure()}.
+	 */
+	public synchronized void checkpoint() {
+		if (!persistent)
+			return;
+
+		try {
+			compactAndTruncate();
+			checkpointFailure = null;
+		}
+		catch (RuntimeException e) {
+			checkpointFailure = e;
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the failure of the last checkpoint, whether
+	 * taken in the background or by {@link #checkpoint()},
+	 * or <code>null</code> if it succeeded or none was taken.
+	 * <p>
+	 * While checkpoints fail, the log keeps every mutation
+	 * since the last one that succeeded, so it grows and
+	 * takes longer to replay on startup.
+	 *
+	 * @return the failure, if any.
+	 */
+	public RuntimeException lastCheckpointFailure() {
+		return checkpointFailure;
+	}
+
+	/**
+	 * Compacts each table and truncates the log,
+	 * as described by {@link #checkpoint()}.
+	 */
+	private void compactAndTruncate() {
+		long position;
+		checkpointLock.readLock().lock();
+		try {
+			if (log.length() == 0)
+				return;
+
+			position = log.position();
+			for (Table table: tables) {
+				if (table instanceof MappedTable m) {
+					synchronized (m) {
+						if (m.isOpen())
+							m.compact();
+					}
+				}
+			}
+		}
+		finally {
+			checkpointLock.readLock().unlock();
+		}
+
+		checkpointLock.writeLock().lock();
+		try {
+			log.truncate(position);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		finally {
+			checkpointLock.writeLock().unlock();
+		}
 	}
 
 	/**
 	 * Executes any required tasks when
 	 * the database is closed.
+	 * <p>
+	 * A persistent database takes a final checkpoint,
+	 * so that the next startup replays nothing.
+	 * Then tables that hold resources are closed,
+	 * and the write-ahead log is closed.
+	 * <p>
+	 * If the final checkpoint fails, its failure is thrown
+	 * once the tables and the log are closed anyway, and
+	 * the next startup replays the log as usual.
 	 */
 	@Override
 	public void close() throws IOException {
+		try {
+			if (persistent) {
+				checkpointing.set(true);
+				checkpointer.shutdown();
+				checkpoint();
+			}
+		}
+		finally {
+			for (Table table: tables)
+				if (table instanceof Closeable c)
+					c.close();
+
+			if (log != null)
+				log.close();
+		}
+	}
+
+	/**
+	 * Adds the given table to the catalog, and
+	 * rebuilds the snapshot of the tables.
+	 * The caller holds the lock on the catalog.
+	 *
+	 * @param table a table.
+	 */
+	private void register(Table table) {
+		catalog.put(table.getTableName(), table);
+
+		List<Table> grown = new ArrayList<>(tables);
+		grown.add(table);
+		tables = List.copyOf(grown);
+	}
+
+	/**
+	 * Schedules the background checkpoints of a persistent
+	 * database on its first use, once. They are not scheduled
+	 * by the constructor, since the checkpoint thread would
+	 * then see this database before it is fully constructed.
+	 * A database closed meanwhile is left as is.
+	 */
+	private void startCheckpoints() {
+		if (!persistent || checkpointing.get() || !checkpointing.compareAndSet(false, true))
+			return;
+
+		try {
+			checkpointer.scheduleWithFixedDelay(
+				this::checkpointQuietly,
+				checkpointInterval.toNanos(),
+				checkpointInterval.toNanos(),
+				TimeUnit.NANOSECONDS
+			);
+		}
+		catch (RejectedExecutionException e) {
+			// Closed meanwhile, with a final checkpoint.
+		}
+	}
+
+	/**
+	 * Takes a checkpoint in the background, where a failure
+	 * is kept for {@link #lastCheckpointFailure()} but does
+	 * not cancel later checkpoints.
+	 */
+	private void checkpointQuietly() {
+		try {
+			checkpoint();
+		}
+		catch (RuntimeException e) {
+			// Kept by checkpoint() until one succeeds.
+		}
+	}
+
+	/**
+	 * Reopens each table file in the directory,
+	 * and deletes any temporary file left behind
+	 * by an interrupted rebuild.
+	 * <p>
+	 * Then replays the write-ahead log into the
+	 * reopened tables, which recovers any mutation
+	 * not yet flushed to a table file, and sets the
+	 * log as the journal of each table.
+	 */
+	private void load() {
+		try {
+			Files.createDirectories(directory);
+
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.table.tmp")) {
+				for (Path file: files)
+					Files.delete(file);
+			}
+
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.table")) {
+				synchronized (catalog) {
+					for (Path file: files)
+						register(MappedTable.open(file));
+				}
+			}
 
+			log = new WriteAheadLog(directory.resolve("wal.log"), commitWindow);
+			log.replay(new WriteAheadLog.Handler() {
+				@Override
+				public void put(String tableName, List<Object> row) {
+					Table table = catalog.get(tableName);
+					if (table != null)
+						table.put(row);
+				}
+
+				@Override
+				public void remove(String tableName, Object key) {
+					Table table = catalog.get(tableName);
+					if (table != null)
+						table.remove(key);
+				}
+
+				@Override
+				public void clear(String tableName) {
+					Table table = catalog.get(tableName);
+					if (table != null)
+						table.clear();
+				}
+			});
+
+			for (Table table: tables)
+				((MappedTable) table).setJournal(log);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Records the state of the given stored table
+	 * in the log, then sets the log as its journal.
+	 * The caller holds the lock on the catalog.
+	 *
+	 * @param table a stored table.
+	 */
+	private void attach(MappedTable table) {
+		record(table);
+		table.setJournal(log);
+	}
+
+	/**
+	 * Records the state of the given table in the log
+	 * as a clear followed by a put of each row.
+	 *
+	 * @param table a table.
+	 */
+	private void record(Table table) {
+		try {
+			log.logState(table.getTableName(), table);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Returns the path of the table file
+	 * for the given table name.
+	 *
+	 * @param tableName a table name.
+	 * @return the path of the table file.
+	 */
+	private Path file(String tableName) {
+		if (!tableName.matches("\\w+"))
+			throw new IllegalArgumentException("Table name <%s> cannot be stored".formatted(tableName));
+
+		return directory.resolve(tableName + ".table");
+	}
+
+	/**
+	 * Closes the given table if it holds resources.
+	 *
+	 * @param table a table.
+	 */
+	private static void release(Table table) {
+		if (table instanceof Closeable c) {
+			try {
+				c.close();
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
 	}
 }
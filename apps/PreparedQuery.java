@@ -0,0 +1,154 @@
+package apps;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import drivers.Plan;
+import drivers.Response;
+import drivers.Status;
+
+/**
+ * Implements a prepared query, which is a
+ * reusable handle to a query with <code>?</code>
+ * placeholders that can be executed many times,
+ * with different arguments bound to them.
+ * <p>
+ * A prepared query is immutable, so it can be shared
+ * by threads, and is cached by the database that
+ * prepared it; see {@link Database#prepare(String)}.
+ */
+public final class PreparedQuery {
+	private static final Pattern identifier = Pattern.compile("\\w+");
+
+	private final Database db;
+	private final String query;
+	private final Plan plan;
+	private final int parameters;
+
+	/**
+	 * Creates a prepared query for the given
+	 * normalized query, with the given plan,
+	 * or with none if no driver can prepare it.
+	 *
+	 * @param db the database.
+	 * @param query the normalized query.
+	 * @param plan the plan, if any.
+	 */
+	PreparedQuery(Database db, String query, Plan plan) {
+		this.db = db;
+		this.query = query;
+		this.plan = plan;
+		this.parameters = plan != null ? plan.parameters() : placeholders(query);
+	}
+
+	/**
+	 * Returns the normalized query text,
+	 * which is the query of each response.
+	 *
+	 * @return the query.
+	 */
+	public String query() {
+		return query;
+	}
+
+	/**
+	 * Returns the number of placeholders.
+	 *
+	 * @return the number of parameters.
+	 */
+	public int parameters() {
+		return parameters;
+	}
+
+	/**
+	 * Executes the query with the given arguments
+	 * bound to its placeholders in order, and returns
+	 * the response.
+	 * <p>
+	 * A query that no driver could prepare has each
+	 * argument bound into its text as a literal of its
+	 * type instead, then is interpreted as usual: an
+	 * integer or a boolean as its value, and a string as
+	 * a name, which must be a word. Any other argument
+	 * fails the query, so no argument can change the
+	 * structure of the query it is bound into.
+	 *
+	 * @param arguments one argument per placeholder.
+	 * @return the response.
+	 */
+	public Response execute(Object... arguments) {
+		if (arguments.length != parameters)
+			throw new IllegalArgumentException(
+				"Query <%s> has %d parameters but %d arguments were given".formatted(query, parameters, arguments.length)
+			);
+
+		if (plan != null)
+			return db.execute(plan, Arrays.asList(arguments));
+
+		String[] literals = new String[arguments.length];
+		for (int i = 0; i < arguments.length; i++) {
+			literals[i] = literal(arguments[i]);
+			if (literals[i] == null)
+				return new Response(query, Status.FAILED, "Argument <%s> cannot be bound".formatted(arguments[i]), null);
+		}
+
+		Response res = db.interpret(List.of(bind(literals))).get(0);
+		return new Response(query, res.status(), res.message(), res.table());
+	}
+
+	/**
+	 * Returns the query text with each placeholder
+	 * outside a quoted string replaced by the
+	 * corresponding literal.
+	 *
+	 * @param literals one literal per placeholder.
+	 * @return the bound query.
+	 */
+	private String bind(String[] literals) {
+		StringBuilder bound = new StringBuilder(query.length());
+		boolean quoted = false;
+		int next = 0;
+		for (int i = 0; i < query.length(); i++) {
+			char c = query.charAt(i);
+			if (c == '"')
+				quoted = !quoted;
+
+			if (c == '?' && !quoted)
+				bound.append(literals[next++]);
+			else
+				bound.append(c);
+		}
+		return bound.toString();
+	}
+
+	/**
+	 * Returns the literal text of the given argument,
+	 * or <code>null</code> if it cannot be bound.
+	 *
+	 * @param argument an argument.
+	 * @return the literal, if any.
+	 */
+	private static String literal(Object argument) {
+		return switch (argument) {
+			case Integer i -> i.toString();
+			case Long l -> l.toString();
+			case Boolean b -> b.toString();
+			case String s when identifier.matcher(s).matches() -> s;
+			case null, default -> null;
+		};
+	}
+
+	private static int placeholders(String query) {
+		boolean quoted = false;
+		int count = 0;
+		for (int i = 0; i < query.length(); i++) {
+			char c = query.charAt(i);
+			if (c == '"')
+				quoted = !quoted;
+			else if (c == '?' && !quoted)
+				count++;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,79 @@
+package apps;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import drivers.Driver;
+
+/**
+ * Implements a router that dispatches
+ * each query to the drivers that own
+ * its leading keyword.
+ * <p>
+ * The keyword is read once, in a single pass over
+ * the query, and looked up in a hash map, so the
+ * cost of routing does not grow with the number of
+ * drivers. A driver without a keyword is a candidate
+ * for any query whose keyword no driver owns.
+ */
+final class Router {
+	private final Map<String, List<Driver>> owners = new HashMap<>();
+	private final List<Driver> fallback = new LinkedList<>();
+
+	/**
+	 * Creates a router for the given drivers,
+	 * which keep their order among the candidates
+	 * for each keyword.
+	 *
+	 * @param drivers the drivers.
+	 */
+	Router(List<Driver> drivers) {
+		for (Driver driver: drivers) {
+			String keyword = driver.keyword();
+			if (keyword == null)
+				fallback.add(driver);
+			else
+				owners.computeIfAbsent(keyword.toUpperCase(Locale.ROOT), k -> new LinkedList<>()).add(driver);
+		}
+
+		owners.replaceAll((k, list) -> List.copyOf(list));
+	}
+
+	/**
+	 * Returns the drivers that could recognize
+	 * the given query, in order, which are empty
+	 * if none could.
+	 *
+	 * @param query a query.
+	 * @return the candidate drivers.
+	 */
+	List<Driver> route(String query) {
+		String keyword = keyword(query);
+		List<Driver> candidates = keyword != null ? owners.get(keyword) : null;
+		return candidates != null ? candidates : fallback;
+	}
+
+	/**
+	 * Returns the leading keyword of the given query,
+	 * which is the run of letters after any leading
+	 * whitespace, in upper case, or <code>null</code>
+	 * if there is none.
+	 *
+	 * @param query a query.
+	 * @return the keyword, if any.
+	 */
+	static String keyword(String query) {
+		int start = 0;
+		while (start < query.length() && Character.isWhitespace(query.charAt(start)))
+			start++;
+
+		int end = start;
+		while (end < query.length() && Character.isLetter(query.charAt(end)))
+			end++;
+
+		return end > start ? query.substring(start, end).toUpperCase(Locale.ROOT) : null;
+	}
+}
@@ -0,0 +1,35 @@
+package apps;
+
+import java.time.Duration;
+
+/**
+ * Implements the timings of a query
+ * interpreted in a pipeline, by stage.
+ * <p>
+ * The stages of a query run one after another,
+ * but overlap with the stages of other queries.
+ * Any time the query spends between stages,
+ * such as waiting for an earlier query that it
+ * must follow, is counted as queued.
+ *
+ * @param parse the time spent routing the query by its keyword.
+ * @param plan the time spent choosing its driver and its table.
+ * @param queue the time spent waiting between stages.
+ * @param execute the time spent executing it in its driver.
+ */
+public record Timings(
+	Duration parse,
+	Duration plan,
+	Duration queue,
+	Duration execute
+) {
+	/**
+	 * Returns the time from the start of parsing
+	 * until the end of execution.
+	 *
+	 * @return the total time.
+	 */
+	public Duration total() {
+		return parse.plus(plan).plus(queue).plus(execute);
+	}
+}
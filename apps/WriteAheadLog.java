@@ -0,0 +1,583 @@
+package apps;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import tables.Journal;
+import tables.Table;
+
+/**
+ * Implements a write-ahead log of the mutations
+ * to the tables of a persistent database.
+ * <p>
+ * Each mutation is appended as a binary record: the length
+ * of its payload, a CRC-32 of the payload, then the payload
+ * itself, which is the type of the mutation, the table name,
+ * and the fields of the row put or the key removed.
+ * <p>
+ * Appends use group commit. Each writer waits until its record
+ * is durable. The first writer to wait leads the next batch: it
+ * waits out the commit window so that other writers can join,
+ * then writes every pending record with one write, forces them
+ * with one force, and wakes every writer in the batch. Even with
+ * no window, writers that arrive during a force share the next one.
+ * <p>
+ * As the {@link Journal} of a table, the log is appended to
+ * before each mutation is applied, while the table is locked,
+ * and waited on once the table is unlocked, so writers of the
+ * same table share a force as writers of different tables do.
+ */
+public class WriteAheadLog implements Journal, Closeable {
+	private static final byte PUT = 1;
+	private static final byte REMOVE = 2;
+	private static final byte CLEAR = 3;
+
+	private static final byte NULL = 0;
+	private static final byte INTEGER = 1;
+	private static final byte FALSE = 2;
+	private static final byte TRUE = 3;
+	private static final byte STRING = 4;
+
+	/**
+	 * Defines the protocols for applying
+	 * the records of a log during replay.
+	 */
+	public interface Handler {
+		/**
+		 * Applies a put of the given row.
+		 *
+		 * @param tableName the table name.
+		 * @param row the row.
+		 */
+		void put(String tableName, List<Object> row);
+
+		/**
+		 * Applies a remove of the given key.
+		 *
+		 * @param tableName the table name.
+		 * @param key the key.
+		 */
+		void remove(String tableName, Object key);
+
+		/**
+		 * Applies a clear.
+		 *
+		 * @param tableName the table name.
+		 */
+		void clear(String tableName);
+	}
+
+	private final Path path;
+	private final long window;
+	private FileChannel channel;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition committed = lock.newCondition();
+
+	private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+	private long start;
+	private long appended;
+	private long durable;
+	private boolean leading;
+	private IOException failure;
+	private volatile long forces;
+
+	/**
+	 * Opens the log at the given path,
+	 * creating it if it does not exist.
+	 *
+	 * @param path the path of the log.
+	 * @param window the commit window.
+	 * @throws IOException if the log cannot be opened.
+	 */
+	public WriteAheadLog(Path path, Duration window) throws IOException {
+		this.path = path;
+		this.window = window.toNanos();
+		this.channel = FileChannel.open(path, CREATE, READ, WRITE);
+
+		channel.position(channel.size());
+		appended = durable = channel.size();
+	}
+
+	/**
+	 * Applies each record of the log in order, then
+	 * truncates any torn or corrupt record at the end,
+	 * which was never acknowledged to its writer.
+	 *
+	 * @param handler the handler of the records.
+	 * @throws IOException if the log cannot be read.
+	 */
+	public void replay(Handler handler) throws IOException {
+		long size = channel.size();
+		long valid = 0;
+
+		channel.position(0);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+		while (valid + 8 <= size) {
+			int length = in.readInt();
+			int checksum = in.readInt();
+			if (length < 0 || valid + 8 + length > size)
+				break;
+
+			byte[] payload = new byte[length];
+			in.readFully(payload);
+
+			CRC32 crc = new CRC32();
+			crc.update(payload);
+			if ((int) crc.getValue() != checksum)
+				break;
+
+			apply(payload, handler);
+			valid += 8 + length;
+		}
+
+		channel.truncate(valid);
+		channel.position(valid);
+		appended = durable = valid;
+	}
+
+	/**
+	 * Appends a put of the given row,
+	 * returning once it is durable.
+	 *
+	 * @param tableName the table name.
+	 * @param row the row.
+	 * @throws IOException if the log cannot be written.
+	 */
+	public void logPut(String tableName, List<Object> row) throws IOException {
+		append(put(tableName, row));
+	}
+
+	/**
+	 * Appends a remove of the given key,
+	 * returning once it is durable.
+	 *
+	 * @param tableName the table name.
+	 * @param key the key.
+	 * @throws IOException if the log cannot be written.
+	 */
+	public void logRemove(String tableName, Object key) throws IOException {
+		append(remove(tableName, key));
+	}
+
+	/**
+	 * Appends a clear, returning once it is durable.
+	 *
+	 * @param tableName the table name.
+	 * @throws IOException if the log cannot be written.
+	 */
+	public void logClear(String tableName) throws IOException {
+		append(clear(tableName));
+	}
+
+	/**
+	 * Appends a clear followed by a put of each given row,
+	 * returning once all of them are durable, which takes
+	 * a single force instead of one per row.
+	 *
+	 * @param tableName the table name.
+	 * @param rows the rows.
+	 * @throws IOException if the log cannot be written.
+	 */
+	public void logState(String tableName, Iterable<List<Object>> rows) throws IOException {
+		List<byte[]> payloads = new ArrayList<>();
+		payloads.add(clear(tableName));
+		for (List<Object> row: rows)
+			payloads.add(put(tableName, row));
+		append(payloads.toArray(byte[][]::new));
+	}
+
+	@Override
+	public long recordPut(Table table, List<Object> row) {
+		try {
+			return enqueue(put(table.getTableName(), row));
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public long recordRemove(Table table, Object key) {
+		try {
+			return enqueue(remove(table.getTableName(), key));
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public long recordClear(Table table) {
+		try {
+			return enqueue(clear(table.getTableName()));
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void await(long position) {
+		try {
+			awaitDurable(position);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Returns the number of forces of the log so far,
+	 * which is at most one per batch of records.
+	 *
+	 * @return the number of forces.
+	 */
+	public long forces() {
+		return forces;
+	}
+
+	/**
+	 * Returns the position after the last record appended.
+	 * Positions only increase, even across truncations.
+	 *
+	 * @return the position.
+	 */
+	public long position() {
+		lock.lock();
+		try {
+			return appended;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the length of the log in bytes,
+	 * including any records not yet written.
+	 *
+	 * @return the length of the log.
+	 */
+	public long length() {
+		lock.lock();
+		try {
+			return appended - start;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Discards every record before the given position,
+	 * once the mutations they record are durable elsewhere.
+	 * <p>
+	 * The records that are kept are written to a new file,
+	 * which is forced and then atomically moved over the log,
+	 * so a crash leaves either the old log or the new one.
+	 *
+	 * @param position a position returned by {@link #position()}.
+	 * @throws IOException if the log cannot be truncated.
+	 */
+	public void truncate(long position) throws IOException {
+		lock.lock();
+		try {
+			while (leading)
+				committed.awaitUninterruptibly();
+
+			if (failure != null)
+				throw new IOException("Log failed earlier", failure);
+
+			if (pending.size() > 0) {
+				write(pending.toByteArray());
+				pending.reset();
+				durable = appended;
+				committed.signalAll();
+			}
+
+			long offset = position - start;
+			long length = channel.size() - offset;
+
+			Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+			try (FileChannel out = FileChannel.open(temporary, CREATE, TRUNCATE_EXISTING, WRITE)) {
+				for (long copied = 0; copied < length; )
+					copied += channel.transferTo(offset + copied, length - copied, out);
+				out.force(true);
+			}
+
+			channel.close();
+			Files.move(temporary, path, REPLACE_EXISTING, ATOMIC_MOVE);
+			channel = FileChannel.open(path, READ, WRITE);
+			channel.position(channel.size());
+
+			start = position;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Closes the log once every
+	 * pending record is durable.
+	 *
+	 * @throws IOException if the log cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			while (leading)
+				committed.awaitUninterruptibly();
+
+			if (failure == null && pending.size() > 0) {
+				write(pending.toByteArray());
+				pending.reset();
+				durable = appended;
+			}
+			channel.close();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adds the given payloads as records to the pending
+	 * batch, then waits until the records are durable.
+	 *
+	 * @param payloads the payloads.
+	 * @throws IOException if the log cannot be written.
+	 */
+	private void append(byte[]... payloads) throws IOException {
+		awaitDurable(enqueue(payloads));
+	}
+
+	/**
+	 * Adds the given payloads as records to the pending
+	 * batch, without waiting for them to be written.
+	 *
+	 * @param payloads the payloads.
+	 * @return the position after the last record.
+	 * @throws IOException if the log failed earlier.
+	 */
+	private long enqueue(byte[]... payloads) throws IOException {
+		lock.lock();
+		try {
+			if (failure != null)
+				throw new IOException("Log failed earlier", failure);
+
+			for (byte[] payload: payloads) {
+				CRC32 crc = new CRC32();
+				crc.update(payload);
+
+				byte[] header = ByteBuffer.allocate(8)
+					.putInt(payload.length)
+					.putInt((int) crc.getValue())
+					.array();
+				pending.write(header, 0, header.length);
+				pending.write(payload, 0, payload.length);
+				appended += header.length + payload.length;
+			}
+			return appended;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits until every record before the given position
+	 * is durable, leading the next batch if no writer is.
+	 *
+	 * @param position a position returned by {@link #enqueue}.
+	 * @throws IOException if the log cannot be written.
+	 */
+	private void awaitDurable(long position) throws IOException {
+		lock.lock();
+		try {
+			while (durable < position) {
+				if (failure != null)
+					throw new IOException("Log failed earlier", failure);
+
+				if (leading) {
+					committed.await();
+					continue;
+				}
+
+				leading = true;
+				try {
+					if (window > 0) {
+						lock.unlock();
+						try {
+							LockSupport.parkNanos(window);
+						}
+						finally {
+							lock.lock();
+						}
+					}
+
+					byte[] batch = pending.toByteArray();
+					pending.reset();
+					long target = appended;
+
+					lock.unlock();
+					try {
+						write(batch);
+					}
+					catch (IOException e) {
+						failure = e;
+						throw e;
+					}
+					finally {
+						lock.lock();
+					}
+
+					durable = target;
+				}
+				finally {
+					leading = false;
+					committed.signalAll();
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the log");
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private static byte[] put(String tableName, List<Object> row) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(PUT);
+		writeString(out, tableName);
+		out.writeInt(row.size());
+		for (Object field: row)
+			writeField(out, field);
+		return bytes.toByteArray();
+	}
+
+	private static byte[] remove(String tableName, Object key) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(REMOVE);
+		writeString(out, tableName);
+		writeField(out, key);
+		return bytes.toByteArray();
+	}
+
+	private static byte[] clear(String tableName) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(CLEAR);
+		writeString(out, tableName);
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Writes and forces the given batch. Only one
+	 * thread writes at a time: the leader of a batch,
+	 * or one that holds the lock while none leads.
+	 *
+	 * @param batch the records.
+	 * @throws IOException if the log cannot be written.
+	 */
+	private void write(byte[] batch) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(batch);
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		channel.force(false);
+		forces++;
+	}
+
+	private static void apply(byte[] payload, Handler handler) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+
+		byte type = in.readByte();
+		String tableName = readString(in);
+		switch (type) {
+			case PUT -> {
+				int fields = in.readInt();
+				List<Object> row = new ArrayList<>(fields);
+				for (int i = 0; i < fields; i++)
+					row.add(readField(in));
+				handler.put(tableName, row);
+			}
+			case REMOVE -> handler.remove(tableName, readField(in));
+			case CLEAR -> handler.clear(tableName);
+			default -> throw new IOException("Unknown record type %d".formatted(type));
+		}
+	}
+
+	private static void writeField(DataOutputStream out, Object field) throws IOException {
+		if (field == null)
+			out.writeByte(NULL);
+		else if (field instanceof Integer i) {
+			out.writeByte(INTEGER);
+			out.writeInt(i);
+		}
+		else if (field instanceof Boolean b)
+			out.writeByte(b ? TRUE : FALSE);
+		else {
+			out.writeByte(STRING);
+			writeString(out, field.toString());
+		}
+	}
+
+	private static Object readField(DataInputStream in) throws IOException {
+		byte tag = in.readByte();
+		return switch (tag) {
+			case NULL -> null;
+			case INTEGER -> in.readInt();
+			case FALSE -> false;
+			case TRUE -> true;
+			case STRING -> readString(in);
+			default -> throw new EOFException("Unknown field tag %d".formatted(tag));
+		};
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, UTF_8);
+	}
+}
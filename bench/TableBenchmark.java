@@ -0,0 +1,223 @@
+package bench;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import grade.DFSModule;
+import tables.BulkLoad;
+import tables.ColumnarTable;
+import tables.ConcurrentTable;
+import tables.HashArrayTable;
+import tables.OffHeapTable;
+import tables.SearchTable;
+import tables.Table;
+import tables.VersionedTable;
+
+/**
+ * Implements a JMH benchmark of the put, get, and remove
+ * operations of each table engine, driven by the random
+ * rows of the {@link DFSModule} workload generator.
+ * <p>
+ * Each trial reseeds the generator with a fixed seed, so
+ * every engine is measured against the same rows. The
+ * schemas are those of the tables of <code>Module1</code>.
+ * <p>
+ * The table holds a fixed number of rows throughout each
+ * trial, which is the given load factor of a nominal
+ * capacity of {@value #CAPACITY} slots. Hash array tables
+ * are created with that maximum load factor and presized,
+ * so their arrays are exactly that full; other engines
+ * hold the same number of rows. The generated keys repeat
+ * far too often to fill a table, so each key is made
+ * unique with an ordinal, and keys past the rows loaded
+ * are looked up as misses.
+ * <p>
+ * Puts replace present rows, and each remove puts its
+ * row back, so the number of rows never changes; the
+ * remove time includes that put. Allocation rates are
+ * reported by the GC profiler, which {@link #main} adds.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableBenchmark extends DFSModule {
+	private static final int CAPACITY = 1 << 16;
+	private static final int OPERATIONS = 1 << 12;
+
+	@Param({ "HashArrayTable", "RobinHoodTable", "ColumnarTable", "ConcurrentTable", "OffHeapTable", "SearchTable", "VersionedTable" })
+	public String engine;
+
+	@Param({ "m1_table01", "m1_table02", "m1_table03" })
+	public String schema;
+
+	@Param({ "0.25", "0.5", "0.75", "0.95" })
+	public double loadFactor;
+
+	@Param({ "17" })
+	public long seed;
+
+	private Table table;
+	private List<List<Object>> puts;
+	private Object[] present;
+	private Object[] lookups;
+	private List<List<Object>> removes;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		RNG = new Random(seed);
+
+		List<String> columnTypes = switch (schema) {
+			case "m1_table01" -> List.of("string", "integer", "boolean");
+			case "m1_table02" -> List.of("integer", "boolean", "boolean", "integer", "integer", "boolean");
+			case "m1_table03" -> List.of("string", "string", "string", "integer", "integer", "integer", "boolean", "boolean", "boolean", "string", "string", "integer", "integer", "boolean", "boolean");
+			default -> throw new IllegalArgumentException("Schema <%s> is unknown".formatted(schema));
+		};
+		Integer primaryIndex = switch (schema) {
+			case "m1_table01" -> 0;
+			case "m1_table02" -> 3;
+			default -> 9;
+		};
+		List<String> columnNames = new ArrayList<>();
+		for (int c = 0; c < columnTypes.size(); c++)
+			columnNames.add(n() + "_" + c);
+
+		table = create(schema, columnNames, columnTypes, primaryIndex);
+
+		int rows = (int) (CAPACITY * loadFactor);
+		List<List<Object>> loaded = new ArrayList<>(rows);
+		for (int r = 0; r < rows; r++)
+			loaded.add(row(columnTypes, primaryIndex, r));
+		BulkLoad.into(table).expectedRows(rows).uniqueKeys(true).load(loaded);
+
+		List<List<Object>> shuffled = new ArrayList<>(loaded);
+		Collections.shuffle(shuffled, RNG);
+
+		puts = new ArrayList<>(OPERATIONS);
+		present = new Object[OPERATIONS];
+		lookups = new Object[OPERATIONS];
+		removes = new ArrayList<>(OPERATIONS);
+		for (int o = 0; o < OPERATIONS; o++) {
+			List<Object> old = shuffled.get(o % rows);
+			List<Object> replacement = row(columnTypes, primaryIndex, 0);
+			replacement.set(primaryIndex, old.get(primaryIndex));
+
+			puts.add(replacement);
+			present[o] = old.get(primaryIndex);
+			lookups[o] = RNG.nextBoolean()
+				? present[o]
+				: row(columnTypes, primaryIndex, rows + o).get(primaryIndex);
+			removes.add(shuffled.get((o + OPERATIONS / 2) % rows));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		if (table instanceof Closeable c)
+			c.close();
+	}
+
+	@Benchmark
+	public boolean put() {
+		return table.put(puts.get(advance()));
+	}
+
+	@Benchmark
+	public List<Object> getHit() {
+		return table.get(present[advance()]);
+	}
+
+	@Benchmark
+	public List<Object> getMixed() {
+		return table.get(lookups[advance()]);
+	}
+
+	@Benchmark
+	public boolean remove() {
+		List<Object> row = removes.get(advance());
+		boolean removed = table.remove(row.get(table.getPrimaryIndex()));
+		table.put(row);
+		return removed;
+	}
+
+	/**
+	 * Runs every benchmark with the GC profiler,
+	 * passing any arguments on to JMH as a filter
+	 * of the benchmarks to run.
+	 *
+	 * @param args a benchmark filter, if any.
+	 * @throws RunnerException if a benchmark fails.
+	 */
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(args.length > 0 ? args[0] : TableBenchmark.class.getSimpleName())
+			.addProfiler(GCProfiler.class)
+			.build()
+		).run();
+	}
+
+	private int advance() {
+		int o = next;
+		next = (o + 1) & (OPERATIONS - 1);
+		return o;
+	}
+
+	private Table create(String tableName, List<String> columnNames, List<String> columnTypes, Integer primaryIndex) {
+		return switch (engine) {
+			case "HashArrayTable" -> new HashArrayTable(tableName, columnNames, columnTypes, primaryIndex, HashArrayTable.Probing.LINEAR, loadFactor);
+			case "RobinHoodTable" -> new HashArrayTable(tableName, columnNames, columnTypes, primaryIndex, HashArrayTable.Probing.ROBIN_HOOD, loadFactor);
+			case "ColumnarTable" -> new ColumnarTable(tableName, columnNames, columnTypes, primaryIndex);
+			case "ConcurrentTable" -> new ConcurrentTable(tableName, columnNames, columnTypes, primaryIndex);
+			case "OffHeapTable" -> new OffHeapTable(tableName, columnNames, columnTypes, primaryIndex);
+			case "SearchTable" -> new SearchTable(tableName, columnNames, columnTypes, primaryIndex);
+			case "VersionedTable" -> new VersionedTable(tableName, columnNames, columnTypes, primaryIndex);
+			default -> throw new IllegalArgumentException("Engine <%s> is unknown".formatted(engine));
+		};
+	}
+
+	/**
+	 * Returns a row from the workload generator
+	 * with its key made unique by the given ordinal.
+	 *
+	 * @param columnTypes the column types.
+	 * @param primaryIndex the primary index.
+	 * @param ordinal the ordinal of the key.
+	 * @return the row.
+	 */
+	private static List<Object> row(List<String> columnTypes, Integer primaryIndex, int ordinal) {
+		List<Object> row = new ArrayList<>(row(columnTypes, primaryIndex));
+		Object key = row.get(primaryIndex);
+		row.set(primaryIndex, switch (key) {
+			case String s -> s + "_" + Integer.toString(ordinal, 36);
+			case Integer i -> ordinal * 0x9E3779B9;
+			default -> throw new IllegalArgumentException("Key <%s> cannot be made unique".formatted(key));
+		});
+		return row;
+	}
+}
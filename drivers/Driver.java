@@ -19,4 +19,81 @@ public interface Driver {
 	 * @return the response of the query.
 	 **/
 	Response execute(String query, Database db);
+
+	/**
+	 * Returns the leading keyword of the queries this
+	 * driver recognizes, such as <code>ECHO</code>, which
+	 * routes those queries to this driver directly, or
+	 * <code>null</code> if they have none.
+	 * <p>
+	 * By default, returns <code>null</code>, so the
+	 * driver is tried for each query whose keyword
+	 * no driver owns.
+	 *
+	 * @return the keyword, if any.
+	 */
+	default String keyword() {
+		return null;
+	}
+
+	/**
+	 * Returns whether this driver recognizes
+	 * the given query, without executing it.
+	 * <p>
+	 * By default, returns <code>false</code>, so the
+	 * database executes the query against each driver
+	 * in turn, one query at a time, until a driver
+	 * recognizes it.
+	 *
+	 * @param query a query.
+	 * @return whether the query is recognized.
+	 */
+	default boolean recognizes(String query) {
+		return false;
+	}
+
+	/**
+	 * Parses and validates the given query, where any
+	 * <code>?</code> stands for an argument bound at each
+	 * execution, and returns a plan to execute it, or
+	 * <code>null</code> if this driver cannot prepare it.
+	 * <p>
+	 * By default, returns <code>null</code>, so the
+	 * database binds the arguments into the query text
+	 * and executes it as usual.
+	 *
+	 * @param query a query with placeholders.
+	 * @return the plan, if any.
+	 */
+	default Plan prepare(String query) {
+		return null;
+	}
+
+	/**
+	 * Returns whether the queries this driver
+	 * recognizes only read the database, so that
+	 * they can run concurrently with each other.
+	 * <p>
+	 * By default, returns <code>false</code>.
+	 *
+	 * @return whether the queries are read-only.
+	 */
+	default boolean isReadOnly() {
+		return false;
+	}
+
+	/**
+	 * Returns the name of the table that the given
+	 * recognized query reads, or <code>null</code> if
+	 * it reads none. Read-only queries of the same table
+	 * are executed in their order.
+	 * <p>
+	 * By default, returns <code>null</code>.
+	 *
+	 * @param query a recognized query.
+	 * @return the table name, if any.
+	 */
+	default String tableName(String query) {
+		return null;
+	}
 }
\ No newline at end of file
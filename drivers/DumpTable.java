@@ -2,6 +2,7 @@ package drivers;
 
 import static drivers.Status.*;
 
+import java.util.List;
 import java.util.regex.Pattern;
 
 import apps.Database;
@@ -23,6 +24,16 @@ public class DumpTable implements Driver {
 		Pattern.CASE_INSENSITIVE
 	);
 
+	static final Pattern template = Pattern.compile(
+		"DUMP\\s+TABLE\\s+(?:([a-z][a-z0-9_]*)|\\?)",
+		Pattern.CASE_INSENSITIVE
+	);
+
+	static final Pattern identifier = Pattern.compile(
+		"[a-z][a-z0-9_]*",
+		Pattern.CASE_INSENSITIVE
+	);
+
 	@Override
 	public Response execute(String query, Database db) {
 		var matcher = pattern.matcher(query.strip());
@@ -31,15 +42,67 @@ public class DumpTable implements Driver {
 
 		String table_name = matcher.group(1);
 
-		if (!db.exists(table_name)) {
+		return dump(query, table_name, db);
+	}
+
+	@Override
+	public Plan prepare(String query) {
+		var matcher = template.matcher(query.strip());
+		if (!matcher.matches())
+			return null;
+
+		String table_name = matcher.group(1);
+
+		return new Plan() {
+			@Override
+			public int parameters() {
+				return table_name != null ? 0 : 1;
+			}
+
+			@Override
+			public Response execute(List<Object> arguments, Database db) {
+				if (table_name != null)
+					return dump(query, table_name, db);
+
+				if (!(arguments.get(0) instanceof String argument) || !identifier.matcher(argument).matches())
+					return new Response(query, FAILED, "Table name <%s> is invalid".formatted(arguments.get(0)), null);
+
+				return dump(query, argument, db);
+			}
+		};
+	}
+
+	private static Response dump(String query, String table_name, Database db) {
+		Table table = db.find(table_name);
+		if (table == null) {
 			return new Response(query, FAILED, "Table <%s> does not exist".formatted(table_name), null);
 		}
 		else {
-			Table table = db.find(table_name);
 			return new Response(query, SUCCESSFUL, "Table <%s> has %d rows".formatted(
 				table.getTableName(),
 				table.size()
 			), table);
 		}
 	}
+
+	@Override
+	public String keyword() {
+		return "DUMP";
+	}
+
+	@Override
+	public boolean recognizes(String query) {
+		return pattern.matcher(query.strip()).matches();
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return true;
+	}
+
+	@Override
+	public String tableName(String query) {
+		var matcher = pattern.matcher(query.strip());
+		return matcher.matches() ? matcher.group(1) : null;
+	}
 }
@@ -1,5 +1,6 @@
 package drivers;
 
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -21,6 +22,11 @@ public class Echo implements Driver {
 		Pattern.CASE_INSENSITIVE
 	);
 
+	static final Pattern template = Pattern.compile(
+		"ECHO\\s*(?:\"([^\"]*)\"|\\?)",
+		Pattern.CASE_INSENSITIVE
+	);
+
 	@Override
 	public Response execute(String query, Database db) {
 		Matcher matcher = pattern.matcher(query.strip());
@@ -31,4 +37,45 @@ public class Echo implements Driver {
 
 		return new Response(query, Status.SUCCESSFUL, text, null);
 	}
+
+	@Override
+	public Plan prepare(String query) {
+		Matcher matcher = template.matcher(query.strip());
+		if (!matcher.matches())
+			return null;
+
+		Response response = matcher.group(1) != null
+			? new Response(query, Status.SUCCESSFUL, matcher.group(1), null)
+			: null;
+
+		return new Plan() {
+			@Override
+			public int parameters() {
+				return response != null ? 0 : 1;
+			}
+
+			@Override
+			public Response execute(List<Object> arguments, Database db) {
+				if (response != null)
+					return response;
+
+				return new Response(query, Status.SUCCESSFUL, String.valueOf(arguments.get(0)), null);
+			}
+		};
+	}
+
+	@Override
+	public String keyword() {
+		return "ECHO";
+	}
+
+	@Override
+	public boolean recognizes(String query) {
+		return pattern.matcher(query.strip()).matches();
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return true;
+	}
 }
@@ -0,0 +1,32 @@
+package drivers;
+
+import java.util.List;
+
+import apps.Database;
+
+/**
+ * Defines the protocols for a plan, which is a
+ * query that a driver has parsed and validated once,
+ * so that it can be executed many times, with the
+ * arguments bound to its <code>?</code> placeholders.
+ */
+public interface Plan {
+	/**
+	 * Returns the number of placeholders
+	 * in the query of this plan.
+	 *
+	 * @return the number of parameters.
+	 */
+	int parameters();
+
+	/**
+	 * Executes this plan against the given database,
+	 * with the given arguments bound to its placeholders
+	 * in order, and returns the response.
+	 *
+	 * @param arguments one argument per placeholder.
+	 * @param db the database.
+	 * @return the response.
+	 */
+	Response execute(List<Object> arguments, Database db);
+}
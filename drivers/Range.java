@@ -1,12 +1,11 @@
 package drivers;
 
-import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import apps.Database;
-import tables.SearchTable;
+import tables.RangeTable;
 import tables.Table;
 
 /*
@@ -36,28 +35,95 @@ public class Range implements Driver {
 		Pattern.CASE_INSENSITIVE
 	);
 
+	static final Pattern template = Pattern.compile(
+		"RANGE\\s+(?:([0-9]+)|\\?)(?:\\s+AS\\s+(?:(\\w+)|(\\?)))?",
+		Pattern.CASE_INSENSITIVE
+	);
+
+	static final Pattern identifier = Pattern.compile("\\w+");
+
 	@Override
 	public Response execute(String query, Database db) {
 		Matcher matcher = pattern.matcher(query.strip());
 		if (!matcher.matches())
 			return new Response(query, Status.UNRECOGNIZED, null, null);
 
-		int upper = Integer.parseInt(matcher.group(1));
+		int upper;
+		try {
+			upper = Integer.parseInt(matcher.group(1));
+		}
+		catch (NumberFormatException e) {
+			return new Response(query, Status.FAILED, "Upper bound <%s> is too large".formatted(matcher.group(1)), null);
+		}
 		String name = matcher.group(2) != null ? matcher.group(2) : "number";
 
-		Table result_table = new SearchTable(
-			"_range",
-			List.of(name),
-			List.of("integer"),
-			0
-		);
-
-		for (int i = 0; i < upper; i++) {
-			List<Object> row = new LinkedList<>();
-			row.add(i);
-			result_table.put(row);
+		return range(query, upper, name);
+	}
+
+	@Override
+	public Plan prepare(String query) {
+		Matcher matcher = template.matcher(query.strip());
+		if (!matcher.matches())
+			return null;
+
+		Integer upper;
+		try {
+			upper = matcher.group(1) != null ? Integer.valueOf(matcher.group(1)) : null;
 		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+		String name = matcher.group(2) != null ? matcher.group(2) : matcher.group(3) == null ? "number" : null;
+
+		return new Plan() {
+			@Override
+			public int parameters() {
+				return (upper == null ? 1 : 0) + (name == null ? 1 : 0);
+			}
+
+			@Override
+			public Response execute(List<Object> arguments, Database db) {
+				int next = 0;
+
+				int bound_upper;
+				if (upper != null)
+					bound_upper = upper;
+				else if (arguments.get(next++) instanceof Integer argument && argument >= 0)
+					bound_upper = argument;
+				else
+					return new Response(query, Status.FAILED, "Upper bound <%s> is invalid".formatted(arguments.get(next - 1)), null);
+
+				String bound_name;
+				if (name != null)
+					bound_name = name;
+				else if (arguments.get(next) instanceof String argument && identifier.matcher(argument).matches())
+					bound_name = argument;
+				else
+					return new Response(query, Status.FAILED, "Column name <%s> is invalid".formatted(arguments.get(next)), null);
+
+				return range(query, bound_upper, bound_name);
+			}
+		};
+	}
+
+	private static Response range(String query, int upper, String name) {
+		Table result_table = new RangeTable("_range", name, upper);
 
 		return new Response(query, Status.SUCCESSFUL, null, result_table);
 	}
+
+	@Override
+	public String keyword() {
+		return "RANGE";
+	}
+
+	@Override
+	public boolean recognizes(String query) {
+		return pattern.matcher(query.strip()).matches();
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return true;
+	}
 }
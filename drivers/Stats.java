@@ -0,0 +1,98 @@
+package drivers;
+
+import static drivers.Status.*;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import apps.Database;
+import tables.ColumnarTable;
+import tables.Table;
+import tables.TableStats;
+
+/*
+ * Example:
+ *   STATS TABLE example_table
+ *
+ * Response:
+ * 	 query: STATS TABLE table_name
+ *   successful
+ *   message: "Table <example_table> has metrics enabled"
+ *   result table: one row per statistic of the example_table,
+ *     with its name and its value
+ */
+public class Stats implements Driver {
+	static final Pattern pattern = Pattern.compile(
+		"STATS\\s+TABLE\\s+([a-z][a-z0-9_]*)",
+		Pattern.CASE_INSENSITIVE
+	);
+
+	@Override
+	public Response execute(String query, Database db) {
+		var matcher = pattern.matcher(query.strip());
+		if (!matcher.matches())
+			return new Response(query, UNRECOGNIZED, null, null);
+
+		String table_name = matcher.group(1);
+
+		Table table = db.find(table_name);
+		if (table == null)
+			return new Response(query, FAILED, "Table <%s> does not exist".formatted(table_name), null);
+
+		TableStats stats = table.stats();
+
+		Table result = new ColumnarTable(
+			"_stats",
+			List.of("statistic", "value"),
+			List.of("string", "string"),
+			0
+		);
+		result.put(List.of("size", "" + stats.size()));
+		result.put(List.of("capacity", "" + stats.capacity()));
+		result.put(List.of("load_factor", ratio(stats.loadFactor())));
+		result.put(List.of("tombstones", "" + stats.tombstones()));
+		result.put(List.of("gets", "" + stats.gets()));
+		result.put(List.of("get_hit_ratio", ratio(stats.getHitRatio())));
+		result.put(List.of("puts", "" + stats.puts()));
+		result.put(List.of("put_hit_ratio", ratio(stats.putHitRatio())));
+		result.put(List.of("removes", "" + stats.removes()));
+		result.put(List.of("remove_hit_ratio", ratio(stats.removeHitRatio())));
+		result.put(List.of("resizes", "" + stats.resizes()));
+		result.put(List.of("resize_millis", ratio(stats.resizeNanos() / 1e6)));
+
+		List<String> buckets = TableStats.probeLengthBuckets();
+		for (int b = 0; b < buckets.size(); b++)
+			result.put(List.of("probe_length_" + buckets.get(b), "" + stats.probeLengths().get(b)));
+
+		return new Response(query, SUCCESSFUL, "Table <%s> has metrics %s".formatted(
+			table.getTableName(),
+			stats.recording() ? "enabled" : "disabled"
+		), result);
+	}
+
+	private static String ratio(double value) {
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+
+	@Override
+	public String keyword() {
+		return "STATS";
+	}
+
+	@Override
+	public boolean recognizes(String query) {
+		return pattern.matcher(query.strip()).matches();
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return true;
+	}
+
+	@Override
+	public String tableName(String query) {
+		var matcher = pattern.matcher(query.strip());
+		return matcher.matches() ? matcher.group(1) : null;
+	}
+}